@@ -0,0 +1,31 @@
+plugins {
+    id("java")
+    alias(libs.plugins.jmh)
+}
+
+group = "dev.ultreon.pythonvm"
+version = "1.0"
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    jmh(project(":compiler"))
+    jmh(libs.antlr.runtime)
+    jmh(libs.asm)
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(21)
+    }
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh.asProvider().get()
+    // e.g. ./gradlew :benchmarks:jmh -Pjmh.includes=ParserBenchmark
+    (findProperty("jmh.includes") as String?)?.let { includes.add(it) }
+    resultFormat = "JSON"
+    jvmArgsAppend.add("-Dpythonc.corpus.dir=" + rootProject.file("src/main/python").path)
+}
@@ -0,0 +1,57 @@
+package dev.ultreon.pythonc.bench;
+
+import dev.ultreon.pythonc.PythonCompiler;
+import dev.ultreon.pythonc.PythonLexer;
+import dev.ultreon.pythonc.PythonParser;
+import dev.ultreon.pythonc.SourceParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Code generation only, per statement kind. Modules are parsed once in the setup and compiled into a {@link NullOutput}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodegenBenchmark {
+    @Param({"ASSIGNMENT", "CALL", "ARITHMETIC", "COMPARISON", "LOOP", "CLASS"})
+    public Corpus.Kind kind;
+
+    @Param({"50"})
+    public int modules;
+
+    @Param({"20"})
+    public int functions;
+
+    private final List<PythonParser.File_inputContext> trees = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        SourceParser parser = new SourceParser(SourceParser.Mode.TWO_STAGE);
+        for (int i = 0; i < modules; i++) {
+            String module = Corpus.module(random, functions, kind);
+            trees.add(parser.parse(new CommonTokenStream(new PythonLexer(CharStreams.fromString(module)))));
+        }
+    }
+
+    @Benchmark
+    public long codegen() {
+        NullOutput output = new NullOutput();
+        for (int i = 0; i < trees.size(); i++) {
+            PythonCompiler compiler = new PythonCompiler();
+            compiler.setOutput(output);
+            compiler.compile(trees.get(i), "bench/module" + i + ".py");
+        }
+        return output.bytes();
+    }
+}
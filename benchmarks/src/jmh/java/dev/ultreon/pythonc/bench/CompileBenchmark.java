@@ -0,0 +1,42 @@
+package dev.ultreon.pythonc.bench;
+
+import dev.ultreon.pythonc.PythonCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link PythonCompiler#compile(String, String)}: lexing, parsing and code generation of a whole corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompileBenchmark {
+    @Param({"100"})
+    public int modules;
+
+    @Param({"20"})
+    public int functions;
+
+    private List<String> corpus;
+
+    @Setup
+    public void setup() {
+        corpus = Corpus.generate(modules, functions, 42);
+    }
+
+    @Benchmark
+    public long compile() {
+        NullOutput output = new NullOutput();
+        for (int i = 0; i < corpus.size(); i++) {
+            PythonCompiler compiler = new PythonCompiler();
+            compiler.setOutput(output);
+            compiler.compile(corpus.get(i), "bench/module" + i + ".py");
+        }
+        return output.bytes();
+    }
+}
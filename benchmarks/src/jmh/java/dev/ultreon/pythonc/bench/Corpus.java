@@ -0,0 +1,120 @@
+package dev.ultreon.pythonc.bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generates Python modules in the subset the compiler supports, so benchmark runs are reproducible for a given seed.
+ */
+public final class Corpus {
+    public enum Kind {
+        ASSIGNMENT, CALL, ARITHMETIC, COMPARISON, LOOP, CLASS
+    }
+
+    private Corpus() {
+
+    }
+
+    public static List<String> generate(int modules, int functionsPerModule, long seed) {
+        Random random = new Random(seed);
+        List<String> corpus = new ArrayList<>(modules);
+        for (int i = 0; i < modules; i++) {
+            corpus.add(module(random, functionsPerModule, Kind.values()));
+        }
+        return corpus;
+    }
+
+    public static String module(Random random, int functions, Kind... kinds) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("from java.lang import Runnable, System\n");
+        builder.append("from java.util import Objects\n\n");
+        builder.append("STRING = \"Hello, world!\"\n");
+        builder.append("INTEGER = ").append(random.nextInt(1000)).append('\n');
+        builder.append("FLOAT = ").append(random.nextInt(1000)).append('.').append(random.nextInt(100)).append("\n\n");
+
+        for (int i = 0; i < functions; i++) {
+            Kind kind = kinds[random.nextInt(kinds.length)];
+            if (kind == Kind.CLASS) {
+                builder.append("class Class").append(i).append("(Runnable):\n");
+                builder.append("    def __init__(self, a, b):\n");
+                builder.append("        self.a = a\n");
+                builder.append("        self.b = b\n\n");
+                builder.append("    def run(self):\n");
+                builder.append("        print(self.a + self.b)\n\n\n");
+                continue;
+            }
+
+            builder.append("def function").append(i).append("():\n");
+            if (kind == Kind.ARITHMETIC || kind == Kind.COMPARISON) {
+                // Literal-only operands would be folded away before codegen
+                builder.append("    operand = System.nanoTime()\n");
+            }
+            for (int j = 0; j < 8; j++) {
+                statement(builder, random, kind, j);
+            }
+            builder.append("\n\n");
+        }
+        return builder.toString();
+    }
+
+    private static void statement(StringBuilder builder, Random random, Kind kind, int index) {
+        String name = "value" + index;
+        switch (kind) {
+            case ASSIGNMENT -> {
+                builder.append("    ").append(name).append(" = ").append(random.nextInt(10000)).append('\n');
+                builder.append("    ").append(name).append("_f = ").append(random.nextInt(100)).append('.').append(random.nextInt(100)).append('\n');
+                builder.append("    ").append(name).append("_s = \"text").append(index).append("\"\n");
+            }
+            case CALL -> {
+                builder.append("    print(Objects.hashCode(\"").append(name).append("\"))\n");
+                builder.append("    print(STRING, INTEGER)\n");
+                builder.append("    System.currentTimeMillis()\n");
+            }
+            case ARITHMETIC -> {
+                String[] operators = {"+", "-", "*", "/", "//", "%", "&", "|", "^", "<<", ">>"};
+                builder.append("    ").append(name).append(" = operand % ").append(random.nextInt(100) + 1)
+                        .append(' ').append(operators[random.nextInt(operators.length)]).append(' ')
+                        .append(random.nextInt(8) + 1).append('\n');
+                builder.append("    print(").append(name).append(")\n");
+            }
+            case COMPARISON -> {
+                String[] operators = {"==", "!=", "<", ">", "<=", ">="};
+                builder.append("    ").append(name).append(" = operand % ").append(random.nextInt(100) + 1).append(" + 0.5\n");
+                builder.append("    if ").append(name).append(' ').append(operators[random.nextInt(operators.length)]).append(' ').append(random.nextInt(100)).append(".0:\n");
+                builder.append("        print(\"Lucky!\")\n");
+                builder.append("    else:\n");
+                builder.append("        print(\"Unlucky!\")\n");
+            }
+            case LOOP -> {
+                builder.append("    ").append(name).append(" = 0\n");
+                builder.append("    while ").append(name).append(" < ").append(random.nextInt(100)).append(":\n");
+                builder.append("        print(").append(name).append(")\n");
+                builder.append("        ").append(name).append(" = ").append(name).append(" + 1\n");
+            }
+            default -> throw new IllegalArgumentException("Not a statement kind: " + kind);
+        }
+    }
+
+    /**
+     * Real modules from the directory in the {@code pythonc.corpus.dir} system property, if any.
+     */
+    public static List<String> real() {
+        String dir = System.getProperty("pythonc.corpus.dir");
+        if (dir == null || Files.notExists(Path.of(dir))) return List.of();
+        try (Stream<Path> walk = Files.walk(Path.of(dir))) {
+            List<String> modules = new ArrayList<>();
+            for (Path path : walk.filter(p -> p.toString().endsWith(".py")).sorted().toList()) {
+                modules.add(Files.readString(path));
+            }
+            return modules;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package dev.ultreon.pythonc.bench;
+
+import dev.ultreon.pythonc.PythonLexer;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token throughput of {@code PythonLexer}, including the INDENT/DEDENT handling in {@code PythonLexerBase}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexerBenchmark {
+    @Param({"100"})
+    public int modules;
+
+    @Param({"20"})
+    public int functions;
+
+    private final List<String> corpus = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        corpus.addAll(Corpus.real());
+        corpus.addAll(Corpus.generate(modules, functions, 42));
+    }
+
+    @Benchmark
+    public void lex(Blackhole blackhole) {
+        for (String module : corpus) {
+            PythonLexer lexer = new PythonLexer(CharStreams.fromString(module));
+            for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+                blackhole.consume(token);
+            }
+        }
+    }
+}
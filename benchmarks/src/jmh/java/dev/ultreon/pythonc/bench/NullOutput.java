@@ -0,0 +1,36 @@
+package dev.ultreon.pythonc.bench;
+
+import dev.ultreon.pythonc.CompileOutput;
+
+import java.util.Set;
+
+/**
+ * Discards generated classes, so benchmarks measure the compiler and not the disk.
+ */
+public class NullOutput implements CompileOutput {
+    private long bytes;
+
+    @Override
+    public synchronized void write(String name, byte[] bytes) {
+        this.bytes += bytes.length;
+    }
+
+    @Override
+    public boolean reuse(String name) {
+        return false;
+    }
+
+    @Override
+    public void delete(String name) {
+
+    }
+
+    @Override
+    public void retain(Set<String> names) {
+
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+}
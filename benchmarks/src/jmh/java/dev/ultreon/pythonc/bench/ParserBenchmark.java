@@ -0,0 +1,65 @@
+package dev.ultreon.pythonc.bench;
+
+import dev.ultreon.pythonc.PythonLexer;
+import dev.ultreon.pythonc.SourceParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse time of {@code file_input} per prediction mode, on pre-lexed tokens so lexing is not measured.
+ * Every fork starts with an empty DFA cache, the warm-up iterations fill it like a long build would. The
+ * {@code fallbacks} counter reports how many of the parsed files needed the LL pass.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ParserBenchmark {
+    @Param({"TWO_STAGE", "LL"})
+    public SourceParser.Mode mode;
+
+    @Param({"100"})
+    public int modules;
+
+    @Param({"20"})
+    public int functions;
+
+    private final List<List<? extends Token>> tokens = new ArrayList<>();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long files;
+        public long fallbacks;
+    }
+
+    @Setup
+    public void setup() {
+        List<String> corpus = new ArrayList<>(Corpus.real());
+        corpus.addAll(Corpus.generate(modules, functions, 42));
+        for (String module : corpus) {
+            PythonLexer lexer = new PythonLexer(CharStreams.fromString(module));
+            tokens.add(lexer.getAllTokens());
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole, Counters counters) {
+        SourceParser parser = new SourceParser(mode);
+        for (List<? extends Token> module : tokens) {
+            blackhole.consume(parser.parse(new CommonTokenStream(new ListTokenSource(module))));
+            counters.files++;
+            if (parser.usedFallback()) counters.fallbacks++;
+        }
+    }
+}
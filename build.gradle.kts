@@ -26,7 +26,6 @@ tasks.test {
 tasks.register<JavaExec>("compilePython") {
     doFirst {
         delete(file("build/libs/example-1.0.jar"))
-        delete(file("build/tmp/compilePython/"))
     }
     finalizedBy(":testing:compileJava")
     classpath = project(":compiler").sourceSets["main"].runtimeClasspath
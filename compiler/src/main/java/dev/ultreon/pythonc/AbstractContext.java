@@ -5,7 +5,15 @@ import org.objectweb.asm.Type;
 import java.util.Stack;
 
 public abstract class AbstractContext implements Context {
-    private static final Stack<Type> stack = new Stack<>();
+    private static final ThreadLocal<Stack<Type>> STACK = ThreadLocal.withInitial(Stack::new);
+    private final Stack<Type> stack = STACK.get();
+
+    /**
+     * Empties the type stack of the current thread, which is shared by every context created on it.
+     */
+    static void resetStack() {
+        STACK.get().clear();
+    }
 
     @Override
     public boolean needsPop() {
@@ -6,55 +6,213 @@ package dev.ultreon.pythonc;
 import java.io.File;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.Deflater;
 
 public class App {
+    private static final String CLASSPATH_INDEX = "build/tmp/pythonc-classpath.idx";
+
     public static void main(String[] args) throws IOException {
+        List<String> arguments = new ArrayList<>(List.of(args));
+        if (arguments.remove("--daemon")) {
+            CompilerDaemon.serve();
+            return;
+        }
+
+        if (arguments.remove("--stop-daemon")) {
+            CompilerDaemon.stop();
+            return;
+        }
+
+        if (arguments.remove("--use-daemon")) {
+            Integer exitCode = CompilerDaemon.submit(arguments.toArray(String[]::new));
+            if (exitCode != null) {
+                if (exitCode != 0) System.exit(exitCode);
+                return;
+            }
+            System.err.println("Compiler daemon not available, compiling in-process");
+        }
+
+        int exitCode = run(arguments.toArray(String[]::new));
+        if (exitCode != 0) {
+            System.exit(exitCode);
+        }
+    }
+
+    public static int run(String[] args) throws IOException {
         String outputJar = null;
+        int threads = 1;
+        int compression = Deflater.DEFAULT_COMPRESSION;
+        boolean noDisk = false;
+        String cacheFile = "build/tmp/pythonc.cache";
+        String classpath = System.getProperty("java.class.path", "");
+        CompileStats stats = null;
+        SourceParser.Mode parseMode = SourceParser.Mode.TWO_STAGE;
         String jarFile = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
         if (jarFile == null) {
             jarFile = "<filename>.jar";
         }
 
         List<String> sources = new ArrayList<>();
-        for (int i = 0, argsLength = args.length; i < argsLength; i++) {
-            String arg = args[i];
-            if (arg.equals("-o")) {
-                outputJar = args[i + 1];
-                i++;
-                continue;
-            }
+        try {
+            for (int i = 0, argsLength = args.length; i < argsLength; i++) {
+                String arg = args[i];
+                if (arg.equals("-o")) {
+                    outputJar = args[i + 1];
+                    i++;
+                    continue;
+                }
 
-            if (arg.startsWith("-")) {
-                System.err.println("Unknown argument: " + arg);
-                System.exit(1);
-            }
+                if (arg.equals("--stats")) {
+                    stats = new CompileStats();
+                    continue;
+                }
+
+                if (arg.equals("--parse-mode")) {
+                    parseMode = parseMode(args[i + 1]);
+                    i++;
+                    continue;
+                }
+
+                if (arg.equals("--no-disk")) {
+                    noDisk = true;
+                    continue;
+                }
+
+                if (arg.equals("--cache")) {
+                    cacheFile = args[i + 1];
+                    i++;
+                    continue;
+                }
+
+                if (arg.equals("--classpath") || arg.equals("-cp")) {
+                    classpath = args[i + 1];
+                    i++;
+                    continue;
+                }
+
+                if (arg.equals("--no-incremental")) {
+                    cacheFile = null;
+                    continue;
+                }
+
+                if (arg.equals("--compression")) {
+                    compression = parseCompression(args[i + 1]);
+                    i++;
+                    continue;
+                }
 
-            sources.add(arg);
+                if (arg.equals("-j")) {
+                    threads = parseThreads(args[i + 1]);
+                    i++;
+                    continue;
+                }
+
+                if (arg.startsWith("-j")) {
+                    threads = parseThreads(arg.substring(2));
+                    continue;
+                }
+
+                if (arg.startsWith("-")) {
+                    System.err.println("Unknown argument: " + arg);
+                    return 1;
+                }
+
+                sources.add(arg);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 1;
         }
 
         if (outputJar == null) {
-            System.err.println("Usage: java -jar " + jarFile + " -o <output jar> <python file> ...");
-            System.exit(1);
+            System.err.println("Usage: java -jar " + jarFile + " -o <output jar> [-j <threads>] [--no-disk] [--compression <0-9>] [-cp <classpath>] [--cache <file> | --no-incremental] [--use-daemon] [--stats] [--parse-mode <two-stage|sll|ll>] <python file> ...");
+            System.err.println("       java -jar " + jarFile + " --daemon | --stop-daemon");
+            return 1;
         }
 
         if (sources.isEmpty()) {
-            System.err.println("Usage: java -jar " + jarFile + " -o <output jar> <python file> ...");
-            System.exit(1);
+            System.err.println("Usage: java -jar " + jarFile + " -o <output jar> [-j <threads>] [--no-disk] [--compression <0-9>] [-cp <classpath>] [--cache <file> | --no-incremental] [--use-daemon] [--stats] [--parse-mode <two-stage|sll|ll>] <python file> ...");
+            System.err.println("       java -jar " + jarFile + " --daemon | --stop-daemon");
+            return 1;
         }
 
         String outputDir = "build/tmp/compilePython";
         PythonCompiler pythonCompiler = new PythonCompiler();
+        if (noDisk) {
+            pythonCompiler.setOutput(new JarOutput(Path.of(outputJar), compression));
+        }
+        List<Path> classpathEntries = ClasspathIndex.parse(classpath);
+        if (cacheFile != null) {
+            // Outputs depend on the compiler itself as much as on the classpath they were compiled against
+            List<Path> fingerprinted = new ArrayList<>(ClasspathIndex.parse(System.getProperty("java.class.path", "")));
+            fingerprinted.addAll(classpathEntries);
+            BuildCache cache = new BuildCache(Path.of(cacheFile), BuildCache.fingerprint(fingerprinted));
+            cache.load();
+            pythonCompiler.setCache(cache);
+        }
+        Path indexFile = Path.of(CLASSPATH_INDEX);
+        if (!pythonCompiler.classpath().isCurrent(classpathEntries, indexFile)) {
+            pythonCompiler.classpath().close();
+            ClasspathIndex index = new ClasspathIndex(classpathEntries, indexFile);
+            index.load();
+            pythonCompiler.setClasspath(index);
+        }
+        pythonCompiler.setStats(stats);
+        pythonCompiler.setParseMode(parseMode);
         for (String source : sources) {
             if (!new File(source).exists()) {
                 System.err.println("Source directory does not exist: " + source);
-                System.exit(1);
+                return 1;
             }
         }
         for (String source : sources) {
-            pythonCompiler.compileSources(source);
+            if (!pythonCompiler.compileSources(source, threads)) {
+                return 1;
+            }
+        }
+        pythonCompiler.classpath().save();
+        long packStart = System.nanoTime();
+        pythonCompiler.pack(outputDir, outputJar, compression);
+        if (stats != null) {
+            stats.pack(System.nanoTime() - packStart);
+            stats.print(System.out);
+        }
+        return 0;
+    }
+
+    private static SourceParser.Mode parseMode(String value) {
+        return switch (value) {
+            case "two-stage" -> SourceParser.Mode.TWO_STAGE;
+            case "sll" -> SourceParser.Mode.SLL;
+            case "ll" -> SourceParser.Mode.LL;
+            default -> throw new IllegalArgumentException("Invalid parse mode: " + value + " (expected two-stage, sll or ll)");
+        };
+    }
+
+    private static int parseCompression(String value) {
+        try {
+            int level = Integer.parseInt(value);
+            if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+                throw new NumberFormatException();
+            }
+            return level;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid compression level: " + value + " (expected 0-9)");
+        }
+    }
+
+    private static int parseThreads(String value) {
+        try {
+            int threads = Integer.parseInt(value);
+            if (threads <= 0) {
+                return Runtime.getRuntime().availableProcessors();
+            }
+            return threads;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid thread count: " + value);
         }
-        pythonCompiler.pack(outputDir, outputJar);
     }
 }
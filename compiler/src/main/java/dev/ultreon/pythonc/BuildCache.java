@@ -0,0 +1,180 @@
+package dev.ultreon.pythonc;
+
+import com.google.common.hash.Hashing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+public class BuildCache {
+    private static final String HEADER = "pythonc-cache 2";
+
+    private final Path file;
+    private final String header;
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    /**
+     * @param fingerprint identifies the compiler and classpath the outputs were built with, see
+     *                    {@link #fingerprint(List)}. A cache written with a different fingerprint is discarded.
+     */
+    public BuildCache(Path file, String fingerprint) {
+        this.file = file;
+        this.header = HEADER + " " + fingerprint;
+    }
+
+    public record Entry(String hash, Set<String> imports, List<String> outputs) {
+
+    }
+
+    public static String hash(byte[] bytes) {
+        return Hashing.sha256().hashBytes(bytes).toString();
+    }
+
+    /**
+     * Hash of the JDK and of the paths and timestamps of the given classpath entries. Directories count as changed
+     * when any file in them does.
+     */
+    public static String fingerprint(List<Path> classpath) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(System.getProperty("java.home")).append(';');
+        builder.append(System.getProperty("java.runtime.version")).append(';');
+        for (Path entry : classpath) {
+            builder.append(entry.toAbsolutePath().normalize()).append(':').append(lastModified(entry)).append(';');
+        }
+        return hash(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    return walk.mapToLong(p -> p.toFile().lastModified()).max().orElse(0);
+                }
+            }
+            return Files.exists(path) ? Files.getLastModifiedTime(path).toMillis() + Files.size(path) : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    public static String moduleName(String sourcePath) {
+        String name = sourcePath.replace('\\', '/');
+        if (name.endsWith(".py")) name = name.substring(0, name.length() - ".py".length());
+        return name.replace('/', '.');
+    }
+
+    public synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    public synchronized Entry remove(String key) {
+        return entries.remove(key);
+    }
+
+    public synchronized Set<String> keys(String prefix) {
+        Set<String> keys = new TreeSet<>();
+        for (String key : entries.keySet()) {
+            if (key.startsWith(prefix)) keys.add(key);
+        }
+        return keys;
+    }
+
+    /**
+     * Expands the given set of changed modules with every module that (transitively) imports one of them.
+     */
+    public synchronized Set<String> dependents(String prefix, Set<String> changedModules) {
+        Map<String, Set<String>> importedBy = new HashMap<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) continue;
+            String module = moduleName(entry.getKey().substring(prefix.length()));
+            for (String imported : entry.getValue().imports()) {
+                importedBy.computeIfAbsent(imported, k -> new TreeSet<>()).add(module);
+            }
+        }
+
+        Set<String> result = new TreeSet<>(changedModules);
+        Deque<String> queue = new ArrayDeque<>(changedModules);
+        while (!queue.isEmpty()) {
+            for (String module : importedBy.getOrDefault(queue.pop(), Set.of())) {
+                if (result.add(module)) queue.add(module);
+            }
+        }
+        return result;
+    }
+
+    public synchronized void load() throws IOException {
+        entries.clear();
+        if (Files.notExists(file)) return;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!header.equals(reader.readLine())) {
+                // Written by another compiler version or against another classpath, start over
+                return;
+            }
+
+            String key = null;
+            Entry entry = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() < 2 || line.charAt(1) != ' ') {
+                    throw new IOException("Corrupt build cache: " + file);
+                }
+                String value = line.substring(2);
+                switch (line.charAt(0)) {
+                    case 'F' -> {
+                        int space = value.indexOf(' ');
+                        key = value.substring(space + 1);
+                        entry = new Entry(value.substring(0, space), new TreeSet<>(), new ArrayList<>());
+                        entries.put(key, entry);
+                    }
+                    case 'I' -> {
+                        if (entry == null) throw new IOException("Corrupt build cache: " + file);
+                        entry.imports().add(value);
+                    }
+                    case 'O' -> {
+                        if (entry == null) throw new IOException("Corrupt build cache: " + file);
+                        entry.outputs().add(value);
+                    }
+                    default -> throw new IOException("Corrupt build cache: " + file);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            entries.clear();
+            System.err.println("WARNING: Ignoring unreadable build cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized void save() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            writer.write(header);
+            writer.newLine();
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writer.write("F " + entry.getValue().hash() + " " + entry.getKey());
+                writer.newLine();
+                for (String imported : entry.getValue().imports()) {
+                    writer.write("I " + imported);
+                    writer.newLine();
+                }
+                for (String output : entry.getValue().outputs()) {
+                    writer.write("O " + output);
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,279 @@
+package dev.ultreon.pythonc;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.util.*;
+
+/**
+ * Class metadata read from a classfile by {@link ClasspathIndex}, mirroring the parts of {@link Class} the compiler
+ * uses without ever loading the class itself.
+ */
+public final class ClassInfo {
+    public static final ClassInfo VOID = primitive(Type.VOID_TYPE);
+    public static final ClassInfo BOOLEAN = primitive(Type.BOOLEAN_TYPE);
+    public static final ClassInfo CHAR = primitive(Type.CHAR_TYPE);
+    public static final ClassInfo BYTE = primitive(Type.BYTE_TYPE);
+    public static final ClassInfo SHORT = primitive(Type.SHORT_TYPE);
+    public static final ClassInfo INT = primitive(Type.INT_TYPE);
+    public static final ClassInfo FLOAT = primitive(Type.FLOAT_TYPE);
+    public static final ClassInfo LONG = primitive(Type.LONG_TYPE);
+    public static final ClassInfo DOUBLE = primitive(Type.DOUBLE_TYPE);
+
+    private final ClasspathIndex index;
+    private final Type type;
+    private final int access;
+    private final @Nullable String superName;
+    private final String[] interfaceNames;
+    private final List<MethodInfo> methods = new ArrayList<>();
+    private final List<FieldInfo> fields = new ArrayList<>();
+    private final @Nullable ClassInfo componentType;
+
+    private volatile Set<String> supertypes;
+    private volatile Map<String, List<MethodInfo>> publicMethods;
+
+    ClassInfo(ClasspathIndex index, String internalName, int access, @Nullable String superName, String[] interfaceNames) {
+        this.index = index;
+        this.type = Type.getObjectType(internalName);
+        this.access = access;
+        this.superName = superName;
+        this.interfaceNames = interfaceNames;
+        this.componentType = null;
+    }
+
+    private ClassInfo(ClasspathIndex index, Type type, ClassInfo componentType) {
+        this.index = index;
+        this.type = type;
+        this.access = Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_ABSTRACT;
+        this.superName = "java/lang/Object";
+        this.interfaceNames = new String[]{"java/lang/Cloneable", "java/io/Serializable"};
+        this.componentType = componentType;
+    }
+
+    private ClassInfo(Type type) {
+        this.index = null;
+        this.type = type;
+        this.access = Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_ABSTRACT;
+        this.superName = null;
+        this.interfaceNames = new String[0];
+        this.componentType = null;
+    }
+
+    private static ClassInfo primitive(Type type) {
+        return new ClassInfo(type);
+    }
+
+    static ClassInfo array(ClasspathIndex index, ClassInfo componentType) {
+        return new ClassInfo(index, Type.getType("[" + componentType.descriptorString()), componentType);
+    }
+
+    void addMethod(int access, String name, String descriptor) {
+        methods.add(new MethodInfo(this, access, name, descriptor));
+    }
+
+    void addField(int access, String name, String descriptor) {
+        fields.add(new FieldInfo(this, access, name, descriptor));
+    }
+
+    ClasspathIndex index() {
+        return index;
+    }
+
+    String internalName() {
+        return type.getInternalName();
+    }
+
+    @Nullable String superName() {
+        return superName;
+    }
+
+    String[] interfaceNames() {
+        return interfaceNames;
+    }
+
+    int access() {
+        return access;
+    }
+
+    List<MethodInfo> methods() {
+        return methods;
+    }
+
+    List<FieldInfo> fields() {
+        return fields;
+    }
+
+    public Type asmType() {
+        return type;
+    }
+
+    public String getName() {
+        if (isArray()) return descriptorString().replace('/', '.');
+        return type.getClassName();
+    }
+
+    public String descriptorString() {
+        return type.getDescriptor();
+    }
+
+    public int getModifiers() {
+        return access;
+    }
+
+    public boolean isPrimitive() {
+        return type.getSort() != Type.OBJECT && type.getSort() != Type.ARRAY;
+    }
+
+    public boolean isArray() {
+        return componentType != null;
+    }
+
+    public @Nullable ClassInfo getComponentType() {
+        return componentType;
+    }
+
+    public boolean isInterface() {
+        return (access & Opcodes.ACC_INTERFACE) != 0;
+    }
+
+    public boolean isEnum() {
+        return (access & Opcodes.ACC_ENUM) != 0 && "java/lang/Enum".equals(superName);
+    }
+
+    public @Nullable ClassInfo getSuperclass() {
+        if (superName == null || isInterface() || isPrimitive()) return null;
+        return index.find(superName);
+    }
+
+    public ClassInfo[] getInterfaces() {
+        List<ClassInfo> result = new ArrayList<>(interfaceNames.length);
+        for (String name : interfaceNames) {
+            ClassInfo info = index.find(name);
+            if (info != null) result.add(info);
+        }
+        return result.toArray(ClassInfo[]::new);
+    }
+
+    public MethodInfo[] getDeclaredMethods() {
+        return methods.stream().filter(method -> !method.isConstructor() && !method.getName().equals("<clinit>")).toArray(MethodInfo[]::new);
+    }
+
+    public MethodInfo[] getDeclaredConstructors() {
+        return methods.stream().filter(MethodInfo::isConstructor).toArray(MethodInfo[]::new);
+    }
+
+    public MethodInfo[] getConstructors() {
+        return methods.stream().filter(method -> method.isConstructor() && method.isPublic()).toArray(MethodInfo[]::new);
+    }
+
+    public MethodInfo[] getMethods() {
+        List<MethodInfo> result = new ArrayList<>();
+        for (List<MethodInfo> byName : publicMethods().values()) {
+            result.addAll(byName);
+        }
+        return result.toArray(MethodInfo[]::new);
+    }
+
+    /**
+     * Public methods with the given name, declared here or inherited, the same set {@link Class#getMethods()} would
+     * return for that name.
+     */
+    public List<MethodInfo> getMethods(String name) {
+        return publicMethods().getOrDefault(name, List.of());
+    }
+
+    private Map<String, List<MethodInfo>> publicMethods() {
+        Map<String, List<MethodInfo>> result = this.publicMethods;
+        if (result != null) return result;
+
+        result = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        Set<String> visited = new HashSet<>();
+        Deque<ClassInfo> queue = new ArrayDeque<>();
+        queue.add(this);
+        while (!queue.isEmpty()) {
+            ClassInfo info = queue.poll();
+            if (!visited.add(info.internalName())) continue;
+            for (MethodInfo method : info.methods) {
+                if (!method.isPublic() || method.isConstructor() || method.getName().equals("<clinit>")) continue;
+                if (info != this && info.isInterface() && method.isStatic()) continue;
+                if (!seen.add(method.getName() + method.getDescriptor())) continue;
+                result.computeIfAbsent(method.getName(), k -> new ArrayList<>()).add(method);
+            }
+            ClassInfo superclass = info.getSuperclass();
+            if (superclass != null) queue.add(superclass);
+            queue.addAll(List.of(info.getInterfaces()));
+        }
+        return this.publicMethods = result;
+    }
+
+    public FieldInfo getField(String name) throws NoSuchFieldException {
+        FieldInfo field = findField(name, new HashSet<>());
+        if (field == null) throw new NoSuchFieldException(name);
+        return field;
+    }
+
+    private @Nullable FieldInfo findField(String name, Set<String> visited) {
+        if (!visited.add(internalName())) return null;
+        for (FieldInfo field : fields) {
+            if (field.getName().equals(name) && field.isPublic()) return field;
+        }
+        for (ClassInfo anInterface : getInterfaces()) {
+            FieldInfo field = anInterface.findField(name, visited);
+            if (field != null) return field;
+        }
+        ClassInfo superclass = getSuperclass();
+        return superclass == null ? null : superclass.findField(name, visited);
+    }
+
+    public boolean isAssignableFrom(ClassInfo other) {
+        if (other == this || other.type.equals(type)) return true;
+        if (isPrimitive() || other.isPrimitive()) return false;
+        if (isArray() && other.isArray()) {
+            ClassInfo component = componentType;
+            ClassInfo otherComponent = other.componentType;
+            if (component.isPrimitive() || otherComponent.isPrimitive()) return component.type.equals(otherComponent.type);
+            return component.isAssignableFrom(otherComponent);
+        }
+        if (isArray()) return false;
+        return other.supertypes().contains(internalName());
+    }
+
+    private Set<String> supertypes() {
+        Set<String> result = this.supertypes;
+        if (result != null) return result;
+
+        result = new HashSet<>();
+        result.add(internalName());
+        if (superName != null) {
+            ClassInfo superclass = index.find(superName);
+            if (superclass != null) result.addAll(superclass.supertypes());
+            else result.add(superName);
+        }
+        for (String name : interfaceNames) {
+            ClassInfo anInterface = index.find(name);
+            if (anInterface != null) result.addAll(anInterface.supertypes());
+            else result.add(name);
+        }
+        // Interfaces are still Objects, even though their classfile may say otherwise
+        result.add("java/lang/Object");
+        return this.supertypes = result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        return obj instanceof ClassInfo that && type.equals(that.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return type.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return (isInterface() ? "interface " : isPrimitive() ? "" : "class ") + getName();
+    }
+}
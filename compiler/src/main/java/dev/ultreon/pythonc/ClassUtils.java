@@ -1,32 +1,25 @@
 package dev.ultreon.pythonc;
 
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 
 public class ClassUtils {
-    public static boolean isPrimitive(Class<?> clazz) {
+    public static boolean isPrimitive(ClassInfo clazz) {
         return clazz.isPrimitive();
     }
 
-    public static Method[] getMethodsByName(Class<?> type, String name) {
-        try {
-            List<Method> methods = new ArrayList<>();
-            for (Method method : type.getDeclaredMethods()) {
-                if (method.getName().equals(name)) {
-                    methods.add(method);
-                }
+    public static MethodInfo[] getMethodsByName(ClassInfo type, String name) {
+        List<MethodInfo> methods = new ArrayList<>();
+        for (MethodInfo method : type.getDeclaredMethods()) {
+            if (method.getName().equals(name)) {
+                methods.add(method);
             }
-            for (Method method : type.getMethods()) {
-                if (method.getName().equals(name)) {
-                    if (methods.contains(method)) continue;
-                    methods.add(method);
-                }
-            }
-
-            return methods.toArray(Method[]::new);
-        } catch (SecurityException e) {
-            throw new RuntimeException(e);
         }
+        for (MethodInfo method : type.getMethods(name)) {
+            if (methods.contains(method)) continue;
+            methods.add(method);
+        }
+
+        return methods.toArray(MethodInfo[]::new);
     }
 }
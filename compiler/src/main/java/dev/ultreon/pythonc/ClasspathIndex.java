@@ -0,0 +1,432 @@
+package dev.ultreon.pythonc;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.*;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Index of the compile classpath, built by reading classfiles with ASM instead of loading them. Looks in the
+ * {@code jrt:} image of the running JDK first and then in the given jars and directories, in order, like the system
+ * class loader would.
+ * <p>
+ * Parsed classes from the JDK and from jars are written to a memory-mapped cache file, so later runs only decode
+ * the classes they actually look up. The cache is discarded when the JDK or any classpath jar changes.
+ */
+public class ClasspathIndex implements Closeable {
+    private static final int MAGIC = 0x50594358;
+    private static final int VERSION = 1;
+    private static final int PARSING_OPTIONS = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+
+    private final List<Path> classpath;
+    private final @Nullable Path cacheFile;
+    private final Map<String, ClassInfo> classes = new ConcurrentHashMap<>();
+    private final Set<String> missing = ConcurrentHashMap.newKeySet();
+    private final Set<String> fromDirectories = ConcurrentHashMap.newKeySet();
+    private final Map<String, List<String>> jrtPackages = new ConcurrentHashMap<>();
+    private Map<String, int[]> persisted = Map.of();
+    private @Nullable ByteBuffer mapped;
+    private volatile boolean dirty;
+    private @Nullable String fingerprint;
+    private @Nullable String directoryFingerprint;
+
+    private @Nullable FileSystem jrt;
+    private @Nullable Map<Path, Set<String>> jarEntries;
+    private final Map<Path, ZipFile> zips = new HashMap<>();
+
+    public ClasspathIndex(List<Path> classpath, @Nullable Path cacheFile) {
+        this.classpath = List.copyOf(classpath);
+        this.cacheFile = cacheFile;
+    }
+
+    public static ClasspathIndex system() {
+        return new ClasspathIndex(parse(System.getProperty("java.class.path", "")), null);
+    }
+
+    public static List<Path> parse(String classpath) {
+        List<Path> paths = new ArrayList<>();
+        for (String entry : classpath.split(File.pathSeparator)) {
+            if (!entry.isBlank()) paths.add(Path.of(entry));
+        }
+        return paths;
+    }
+
+    public List<Path> classpath() {
+        return classpath;
+    }
+
+    /**
+     * Whether this index can be reused for the given classpath, i.e. it was loaded for the same entries and none of
+     * them changed since. Directories count as changed when any file in them was added, removed or modified, since
+     * the classes read from them are kept in memory too.
+     */
+    public synchronized boolean isCurrent(List<Path> classpath, @Nullable Path cacheFile) throws IOException {
+        return this.classpath.equals(classpath) && Objects.equals(this.cacheFile, cacheFile)
+                && fingerprint().equals(fingerprint) && directoryFingerprint().equals(directoryFingerprint);
+    }
+
+    public ClassInfo forName(String name) throws ClassNotFoundException {
+        ClassInfo info = switch (name) {
+            case "void" -> ClassInfo.VOID;
+            case "boolean" -> ClassInfo.BOOLEAN;
+            case "char" -> ClassInfo.CHAR;
+            case "byte" -> ClassInfo.BYTE;
+            case "short" -> ClassInfo.SHORT;
+            case "int" -> ClassInfo.INT;
+            case "float" -> ClassInfo.FLOAT;
+            case "long" -> ClassInfo.LONG;
+            case "double" -> ClassInfo.DOUBLE;
+            default -> {
+                if (name.startsWith("[")) yield array(Type.getType(name.replace('.', '/')));
+                if (name.endsWith("[]")) {
+                    ClassInfo component = forName(name.substring(0, name.length() - 2));
+                    yield ClassInfo.array(this, component);
+                }
+                yield find(name.replace('.', '/'));
+            }
+        };
+        if (info == null) throw new ClassNotFoundException(name);
+        return info;
+    }
+
+    /**
+     * Resolves a type from a descriptor. Classes that are missing from the classpath resolve to a placeholder
+     * without any members or supertypes, the way a signature can mention a class that is never loaded.
+     */
+    public ClassInfo resolve(Type type) {
+        return switch (type.getSort()) {
+            case Type.VOID -> ClassInfo.VOID;
+            case Type.BOOLEAN -> ClassInfo.BOOLEAN;
+            case Type.CHAR -> ClassInfo.CHAR;
+            case Type.BYTE -> ClassInfo.BYTE;
+            case Type.SHORT -> ClassInfo.SHORT;
+            case Type.INT -> ClassInfo.INT;
+            case Type.FLOAT -> ClassInfo.FLOAT;
+            case Type.LONG -> ClassInfo.LONG;
+            case Type.DOUBLE -> ClassInfo.DOUBLE;
+            case Type.ARRAY -> ClassInfo.array(this, resolve(Type.getType(type.getDescriptor().substring(1))));
+            default -> {
+                ClassInfo info = find(type.getInternalName());
+                yield info != null ? info : new ClassInfo(this, type.getInternalName(), Opcodes.ACC_PUBLIC, null, new String[0]);
+            }
+        };
+    }
+
+    private @Nullable ClassInfo array(Type type) {
+        ClassInfo component = type.getDimensions() == 1 ? resolvePresent(type.getElementType()) : array(Type.getType(type.getDescriptor().substring(1)));
+        return component == null ? null : ClassInfo.array(this, component);
+    }
+
+    private @Nullable ClassInfo resolvePresent(Type type) {
+        if (type.getSort() == Type.OBJECT) return find(type.getInternalName());
+        return resolve(type);
+    }
+
+    public @Nullable ClassInfo find(String internalName) {
+        ClassInfo info = classes.get(internalName);
+        if (info != null) return info;
+        if (missing.contains(internalName)) return null;
+
+        int[] location = persisted.get(internalName);
+        if (location != null) {
+            info = decode(location[0]);
+        } else {
+            try {
+                info = read(internalName);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read class " + internalName, e);
+            }
+            if (info == null) {
+                missing.add(internalName);
+                return null;
+            }
+            dirty = true;
+        }
+
+        ClassInfo existing = classes.putIfAbsent(internalName, info);
+        return existing != null ? existing : info;
+    }
+
+    private @Nullable ClassInfo read(String internalName) throws IOException {
+        byte[] bytes = readJrt(internalName);
+        if (bytes != null) return parse(bytes);
+
+        String entryName = internalName + ".class";
+        for (Path entry : classpath) {
+            if (Files.isDirectory(entry)) {
+                Path file = entry.resolve(entryName);
+                if (Files.isRegularFile(file)) {
+                    fromDirectories.add(internalName);
+                    return parse(Files.readAllBytes(file));
+                }
+            } else if (jarEntries().getOrDefault(entry, Set.of()).contains(entryName)) {
+                return parse(readJar(entry, entryName));
+            }
+        }
+        return null;
+    }
+
+    private @Nullable byte[] readJrt(String internalName) throws IOException {
+        FileSystem jrt = jrt();
+        if (jrt == null) return null;
+
+        int slash = internalName.lastIndexOf('/');
+        String packageName = slash == -1 ? "" : internalName.substring(0, slash).replace('/', '.');
+        List<String> modules = jrtPackages.computeIfAbsent(packageName, name -> {
+            Path packageDir = jrt.getPath("/packages", name);
+            if (name.isEmpty() || !Files.isDirectory(packageDir)) return List.of();
+            try (Stream<Path> stream = Files.list(packageDir)) {
+                return stream.map(path -> path.getFileName().toString()).toList();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        for (String module : modules) {
+            Path file = jrt.getPath("/modules", module, internalName + ".class");
+            if (Files.isRegularFile(file)) return Files.readAllBytes(file);
+        }
+        return null;
+    }
+
+    private synchronized @Nullable FileSystem jrt() {
+        if (jrt == null) {
+            try {
+                jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+            } catch (FileSystemNotFoundException | ProviderNotFoundException e) {
+                return null;
+            }
+        }
+        return jrt;
+    }
+
+    private synchronized Map<Path, Set<String>> jarEntries() throws IOException {
+        if (jarEntries != null) return jarEntries;
+
+        Map<Path, Set<String>> entries = new HashMap<>();
+        for (Path path : classpath) {
+            if (!Files.isRegularFile(path)) continue;
+            ZipFile zip = new ZipFile(path.toFile());
+            zips.put(path, zip);
+            Set<String> names = new HashSet<>();
+            for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); ) {
+                String name = e.nextElement().getName();
+                if (name.endsWith(".class")) names.add(name);
+            }
+            entries.put(path, names);
+        }
+        return jarEntries = entries;
+    }
+
+    private synchronized byte[] readJar(Path jar, String entryName) throws IOException {
+        ZipFile zip = zips.get(jar);
+        try (InputStream in = zip.getInputStream(zip.getEntry(entryName))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private ClassInfo parse(byte[] bytes) {
+        ClassInfo[] result = new ClassInfo[1];
+        new ClassReader(bytes).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                result[0] = new ClassInfo(ClasspathIndex.this, name, access, superName, interfaces == null ? new String[0] : interfaces);
+            }
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                result[0].addField(access, name, descriptor);
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                result[0].addMethod(access, name, descriptor);
+                return null;
+            }
+        }, PARSING_OPTIONS);
+        return result[0];
+    }
+
+    private String fingerprint() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append(System.getProperty("java.home")).append('\n');
+        sb.append(System.getProperty("java.runtime.version")).append('\n');
+        for (Path entry : classpath) {
+            sb.append(entry.toAbsolutePath().normalize());
+            if (Files.isRegularFile(entry)) {
+                sb.append(' ').append(Files.size(entry)).append(' ').append(Files.getLastModifiedTime(entry).toMillis());
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Kept apart from {@link #fingerprint()}, classes from directories aren't persisted so changing them shouldn't
+     * throw away the cache file.
+     */
+    private String directoryFingerprint() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Path entry : classpath) {
+            if (!Files.isDirectory(entry)) continue;
+            long lastModified = 0;
+            int count = 0;
+            try (Stream<Path> walk = Files.walk(entry)) {
+                for (Path file : (Iterable<Path>) walk::iterator) {
+                    lastModified = Math.max(lastModified, Files.getLastModifiedTime(file).toMillis());
+                    count++;
+                }
+            }
+            sb.append(entry.toAbsolutePath().normalize()).append(' ').append(count).append(' ').append(lastModified).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public synchronized void load() throws IOException {
+        fingerprint = fingerprint();
+        directoryFingerprint = directoryFingerprint();
+        if (cacheFile == null || Files.notExists(cacheFile)) return;
+
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || !readString(buffer).equals(fingerprint)) {
+                // Different JDK, classpath or compiler version, start over
+                return;
+            }
+
+            int count = buffer.getInt();
+            Map<String, int[]> table = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String name = readString(buffer);
+                table.put(name, new int[]{buffer.getInt(), buffer.getInt()});
+            }
+            this.mapped = buffer;
+            this.persisted = table;
+        } catch (IOException | RuntimeException e) {
+            this.mapped = null;
+            this.persisted = Map.of();
+            System.err.println("WARNING: Ignoring unreadable classpath index " + cacheFile + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized void save() throws IOException {
+        if (cacheFile == null || !dirty) return;
+
+        for (String name : persisted.keySet()) {
+            find(name);
+        }
+        List<ClassInfo> infos = new ArrayList<>();
+        for (ClassInfo info : classes.values()) {
+            if (!fromDirectories.contains(info.internalName())) infos.add(info);
+        }
+
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(records);
+        Map<String, int[]> table = new LinkedHashMap<>();
+        for (ClassInfo info : infos) {
+            int offset = out.size();
+            encode(out, info);
+            table.put(info.internalName(), new int[]{offset, out.size() - offset});
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerOut = new DataOutputStream(header);
+        headerOut.writeInt(MAGIC);
+        headerOut.writeInt(VERSION);
+        writeString(headerOut, fingerprint());
+        headerOut.writeInt(table.size());
+        int tableSize = 0;
+        for (String name : table.keySet()) {
+            tableSize += 4 + name.getBytes(StandardCharsets.UTF_8).length + 8;
+        }
+        int base = headerOut.size() + tableSize;
+        for (Map.Entry<String, int[]> entry : table.entrySet()) {
+            writeString(headerOut, entry.getKey());
+            headerOut.writeInt(base + entry.getValue()[0]);
+            headerOut.writeInt(entry.getValue()[1]);
+        }
+
+        Path parent = cacheFile.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path tmp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+            header.writeTo(stream);
+            records.writeTo(stream);
+        }
+        Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    private ClassInfo decode(int offset) {
+        ByteBuffer in = mapped.duplicate().position(offset);
+        int access = in.getInt();
+        String name = readString(in);
+        String superName = readString(in);
+        String[] interfaces = new String[in.getInt()];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaces[i] = readString(in);
+        }
+        ClassInfo info = new ClassInfo(this, name, access, superName.isEmpty() ? null : superName, interfaces);
+        for (int i = 0, count = in.getInt(); i < count; i++) {
+            info.addMethod(in.getInt(), readString(in), readString(in));
+        }
+        for (int i = 0, count = in.getInt(); i < count; i++) {
+            info.addField(in.getInt(), readString(in), readString(in));
+        }
+        return info;
+    }
+
+    private static void encode(DataOutputStream out, ClassInfo info) throws IOException {
+        out.writeInt(info.access());
+        writeString(out, info.internalName());
+        writeString(out, info.superName() == null ? "" : info.superName());
+        out.writeInt(info.interfaceNames().length);
+        for (String name : info.interfaceNames()) {
+            writeString(out, name);
+        }
+        out.writeInt(info.methods().size());
+        for (MethodInfo method : info.methods()) {
+            out.writeInt(method.getModifiers());
+            writeString(out, method.getName());
+            writeString(out, method.getDescriptor());
+        }
+        out.writeInt(info.fields().size());
+        for (FieldInfo field : info.fields()) {
+            out.writeInt(field.getModifiers());
+            writeString(out, field.getName());
+            writeString(out, field.getDescriptor());
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (ZipFile zip : zips.values()) {
+            zip.close();
+        }
+        zips.clear();
+        jarEntries = null;
+    }
+}
@@ -0,0 +1,27 @@
+package dev.ultreon.pythonc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+
+public interface CompileOutput extends Closeable {
+    void write(String name, byte[] bytes) throws IOException;
+
+    /**
+     * Keeps an entry produced by a previous build. Returns false if the previous entry is not available anymore.
+     */
+    boolean reuse(String name) throws IOException;
+
+    void delete(String name) throws IOException;
+
+    /**
+     * Drops every entry that isn't one of the given names, e.g. classes of sources that were removed since the last
+     * build.
+     */
+    void retain(Set<String> names) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+
+    }
+}
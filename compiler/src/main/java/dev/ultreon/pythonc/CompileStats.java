@@ -0,0 +1,54 @@
+package dev.ultreon.pythonc;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class CompileStats {
+    private final List<FileStats> files = new ArrayList<>();
+    private long packNanos;
+
+    public record FileStats(String file, long lexNanos, long parseNanos, long codegenNanos, long writeNanos, int tokens, int nodes, long bytes, boolean llFallback, int resolutionHits, int resolutionMisses) {
+
+    }
+
+    public synchronized void add(FileStats stats) {
+        files.add(stats);
+    }
+
+    public synchronized void pack(long nanos) {
+        packNanos += nanos;
+    }
+
+    public synchronized void print(PrintStream out) {
+        List<FileStats> sorted = new ArrayList<>(files);
+        sorted.sort(Comparator.comparing(FileStats::file));
+
+        out.printf("%-48s %9s %9s %9s %9s %8s %8s %9s %3s%n", "File", "Lex ms", "Parse ms", "Codegen ms", "Write ms", "Tokens", "Nodes", "Bytes", "LL");
+        long lex = 0, parse = 0, codegen = 0, write = 0, bytes = 0;
+        int tokens = 0, nodes = 0, llFallbacks = 0, resolutionHits = 0, resolutionMisses = 0;
+        for (FileStats file : sorted) {
+            out.printf("%-48s %9.2f %9.2f %9.2f %9.2f %8d %8d %9d %3s%n", file.file(), millis(file.lexNanos()), millis(file.parseNanos()), millis(file.codegenNanos()), millis(file.writeNanos()), file.tokens(), file.nodes(), file.bytes(), file.llFallback() ? "yes" : "");
+            lex += file.lexNanos();
+            parse += file.parseNanos();
+            codegen += file.codegenNanos();
+            write += file.writeNanos();
+            tokens += file.tokens();
+            nodes += file.nodes();
+            bytes += file.bytes();
+            if (file.llFallback()) llFallbacks++;
+            resolutionHits += file.resolutionHits();
+            resolutionMisses += file.resolutionMisses();
+        }
+        out.printf("%-48s %9.2f %9.2f %9.2f %9.2f %8d %8d %9d%n", "Total (" + sorted.size() + " files)", millis(lex), millis(parse), millis(codegen), millis(write), tokens, nodes, bytes);
+        out.printf("LL fallbacks: %d of %d files%n", llFallbacks, sorted.size());
+        int resolutions = resolutionHits + resolutionMisses;
+        out.printf("Overload resolution: %d hits, %d misses (%.1f%% hit rate)%n", resolutionHits, resolutionMisses, resolutions == 0 ? 0.0 : resolutionHits * 100.0 / resolutions);
+        out.printf("Pack: %.2f ms%n", millis(packNanos));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
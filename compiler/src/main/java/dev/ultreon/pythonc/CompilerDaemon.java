@@ -0,0 +1,207 @@
+package dev.ultreon.pythonc;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+public class CompilerDaemon {
+    private static final String PROTOCOL = "pythonc-daemon 1";
+    static final Path PORT_FILE = Path.of("build/tmp/pythonc-daemon.port");
+
+    private static final int FRAME_EXIT = 0;
+    private static final int FRAME_OUT = 1;
+    private static final int FRAME_ERR = 2;
+    private static final int FRAME_STALE = 3;
+
+    private final String workingDir = System.getProperty("user.dir");
+    private final String classpath = System.getProperty("java.class.path");
+    private final String classpathFingerprint = fingerprint(classpath);
+    private final String token;
+
+    private CompilerDaemon(String token) {
+        this.token = token;
+    }
+
+    public static void serve() throws IOException {
+        byte[] secret = new byte[16];
+        new SecureRandom().nextBytes(secret);
+        CompilerDaemon daemon = new CompilerDaemon(HexFormat.of().formatHex(secret));
+
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Files.createDirectories(PORT_FILE.toAbsolutePath().getParent());
+            Files.writeString(PORT_FILE, server.getLocalPort() + " " + daemon.token);
+            System.out.println("Compiler daemon listening on port " + server.getLocalPort());
+
+            // Requests are handled one at a time, System.out and System.err are redirected per request
+            boolean running = true;
+            while (running) {
+                try (Socket socket = server.accept()) {
+                    running = daemon.handle(socket);
+                } catch (IOException e) {
+                    System.err.println("Compiler daemon request failed: " + e.getMessage());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(PORT_FILE);
+        }
+        System.out.println("Compiler daemon stopped");
+    }
+
+    public static Integer submit(String[] args) throws IOException {
+        return request("compile", args);
+    }
+
+    public static void stop() throws IOException {
+        if (request("stop", new String[0]) == null) {
+            System.err.println("No compiler daemon running");
+        }
+    }
+
+    private static Integer request(String command, String[] args) throws IOException {
+        if (Files.notExists(PORT_FILE)) return null;
+        String[] portFile = Files.readString(PORT_FILE).trim().split(" ");
+        if (portFile.length != 2) return null;
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(portFile[0]))) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(PROTOCOL);
+            out.writeUTF(portFile[1]);
+            out.writeUTF(command);
+            out.writeUTF(System.getProperty("user.dir"));
+            out.writeUTF(System.getProperty("java.class.path"));
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            while (true) {
+                int frame = in.readUnsignedByte();
+                switch (frame) {
+                    case FRAME_EXIT -> {
+                        return in.readInt();
+                    }
+                    case FRAME_OUT, FRAME_ERR -> {
+                        byte[] bytes = new byte[in.readInt()];
+                        in.readFully(bytes);
+                        (frame == FRAME_OUT ? System.out : System.err).write(bytes);
+                    }
+                    case FRAME_STALE -> {
+                        System.err.println(in.readUTF());
+                        return null;
+                    }
+                    default -> throw new IOException("Invalid daemon frame: " + frame);
+                }
+            }
+        } catch (ConnectException | NumberFormatException e) {
+            // Daemon died without cleaning up
+            return null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private boolean handle(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (!PROTOCOL.equals(in.readUTF()) || !token.equals(in.readUTF())) {
+            return true;
+        }
+        String command = in.readUTF();
+        String clientDir = in.readUTF();
+        String clientClasspath = in.readUTF();
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+
+        if (command.equals("stop")) {
+            out.writeByte(FRAME_EXIT);
+            out.writeInt(0);
+            out.flush();
+            return false;
+        }
+
+        if (!clientDir.equals(workingDir)) {
+            stale(out, "Compiler daemon serves " + workingDir + ", not " + clientDir);
+            return true;
+        }
+
+        if (!clientClasspath.equals(classpath) || !classpathFingerprint.equals(fingerprint(classpath))) {
+            // Classes that are already loaded can't be swapped out, so the daemon has to go
+            stale(out, "Compiler classpath changed, stopping compiler daemon");
+            return false;
+        }
+
+        PrintStream oldOut = System.out;
+        PrintStream oldErr = System.err;
+        PrintStream newOut = new PrintStream(new BufferedOutputStream(new FrameOutputStream(out, FRAME_OUT)), false, StandardCharsets.UTF_8);
+        PrintStream newErr = new PrintStream(new BufferedOutputStream(new FrameOutputStream(out, FRAME_ERR)), false, StandardCharsets.UTF_8);
+        int exitCode;
+        try {
+            System.setOut(newOut);
+            System.setErr(newErr);
+            // Classes compiled by earlier builds may have changed, Java classes stay cached
+            PythonCompiler.classCache.clearCompiled();
+            exitCode = App.run(args);
+        } catch (Throwable t) {
+            t.printStackTrace();
+            exitCode = 1;
+        } finally {
+            newOut.flush();
+            newErr.flush();
+            System.setOut(oldOut);
+            System.setErr(oldErr);
+        }
+
+        synchronized (out) {
+            out.writeByte(FRAME_EXIT);
+            out.writeInt(exitCode);
+            out.flush();
+        }
+        return true;
+    }
+
+    private static void stale(DataOutputStream out, String message) throws IOException {
+        out.writeByte(FRAME_STALE);
+        out.writeUTF(message);
+        out.flush();
+    }
+
+    private static String fingerprint(String classpath) {
+        return BuildCache.fingerprint(ClasspathIndex.parse(classpath));
+    }
+
+    private static class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final int frame;
+
+        FrameOutputStream(DataOutputStream out, int frame) {
+            this.out = out;
+            this.frame = frame;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            synchronized (out) {
+                out.writeByte(frame);
+                out.writeInt(len);
+                out.write(b, off, len);
+                out.flush();
+            }
+        }
+    }
+}
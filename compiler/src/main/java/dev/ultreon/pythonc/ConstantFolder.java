@@ -0,0 +1,312 @@
+package dev.ultreon.pythonc;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Evaluates operators on literal operands at compile time, following Python semantics.
+ * <p>
+ * Every method returns {@code null} when the result can't be computed exactly here (overflow, division by zero,
+ * negative shift counts, non-literal operands, ...), in which case the operation is left to the runtime.
+ */
+final class ConstantFolder {
+    private static final int MAX_STRING_LENGTH = 4096;
+
+    private ConstantFolder() {
+
+    }
+
+    /**
+     * Returns the literal value of an expression result, or {@code null} if it isn't a compile-time constant.
+     */
+    static @Nullable Object literal(@Nullable Object value) {
+        return switch (value) {
+            case Long l -> l;
+            case Double d -> d;
+            case String s -> s;
+            case Boolean b -> b;
+            case PyConstant constant -> literal(constant.value());
+            case PyEval eval -> eval.constantValue();
+            case null, default -> null;
+        };
+    }
+
+    /**
+     * Returns the truth value of a literal, or {@code null} if it isn't a compile-time constant.
+     */
+    static @Nullable Boolean truth(@Nullable Object value) {
+        return switch (literal(value)) {
+            case Boolean b -> b;
+            case Long l -> l != 0;
+            case Double d -> d != 0.0;
+            case String s -> !s.isEmpty();
+            case null, default -> null;
+        };
+    }
+
+    static @Nullable Object fold(PyEval.Operator operator, @Nullable Object value, @Nullable Object addition) {
+        Object left = literal(value);
+        if (left == null) {
+            return null;
+        }
+
+        switch (operator) {
+            case UNARY_MINUS, UNARY_PLUS, UNARY_NOT -> {
+                return addition == null ? unary(operator, left) : null;
+            }
+            default -> {
+                Object right = literal(addition);
+                if (right == null) {
+                    return null;
+                }
+                return binary(operator, left, right);
+            }
+        }
+    }
+
+    static @Nullable Boolean compare(PyComparison.Comparison comparison, @Nullable Object value, @Nullable Object other) {
+        Object left = literal(value);
+        Object right = literal(other);
+        if (left == null || right == null) {
+            return null;
+        }
+
+        int order;
+        if (isNumber(left) && isNumber(right)) {
+            if (isFloat(left) || isFloat(right)) {
+                double a = toDouble(left);
+                double b = toDouble(right);
+                if (Double.isNaN(a) || Double.isNaN(b)) {
+                    return comparison == PyComparison.Comparison.NE;
+                }
+                order = Double.compare(a, b);
+            } else {
+                order = Long.compare(toLong(left), toLong(right));
+            }
+        } else if (left instanceof String a && right instanceof String b) {
+            order = a.compareTo(b);
+        } else {
+            return switch (comparison) {
+                case EQ -> false;
+                case NE -> true;
+                default -> null;
+            };
+        }
+
+        return switch (comparison) {
+            case EQ -> order == 0;
+            case NE -> order != 0;
+            case LT -> order < 0;
+            case LTE -> order <= 0;
+            case GT -> order > 0;
+            case GTE -> order >= 0;
+        };
+    }
+
+    private static @Nullable Object unary(PyEval.Operator operator, Object value) {
+        if (!isNumber(value)) {
+            return null;
+        }
+
+        if (isFloat(value)) {
+            double d = (Double) value;
+            return switch (operator) {
+                case UNARY_MINUS -> -d;
+                case UNARY_PLUS -> d;
+                default -> null;
+            };
+        }
+
+        long l = toLong(value);
+        return switch (operator) {
+            case UNARY_MINUS -> l == Long.MIN_VALUE ? null : -l;
+            case UNARY_PLUS -> l;
+            case UNARY_NOT -> ~l;
+            default -> null;
+        };
+    }
+
+    private static @Nullable Object binary(PyEval.Operator operator, Object left, Object right) {
+        if (left instanceof String || right instanceof String) {
+            return strings(operator, left, right);
+        }
+
+        if (left instanceof Boolean a && right instanceof Boolean b) {
+            switch (operator) {
+                case AND -> {
+                    return a & b;
+                }
+                case OR -> {
+                    return a | b;
+                }
+                case XOR -> {
+                    return a ^ b;
+                }
+                default -> {
+                }
+            }
+        }
+
+        if (isFloat(left) || isFloat(right)) {
+            return floats(operator, toDouble(left), toDouble(right));
+        }
+
+        return integers(operator, toLong(left), toLong(right));
+    }
+
+    private static @Nullable Object integers(PyEval.Operator operator, long a, long b) {
+        try {
+            return switch (operator) {
+                case ADD -> Math.addExact(a, b);
+                case SUB -> Math.subtractExact(a, b);
+                case MUL -> Math.multiplyExact(a, b);
+                case DIV -> b == 0 ? null : (double) a / (double) b;
+                case FLOORDIV -> b == 0 || (a == Long.MIN_VALUE && b == -1) ? null : Math.floorDiv(a, b);
+                case MOD -> b == 0 ? null : Math.floorMod(a, b);
+                case AND -> a & b;
+                case OR -> a | b;
+                case XOR -> a ^ b;
+                case LSHIFT -> shiftLeft(a, b);
+                case RSHIFT -> b < 0 ? null : b >= Long.SIZE ? (a < 0 ? -1L : 0L) : a >> b;
+                case POW -> {
+                    if (b >= 0) {
+                        yield pow(a, b);
+                    }
+                    // A negative exponent gives a float, and zero to a negative power is a ZeroDivisionError.
+                    yield a == 0 ? null : Math.pow(a, b);
+                }
+                default -> null;
+            };
+        } catch (ArithmeticException e) {
+            // Doesn't fit in a long, let the runtime deal with it.
+            return null;
+        }
+    }
+
+    private static @Nullable Object floats(PyEval.Operator operator, double a, double b) {
+        return switch (operator) {
+            case ADD -> a + b;
+            case SUB -> a - b;
+            case MUL -> a * b;
+            case DIV -> b == 0.0 ? null : a / b;
+            case FLOORDIV -> b == 0.0 ? null : floorDivide(a, b);
+            case MOD -> {
+                if (b == 0.0) {
+                    yield null;
+                }
+                double mod = a % b;
+                if (mod == 0.0) {
+                    yield Math.copySign(0.0, b);
+                }
+                yield (mod < 0.0) != (b < 0.0) ? mod + b : mod;
+            }
+            case POW -> {
+                if (a == 0.0 && b < 0.0 || a < 0.0 && b != Math.rint(b)) {
+                    // ZeroDivisionError or a complex result.
+                    yield null;
+                }
+                yield Math.pow(a, b);
+            }
+            default -> null;
+        };
+    }
+
+    /**
+     * Python's {@code a // b} for floats, the way CPython computes it. Flooring the rounded quotient is off by one
+     * when {@code a / b} rounds up to an integer, e.g. {@code 1 // 0.1} is 9.0 and not 10.0.
+     */
+    private static double floorDivide(double a, double b) {
+        double mod = a % b;
+        double div = (a - mod) / b;
+        if (mod != 0.0 && (b < 0.0) != (mod < 0.0)) {
+            div -= 1.0;
+        }
+        if (div == 0.0) {
+            return Math.copySign(0.0, a / b);
+        }
+        double floorDiv = Math.floor(div);
+        if (div - floorDiv > 0.5) {
+            floorDiv += 1.0;
+        }
+        return floorDiv;
+    }
+
+    private static @Nullable Object strings(PyEval.Operator operator, Object left, Object right) {
+        if (operator == PyEval.Operator.ADD && left instanceof String a && right instanceof String b) {
+            return a.length() + b.length() > MAX_STRING_LENGTH ? null : a + b;
+        }
+        if (operator == PyEval.Operator.MUL) {
+            if (left instanceof String s && isInteger(right)) {
+                return repeat(s, toLong(right));
+            }
+            if (right instanceof String s && isInteger(left)) {
+                return repeat(s, toLong(left));
+            }
+        }
+        return null;
+    }
+
+    private static @Nullable String repeat(String s, long count) {
+        if (count <= 0) {
+            return "";
+        }
+        if (count > MAX_STRING_LENGTH || s.length() * count > MAX_STRING_LENGTH) {
+            return null;
+        }
+        return s.repeat((int) count);
+    }
+
+    private static @Nullable Long shiftLeft(long a, long b) {
+        if (b < 0) {
+            return null;
+        }
+        if (a == 0) {
+            return 0L;
+        }
+        if (b >= Long.SIZE - 1) {
+            return null;
+        }
+        long shifted = a << b;
+        return shifted >> b == a ? shifted : null;
+    }
+
+    private static long pow(long base, long exponent) {
+        long result = 1;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) {
+                result = Math.multiplyExact(result, base);
+            }
+            exponent >>= 1;
+            if (exponent > 0) {
+                base = Math.multiplyExact(base, base);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isNumber(Object value) {
+        return value instanceof Long || value instanceof Double || value instanceof Boolean;
+    }
+
+    private static boolean isInteger(Object value) {
+        return value instanceof Long || value instanceof Boolean;
+    }
+
+    private static boolean isFloat(Object value) {
+        return value instanceof Double;
+    }
+
+    private static long toLong(Object value) {
+        return switch (value) {
+            case Long l -> l;
+            case Boolean b -> b ? 1L : 0L;
+            default -> throw new IllegalArgumentException("Not an integer: " + value);
+        };
+    }
+
+    private static double toDouble(Object value) {
+        return switch (value) {
+            case Double d -> d;
+            default -> toLong(value);
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package dev.ultreon.pythonc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class DirectoryOutput implements CompileOutput {
+    private final Path directory;
+
+    public DirectoryOutput(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void write(String name, byte[] bytes) throws IOException {
+        Path file = directory.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytes);
+    }
+
+    @Override
+    public boolean reuse(String name) {
+        return Files.isRegularFile(directory.resolve(name));
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        Files.deleteIfExists(directory.resolve(name));
+    }
+
+    @Override
+    public void retain(Set<String> names) throws IOException {
+        if (!Files.isDirectory(directory)) return;
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(Files::isRegularFile).toList();
+        }
+        for (Path file : files) {
+            if (!names.contains(directory.relativize(file).toString().replace('\\', '/'))) {
+                Files.delete(file);
+            }
+        }
+    }
+}
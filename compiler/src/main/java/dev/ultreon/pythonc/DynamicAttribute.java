@@ -0,0 +1,56 @@
+package dev.ultreon.pythonc;
+
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+/**
+ * {@code receiver.name} on a receiver whose type is only known at runtime. Reads and assignments are linked by
+ * {@code invokedynamic} sites that cache the attribute per receiver class.
+ */
+final class DynamicAttribute implements Symbol {
+    private static final Type OBJECT_TYPE = Type.getType(Object.class);
+
+    private final PyExpr receiver;
+    private final String name;
+    private final int lineNo;
+
+    DynamicAttribute(PyExpr receiver, String name, int lineNo) {
+        this.receiver = receiver;
+        this.name = name;
+        this.lineNo = lineNo;
+    }
+
+    @Override
+    public Object preload(MethodVisitor mv, PythonCompiler compiler, boolean boxed) {
+        return null;
+    }
+
+    @Override
+    public void load(MethodVisitor mv, PythonCompiler compiler, Object preloaded, boolean boxed) {
+        receiver.load(mv, compiler, receiver.preload(mv, compiler, true), true);
+        compiler.writer.invokeDynamic(name, "(Ljava/lang/Object;)Ljava/lang/Object;", JvmWriter.GETATTR_BOOTSTRAP);
+    }
+
+    @Override
+    public void set(MethodVisitor mv, PythonCompiler compiler, PyExpr visit) {
+        receiver.load(mv, compiler, receiver.preload(mv, compiler, true), true);
+        visit.load(mv, compiler, visit.preload(mv, compiler, true), true);
+        compiler.writer.coerce(OBJECT_TYPE);
+        compiler.writer.invokeDynamic(name, "(Ljava/lang/Object;Ljava/lang/Object;)V", JvmWriter.SETATTR_BOOTSTRAP);
+    }
+
+    @Override
+    public int lineNo() {
+        return lineNo;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Type type(PythonCompiler compiler) {
+        return OBJECT_TYPE;
+    }
+}
@@ -0,0 +1,50 @@
+package dev.ultreon.pythonc;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * A field of a {@link ClassInfo}, mirroring {@link java.lang.reflect.Field}.
+ */
+public final class FieldInfo {
+    private final ClassInfo declaringClass;
+    private final int access;
+    private final String name;
+    private final String descriptor;
+
+    FieldInfo(ClassInfo declaringClass, int access, String name, String descriptor) {
+        this.declaringClass = declaringClass;
+        this.access = access;
+        this.name = name;
+        this.descriptor = descriptor;
+    }
+
+    public ClassInfo getDeclaringClass() {
+        return declaringClass;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    public int getModifiers() {
+        return access;
+    }
+
+    public boolean isPublic() {
+        return (access & Opcodes.ACC_PUBLIC) != 0;
+    }
+
+    public ClassInfo getType() {
+        return declaringClass.index().resolve(Type.getType(descriptor));
+    }
+
+    @Override
+    public String toString() {
+        return declaringClass.getName() + "." + name;
+    }
+}
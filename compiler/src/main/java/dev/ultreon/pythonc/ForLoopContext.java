@@ -0,0 +1,23 @@
+package dev.ultreon.pythonc;
+
+import org.objectweb.asm.Label;
+
+public class ForLoopContext extends AbstractContext implements LoopContext {
+    public final Label nextLabel;
+    public final Label endLabel;
+
+    public ForLoopContext(Label nextLabel, Label endLabel) {
+        this.nextLabel = nextLabel;
+        this.endLabel = endLabel;
+    }
+
+    @Override
+    public Label getContinuationLabel() {
+        return nextLabel;
+    }
+
+    @Override
+    public Label getBreakLabel() {
+        return endLabel;
+    }
+}
@@ -7,22 +7,22 @@ import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
 import java.util.*;
 import java.util.stream.Collectors;
 
 final class FuncCall implements Symbol {
     public static final String E_CLASS_NOT_IN_CP = "Class not found in classpath (yet), maybe the class isn't initialized yet: %s (%s)";
+    private static final Type OBJECT_TYPE = Type.getType(Object.class);
     final PythonParser.PrimaryContext atom;
     final PythonParser.PrimaryContext primaryContext;
     final PythonParser.ArgumentsContext arguments;
-    private Method method;
-    private Constructor<?> constructor;
+    private MethodInfo method;
+    private MethodInfo constructor;
     private boolean kwargs;
     private boolean varArgs;
     private boolean dynCtor;
     private Object callArgs;
+    private List<PyExpr> argExprs;
     private Type owner;
     private Type[] paramTypes;
     private JvmFunction function;
@@ -135,6 +135,10 @@ final class FuncCall implements Symbol {
                     case PyVariable pyVariable -> {
                         symbol.load(mv, compiler, symbol.preload(mv, compiler, false), false);
                         setupCallArgs(mv, compiler);
+                        if (isDynamic(compiler)) {
+                            writeDynamic(mv, compiler);
+                            return;
+                        }
 
                         installArgs(mv, compiler, pyVariable.type(compiler));
 
@@ -151,9 +155,9 @@ final class FuncCall implements Symbol {
                                 if (owner.getSort() == Type.OBJECT) {
                                     String internal = owner.getInternalName();
                                     String qualified = internal.replace("/", ".");
-                                    Class<?> aClass = null;
+                                    ClassInfo aClass = null;
                                     try {
-                                        aClass = Class.forName(qualified, false, getClass().getClassLoader());
+                                        aClass = compiler.classpath().forName(qualified);
                                         if (aClass.isInterface()) {
                                             compiler.writer.invokeInterface(internal, name(), "(" + s + ")" + type(compiler), true);
                                             return;
@@ -171,9 +175,9 @@ final class FuncCall implements Symbol {
                                     if (owner.getSort() == Type.OBJECT) {
                                         String internal = owner.getInternalName();
                                         String qualified = internal.replace("/", ".");
-                                        Class<?> aClass = null;
+                                        ClassInfo aClass = null;
                                         try {
-                                            aClass = Class.forName(qualified, false, getClass().getClassLoader());
+                                            aClass = compiler.classpath().forName(qualified);
                                             if (aClass.isInterface()) {
                                                 compiler.writer.invokeInterface(internal, name(), "(" + s + ")" + type(compiler), true);
                                                 return;
@@ -195,6 +199,11 @@ final class FuncCall implements Symbol {
                         }
                         compiler.writer.invokeVirtual(owner.getInternalName(), name(), "(" + s + ")" + type(compiler), false);
                     }
+                    case PyModuleFunction function -> {
+                        setupCallArgs(mv, compiler);
+                        function.invoke(mv, compiler, argExprs);
+                        return;
+                    }
                     case PyClass pyClass -> {
                         Type owner1 = owner(compiler);
                         installArgs(mv, compiler, owner1);
@@ -213,14 +222,14 @@ final class FuncCall implements Symbol {
                         }
                         installArgs(mv, compiler, type, true);
                         JvmFunction jvmFunction = pyImport.function(compiler, ourName, paramTypes, () -> {
-                            writeArgs(mv, compiler, (List<PyExpr>) callArgs, boxing);
+                            writeArgs(mv, compiler, (List<PyExpr>) callArgs, boxing, paramTypes);
                         });
                         if (jvmFunction == null) {
                             throw new CompilerException("Field '" + name + "' not found (" + compiler.getLocation(this) + ")");
                         }
 
                         if (jvmFunction instanceof JvmConstructor constructor) {
-                            constructor.write(mv, compiler, () -> writeArgs(mv, compiler, (List<PyExpr>) callArgs, boxing));
+                            constructor.write(mv, compiler, () -> writeArgs(mv, compiler, (List<PyExpr>) callArgs, boxing, paramTypes));
                         } else {
                             jvmFunction.write(mv, compiler);
                         }
@@ -261,9 +270,9 @@ final class FuncCall implements Symbol {
                         if (owner.getSort() == Type.OBJECT) {
                             String internal = owner.getInternalName();
                             String qualified = internal.replace("/", ".");
-                            Class<?> aClass = null;
+                            ClassInfo aClass = null;
                             try {
-                                aClass = Class.forName(qualified, false, getClass().getClassLoader());
+                                aClass = compiler.classpath().forName(qualified);
                                 if (aClass.isInterface()) {
                                     compiler.writer.invokeInterface(internal, name(), "(" + s + ")" + type(compiler), true);
                                     return;
@@ -291,29 +300,29 @@ final class FuncCall implements Symbol {
             Type type = func.type(compiler);
             if (!compiler.classes.has(type.getClassName())) {
                 try {
-                    Class<?> aClass = Class.forName(type.getClassName(), false, getClass().getClassLoader());
-                    Stack<Class<?>> stack = new Stack<>();
+                    ClassInfo aClass = compiler.classpath().forName(type.getClassName());
+                    Stack<ClassInfo> stack = new Stack<>();
                     stack.push(aClass);
                     while (!stack.isEmpty()) {
                         find_method:
-                        for (Method method : aClass.getMethods()) {
+                        for (MethodInfo method : aClass.getMethods()) {
                             if (!method.getName().equals(name())) continue;
                             if (method.getParameterTypes().length != (callArgs == null ? 0 : ((List<Symbol>) callArgs).size()))
                                 continue;
-                            Class<?>[] parameterTypes = method.getParameterTypes();
+                            ClassInfo[] parameterTypes = method.getParameterTypes();
                             for (int i = 0; i < parameterTypes.length; i++) {
-                                if (!parameterTypes[i].isAssignableFrom(Class.forName(((List<Symbol>) callArgs).get(i).type(compiler).getClassName(), false, getClass().getClassLoader()))) {
+                                if (!parameterTypes[i].isAssignableFrom(compiler.classpath().forName(((List<Symbol>) callArgs).get(i).type(compiler).getClassName()))) {
                                     continue find_method;
                                 }
                             }
                             if (method.getDeclaringClass().isInterface()) {
-                                compiler.writer.invokeInterface(type.getInternalName(), name(), Type.getType(method).getDescriptor(), true);
+                                compiler.writer.invokeInterface(type.getInternalName(), name(), method.asmType().getDescriptor(), true);
                                 return;
                             }
-                            compiler.writer.invokeVirtual(type.getInternalName(), name(), Type.getType(method).getDescriptor(), false);
+                            compiler.writer.invokeVirtual(type.getInternalName(), name(), method.asmType().getDescriptor(), false);
                             return;
                         }
-                        for (Class<?> aClass1 : aClass.getInterfaces()) {
+                        for (ClassInfo aClass1 : aClass.getInterfaces()) {
                             stack.push(aClass1);
                         }
                         aClass = stack.pop();
@@ -348,6 +357,42 @@ final class FuncCall implements Symbol {
         compiler.writer.lineNumber(atom.getStop().getLine(), new Label());
     }
 
+    /**
+     * Whether this calls a method on a local whose type is only known at runtime. Those calls are linked by
+     * {@code invokedynamic} instead of being resolved against the classpath.
+     */
+    private boolean isDynamic(PythonCompiler compiler) {
+        return atom.NAME() != null && atom.primary() != null && atom.primary().atom() != null
+                && compiler.visit(atom) instanceof PyObjectRef(String name, int lineNo)
+                && compiler.symbols.get(name) instanceof PyVariable variable && OBJECT_TYPE.equals(variable.type(compiler));
+    }
+
+    /**
+     * Calls the method through an inline cache in pylib. The receiver is already on the stack, the arguments are passed
+     * boxed and so is the result.
+     */
+    private void writeDynamic(MethodVisitor mv, PythonCompiler compiler) {
+        if (arguments != null && arguments.args().kwargs() != null) {
+            throw new CompilerException("Keyword arguments are not supported on dynamically typed calls (" + compiler.getLocation(this) + ")");
+        }
+        StringBuilder descriptor = new StringBuilder("(").append(OBJECT_TYPE.getDescriptor());
+        for (PyExpr arg : argExprs) {
+            arg.load(mv, compiler, arg.preload(mv, compiler, false), false);
+            compiler.writer.coerce(OBJECT_TYPE);
+            descriptor.append(OBJECT_TYPE.getDescriptor());
+        }
+        descriptor.append(")").append(OBJECT_TYPE.getDescriptor());
+        compiler.writer.invokeDynamic(name(), descriptor.toString(), JvmWriter.CALL_BOOTSTRAP);
+    }
+
+    /**
+     * Whether this calls a class to construct it, as opposed to a method that shares its name with a class in scope,
+     * such as {@code items.set(...)}.
+     */
+    private boolean isConstructorCall(PythonCompiler compiler, String name) {
+        return atom.primary() == null && compiler.getClassSymbol(name) != null;
+    }
+
     private boolean installArgs(MethodVisitor mv, PythonCompiler compiler, Type type) {
         return installArgs(mv, compiler, type, false);
     }
@@ -355,67 +400,71 @@ final class FuncCall implements Symbol {
     private boolean installArgs(MethodVisitor mv, PythonCompiler compiler, Type type, boolean simulate) {
         if (!compiler.classes.has(type.getClassName())) {
             String name = name();
-            if (compiler.getClassSymbol(name) != null) {
+            if (isConstructorCall(compiler, name)) {
                 name = "<init>";
             }
+            OverloadCache overloads = PythonCompiler.classCache.overloads();
+            OverloadCache.Key key = new OverloadCache.Key(type, name, ((List<PyExpr>) callArgs).stream().map(v -> v.type(compiler)).toList());
+            OverloadCache.Resolution resolution = overloads.arguments(key);
+            if (resolution != null) {
+                compiler.countResolution(true);
+                this.boxing = resolution.boxingCopy();
+                this.paramTypes = resolution.paramTypes();
+                if (!simulate) writeArgs(mv, compiler, (List<PyExpr>) callArgs, this.boxing, this.paramTypes);
+                return true;
+            }
+            compiler.countResolution(false);
             if (name.equals("<init>")) {
-                Class<?> aClass;
+                ClassInfo aClass;
                 try {
-                    aClass = Class.forName(type.getClassName(), false, getClass().getClassLoader());
+                    aClass = compiler.classpath().forName(type.getClassName());
                 } catch (ClassNotFoundException e) {
                     throw compiler.jvmClassNotFound(type.getClassName(), this);
                 }
-                Stack<Class<?>> stack = new Stack<>();
+                Stack<ClassInfo> stack = new Stack<>();
                 stack.push(aClass);
                 List<PyExpr> args = (List<PyExpr>) callArgs;
                 while (!stack.isEmpty()) {
                     find_constructor:
-                    for (Constructor<?> constructor : aClass.getDeclaredConstructors()) {
+                    for (MethodInfo constructor : aClass.getDeclaredConstructors()) {
                         if (constructor.getParameterTypes().length != (((List<PyExpr>) callArgs).size()))
                             continue;
-                        Class<?>[] parameterTypes = constructor.getParameterTypes();
+                        ClassInfo[] parameterTypes = constructor.getParameterTypes();
                         BitSet boxing = new BitSet(parameterTypes.length);
                         for (int i = 0; i < parameterTypes.length; i++) {
                             Type type1 = ((List<PyExpr>) callArgs).get(i).type(compiler);
                             try {
                                 if (!parameterTypes[i].isPrimitive()) {
                                     boxing.set(i);
-                                    if (type1.equals(Type.BYTE_TYPE) && !parameterTypes[i].isAssignableFrom(byte.class)) {
-                                        continue find_constructor;
-                                    } else if (type1.equals(Type.SHORT_TYPE) && !parameterTypes[i].isAssignableFrom(short.class)) {
-                                        continue find_constructor;
-                                    } else if (type1.equals(Type.CHAR_TYPE) && !parameterTypes[i].isAssignableFrom(char.class)) {
-                                        continue find_constructor;
-                                    } else if (type1.equals(Type.INT_TYPE) && !parameterTypes[i].isAssignableFrom(int.class)) {
-                                        continue find_constructor;
-                                    } else if (type1.equals(Type.LONG_TYPE) && !parameterTypes[i].isAssignableFrom(long.class)) {
-                                        continue find_constructor;
-                                    } else if (type1.equals(Type.FLOAT_TYPE) && !parameterTypes[i].isAssignableFrom(float.class)) {
-                                        continue find_constructor;
-                                    } else if (type1.equals(Type.DOUBLE_TYPE) && !parameterTypes[i].isAssignableFrom(double.class)) {
-                                        continue find_constructor;
-                                    } else if (type1.equals(Type.BOOLEAN_TYPE) && !parameterTypes[i].isAssignableFrom(boolean.class)) {
-                                        continue find_constructor;
-                                    } else if (!parameterTypes[i].isAssignableFrom(Class.forName(type1.getClassName().replace('/', '.'), false, getClass().getClassLoader()))) {
+                                    // Primitives are boxed for reference parameters, so they match the parameter through their box
+                                    if (!parameterTypes[i].isAssignableFrom(compiler.classpath().forName(compiler.writer.boxType(type1).getClassName()))) {
                                         continue find_constructor;
                                     }
                                 } else {
                                     boxing.clear(i);
-                                    if (type1.equals(Type.BYTE_TYPE) && !parameterTypes[i].isAssignableFrom(byte.class)) {
+                                    if (JvmWriter.isBigInt(type1)) {
+                                        // An int typed as a Number is only narrowed to a long, failing when it doesn't fit
+                                        if (!parameterTypes[i].isAssignableFrom(ClassInfo.LONG)) {
+                                            continue find_constructor;
+                                        }
+                                    } else if (type1.getSort() == Type.OBJECT || type1.getSort() == Type.ARRAY) {
+                                        // Nothing is unboxed or converted to match a primitive parameter
+                                        continue find_constructor;
+                                    } else if (type1.equals(Type.BYTE_TYPE) && !parameterTypes[i].isAssignableFrom(ClassInfo.BYTE)) {
                                         continue find_constructor;
-                                    } else if (type1.equals(Type.SHORT_TYPE) && !parameterTypes[i].isAssignableFrom(short.class)) {
+                                    } else if (type1.equals(Type.SHORT_TYPE) && !parameterTypes[i].isAssignableFrom(ClassInfo.SHORT)) {
                                         continue find_constructor;
-                                    } else if (type1.equals(Type.CHAR_TYPE) && !parameterTypes[i].isAssignableFrom(char.class)) {
+                                    } else if (type1.equals(Type.CHAR_TYPE) && !parameterTypes[i].isAssignableFrom(ClassInfo.CHAR)) {
                                         continue find_constructor;
-                                    } else if (type1.equals(Type.INT_TYPE) && !parameterTypes[i].isAssignableFrom(int.class)) {
+                                    } else if (type1.equals(Type.INT_TYPE) && !parameterTypes[i].isAssignableFrom(ClassInfo.INT)) {
                                         continue find_constructor;
-                                    } else if (type1.equals(Type.LONG_TYPE) && !parameterTypes[i].isAssignableFrom(long.class)) {
+                                    } else if (type1.equals(Type.LONG_TYPE) && !parameterTypes[i].isAssignableFrom(ClassInfo.LONG)) {
                                         continue find_constructor;
-                                    } else if (type1.equals(Type.FLOAT_TYPE) && !parameterTypes[i].isAssignableFrom(float.class)) {
+                                    } else if (type1.equals(Type.FLOAT_TYPE) && !parameterTypes[i].isAssignableFrom(ClassInfo.FLOAT)) {
                                         continue find_constructor;
-                                    } else if (type1.equals(Type.DOUBLE_TYPE) && !parameterTypes[i].isAssignableFrom(double.class)) {
+                                    } else if (type1.equals(Type.DOUBLE_TYPE) && !parameterTypes[i].isAssignableFrom(ClassInfo.DOUBLE)) {
                                         continue find_constructor;
-                                    } else if (type1.equals(Type.BOOLEAN_TYPE) && !parameterTypes[i].isAssignableFrom(boolean.class)) {
+                                    } else if (type1.equals(Type.BOOLEAN_TYPE) && !parameterTypes[i].isAssignableFrom(ClassInfo.BOOLEAN)) {
                                         continue find_constructor;
                                     }
                                 }
@@ -425,13 +474,14 @@ final class FuncCall implements Symbol {
                         }
                         this.boxing = boxing;
 
-                        if (!simulate) writeArgs(mv, compiler, args, boxing);
+                        this.paramTypes = Arrays.stream(parameterTypes).map(ClassInfo::asmType).toList().toArray(Type[]::new);
 
-                        this.paramTypes = Arrays.stream(parameterTypes).map(Type::getType).toList().toArray(Type[]::new);
+                        if (!simulate) writeArgs(mv, compiler, args, boxing, this.paramTypes);
+                        overloads.putArguments(key, constructor, boxing, this.paramTypes);
                         return true;
                     }
                     if (aClass.getSuperclass() != null) stack.push(aClass.getSuperclass());
-                    for (Class<?> aClass1 : aClass.getInterfaces()) {
+                    for (ClassInfo aClass1 : aClass.getInterfaces()) {
                         stack.push(aClass1);
                     }
                     aClass = stack.pop();
@@ -440,65 +490,58 @@ final class FuncCall implements Symbol {
                 throw compiler.functionNotFound(type, "<<INIT>>", args.stream().map(v -> v.type(compiler)).toList().toArray(Type[]::new), this);
             }
 
-            Class<?> aClass;
+            ClassInfo aClass;
             try {
-                aClass = Class.forName(type.getClassName(), false, getClass().getClassLoader());
+                aClass = compiler.classpath().forName(type.getClassName());
             } catch (ClassNotFoundException e) {
                 throw compiler.jvmClassNotFound(type.getClassName(), this);
             }
-            Stack<Class<?>> stack = new Stack<>();
+            Stack<ClassInfo> stack = new Stack<>();
             stack.push(aClass);
             List<PyExpr> args = (List<PyExpr>) callArgs;
             while (!stack.isEmpty()) {
                 find_method:
-                for (Method method : aClass.getDeclaredMethods()) {
+                for (MethodInfo method : aClass.getDeclaredMethods()) {
                     if (!method.getName().equals(name)) continue;
                     if (method.getParameterTypes().length != (((List<Symbol>) callArgs).size())) {
                         continue;
                     }
-                    Class<?>[] parameterTypes = method.getParameterTypes();
+                    ClassInfo[] parameterTypes = method.getParameterTypes();
                     BitSet boxing = new BitSet(parameterTypes.length);
                     for (int i = 0; i < parameterTypes.length; i++) {
                         Type type1 = ((List<PyExpr>) callArgs).get(i).type(compiler);
                         try {
                             if (!parameterTypes[i].isPrimitive()) {
                                 boxing.set(i);
-                                if (type1.equals(Type.BYTE_TYPE) && !parameterTypes[i].isAssignableFrom(byte.class)) {
-                                    continue find_method;
-                                } else if (type1.equals(Type.SHORT_TYPE) && !parameterTypes[i].isAssignableFrom(short.class)) {
-                                    continue find_method;
-                                } else if (type1.equals(Type.CHAR_TYPE) && !parameterTypes[i].isAssignableFrom(char.class)) {
-                                    continue find_method;
-                                } else if (type1.equals(Type.INT_TYPE) && !parameterTypes[i].isAssignableFrom(int.class)) {
-                                    continue find_method;
-                                } else if (type1.equals(Type.LONG_TYPE) && !parameterTypes[i].isAssignableFrom(long.class)) {
-                                    continue find_method;
-                                } else if (type1.equals(Type.FLOAT_TYPE) && !parameterTypes[i].isAssignableFrom(float.class)) {
-                                    continue find_method;
-                                } else if (type1.equals(Type.DOUBLE_TYPE) && !parameterTypes[i].isAssignableFrom(double.class)) {
-                                    continue find_method;
-                                } else if (type1.equals(Type.BOOLEAN_TYPE) && !parameterTypes[i].isAssignableFrom(boolean.class)) {
-                                    continue find_method;
-                                } else if (!parameterTypes[i].isAssignableFrom(Class.forName(type1.getClassName().replace('/', '.'), false, getClass().getClassLoader()))) {
+                                // Primitives are boxed for reference parameters, so they match the parameter through their box
+                                if (!parameterTypes[i].isAssignableFrom(compiler.classpath().forName(compiler.writer.boxType(type1).getClassName()))) {
                                     continue find_method;
                                 }
                             } else {
                                 boxing.clear(i);
-                                if (type1.equals(Type.BYTE_TYPE) && !parameterTypes[i].isAssignableFrom(byte.class)) {
+                                if (JvmWriter.isBigInt(type1)) {
+                                    // An int typed as a Number is only narrowed to a long, failing when it doesn't fit
+                                    if (!parameterTypes[i].isAssignableFrom(ClassInfo.LONG)) {
+                                        continue find_method;
+                                    }
+                                } else if (type1.getSort() == Type.OBJECT || type1.getSort() == Type.ARRAY) {
+                                    // Nothing is unboxed or converted to match a primitive parameter
                                     continue find_method;
-                                } else if (type1.equals(Type.SHORT_TYPE) && !parameterTypes[i].isAssignableFrom(short.class)) {
+                                } else if (type1.equals(Type.BYTE_TYPE) && !parameterTypes[i].isAssignableFrom(ClassInfo.BYTE)) {
                                     continue find_method;
-                                } else if (type1.equals(Type.CHAR_TYPE) && !parameterTypes[i].isAssignableFrom(char.class)) {
+                                } else if (type1.equals(Type.SHORT_TYPE) && !parameterTypes[i].isAssignableFrom(ClassInfo.SHORT)) {
                                     continue find_method;
-                                } else if (type1.equals(Type.INT_TYPE) && !parameterTypes[i].isAssignableFrom(int.class)) {
+                                } else if (type1.equals(Type.CHAR_TYPE) && !parameterTypes[i].isAssignableFrom(ClassInfo.CHAR)) {
                                     continue find_method;
-                                } else if (type1.equals(Type.LONG_TYPE) && !parameterTypes[i].isAssignableFrom(long.class)) {
+                                } else if (type1.equals(Type.INT_TYPE) && !parameterTypes[i].isAssignableFrom(ClassInfo.INT)) {
                                     continue find_method;
-                                } else if (type1.equals(Type.FLOAT_TYPE) && !parameterTypes[i].isAssignableFrom(float.class)) {
+                                } else if (type1.equals(Type.LONG_TYPE) && !parameterTypes[i].isAssignableFrom(ClassInfo.LONG)) {
                                     continue find_method;
-                                } else if (type1.equals(Type.DOUBLE_TYPE) && !parameterTypes[i].isAssignableFrom(double.class)) {
+                                } else if (type1.equals(Type.FLOAT_TYPE) && !parameterTypes[i].isAssignableFrom(ClassInfo.FLOAT)) {
                                     continue find_method;
-                                } else if (type1.equals(Type.BOOLEAN_TYPE) && !parameterTypes[i].isAssignableFrom(boolean.class)) {
+                                } else if (type1.equals(Type.DOUBLE_TYPE) && !parameterTypes[i].isAssignableFrom(ClassInfo.DOUBLE)) {
+                                    continue find_method;
+                                } else if (type1.equals(Type.BOOLEAN_TYPE) && !parameterTypes[i].isAssignableFrom(ClassInfo.BOOLEAN)) {
                                     continue find_method;
                                 }
                             }
@@ -509,13 +552,14 @@ final class FuncCall implements Symbol {
 
                     this.boxing = boxing;
 
-                    if (!simulate) writeArgs(mv, compiler, args, boxing);
+                    this.paramTypes = Arrays.stream(parameterTypes).map(ClassInfo::asmType).toList().toArray(Type[]::new);
 
-                    this.paramTypes = Arrays.stream(parameterTypes).map(Type::getType).toList().toArray(Type[]::new);
+                    if (!simulate) writeArgs(mv, compiler, args, boxing, this.paramTypes);
+                    overloads.putArguments(key, method, boxing, this.paramTypes);
                     return true;
                 }
                 if (aClass.getSuperclass() != null) stack.push(aClass.getSuperclass());
-                for (Class<?> aClass1 : aClass.getInterfaces()) {
+                for (ClassInfo aClass1 : aClass.getInterfaces()) {
                     stack.push(aClass1);
                 }
                 aClass = stack.pop();
@@ -535,7 +579,7 @@ final class FuncCall implements Symbol {
         return false;
     }
 
-    private static void writeArgs(MethodVisitor mv, PythonCompiler compiler, List<PyExpr> args, BitSet boxing) {
+    private static void writeArgs(MethodVisitor mv, PythonCompiler compiler, List<PyExpr> args, BitSet boxing, Type[] paramTypes) {
         for (int i = 0, argsSize = args.size(); i < argsSize; i++) {
             PyExpr expr = args.get(i);
             boolean shouldBeBoxed = boxing.get(i);
@@ -564,6 +608,8 @@ final class FuncCall implements Symbol {
                 } else if (type1 == Type.BYTE_TYPE) {
                     compiler.writer.invokeStatic("java/lang/Byte", "valueOf", "(B)Ljava/lang/Byte;", false);
                 }
+            } else if (JvmWriter.isBigInt(type1) && paramTypes != null) {
+                compiler.writer.coerce(paramTypes[i]);
             }
         }
     }
@@ -576,7 +622,7 @@ final class FuncCall implements Symbol {
         if (!(callArgs instanceof List)) {
             throw new RuntimeException("arguments not supported for:\n" + arguments.getText());
         }
-        setupArgs(mv, compiler, (List<?>) callArgs);
+        argExprs = setupArgs(mv, compiler, (List<?>) callArgs);
     }
 
     private String argDesc(PythonCompiler compiler, Object callArgs) {
@@ -632,6 +678,9 @@ final class FuncCall implements Symbol {
                 compiler.flags.clear(PythonCompiler.F_DYN_CALL);
             }
         }
+        if (isDynamic(compiler)) {
+            return OBJECT_TYPE;
+        }
 
         Object visit = compiler.visit(atom);
         switch (visit) {
@@ -640,6 +689,9 @@ final class FuncCall implements Symbol {
                 if (symbol instanceof PyBuiltinFunction func) {
                     return func.type(compiler);
                 }
+                if (symbol instanceof PyModuleFunction function) {
+                    return function.returnType();
+                }
             }
             case PyBuiltinFunction func -> {
                 return ((PyBuiltinFunction) visit).type(compiler);
@@ -652,14 +704,23 @@ final class FuncCall implements Symbol {
         if (owner.getSort() == Type.ARRAY) owner = componentTypeR(owner);
         String substring = owner.getClassName();
         String name = name();
-        if (compiler.getClassSymbol(name) != null) {
+        if (isConstructorCall(compiler, name)) {
             name = "<init>";
         }
         String desc = argDesc(compiler, callArgs);
         ImmutableList<Type> parse = Descriptor.parse(desc);
-        Class<?> aClass;
+        OverloadCache overloads = PythonCompiler.classCache.overloads();
+        OverloadCache.Key key = new OverloadCache.Key(owner, name, parse);
+        OverloadCache.Resolution resolution = overloads.result(key);
+        if (resolution != null) {
+            compiler.countResolution(true);
+            if (resolution.member().isConstructor()) this.constructor = resolution.member();
+            else this.method = resolution.member();
+            return resolution.returnType();
+        }
+        ClassInfo aClass;
         try {
-            aClass = Class.forName(substring, false, getClass().getClassLoader());
+            aClass = compiler.classpath().forName(substring);
         } catch (ClassNotFoundException e) {
             PyClass symbol = compiler.classes.get(substring);
             if (symbol != null) {
@@ -677,39 +738,48 @@ final class FuncCall implements Symbol {
             }
             throw compiler.typeNotFound(substring, this);
         }
+        compiler.countResolution(false);
         if (name.equals("<init>")) {
-            for (Constructor<?> constructor : aClass.getDeclaredConstructors()) {
+            for (MethodInfo constructor : aClass.getDeclaredConstructors()) {
                 @Nullable Type owner1 = determineConstructor(compiler, constructor, parse, null);
-                if (owner1 != null) return owner1;
+                if (owner1 != null) {
+                    overloads.putResult(key, constructor, owner1);
+                    return owner1;
+                }
             }
 
-            for (Constructor<?> constructor : aClass.getConstructors()) {
+            for (MethodInfo constructor : aClass.getConstructors()) {
                 @Nullable Type owner1 = determineConstructor(compiler, constructor, parse, owner);
-                if (owner1 != null) return owner1;
+                if (owner1 != null) {
+                    overloads.putResult(key, constructor, owner1);
+                    return owner1;
+                }
             }
 
             throw new CompilerException("Java constructor not found in " + substring + " (" + compiler.getLocation(this) + ")");
         }
-        Stack<Class<?>> stack = new Stack<>();
+        Stack<ClassInfo> stack = new Stack<>();
         stack.push(aClass);
 
         while (!stack.isEmpty()) {
-            if (aClass != Object.class && aClass.getSuperclass() != null) stack.push(aClass.getSuperclass());
-            for (Class<?> anInterface : aClass.getInterfaces()) {
+            if (!aClass.getName().equals("java.lang.Object") && aClass.getSuperclass() != null) stack.push(aClass.getSuperclass());
+            for (ClassInfo anInterface : aClass.getInterfaces()) {
                 stack.push(anInterface);
             }
 
-            for (Method method : aClass.getDeclaredMethods()) {
+            for (MethodInfo method : aClass.getDeclaredMethods()) {
                 @Nullable Type method1 = determineMethod(compiler, method, name, parse, null);
                 if (method1 != null) {
                     this.method = method;
+                    overloads.putResult(key, method, method1);
                     return method1;
                 }
             }
-            for (Method method : aClass.getMethods()) {
+            for (MethodInfo method : aClass.getMethods()) {
                 @Nullable Type method1 = determineMethod(compiler, method, name, parse, owner);
                 if (method1 != null) {
                     this.method = method;
+                    overloads.putResult(key, method, method1);
                     return method1;
                 }
             }
@@ -718,10 +788,10 @@ final class FuncCall implements Symbol {
         throw new CompilerException("Java function '" + name + "' not found with arguments '" + parse.stream().map(Type::getClassName).collect(Collectors.joining(", ")) + "' in " + substring + " (" + compiler.getLocation(this) + ")");
     }
 
-    private @Nullable Type determineConstructor(PythonCompiler compiler, Constructor<?> constructor, ImmutableList<Type> parse, Type owner) {
+    private @Nullable Type determineConstructor(PythonCompiler compiler, MethodInfo constructor, ImmutableList<Type> parse, Type owner) {
         StringBuilder stringBuilder = new StringBuilder();
         if (constructor.getParameterCount() != parse.size()) return null;
-        @NotNull Class<?>[] parameterTypes = constructor.getParameterTypes();
+        @NotNull ClassInfo[] parameterTypes = constructor.getParameterTypes();
         boolean passed = true;
         for (int i = 0, parameterTypesLength = parameterTypes.length; i < parameterTypesLength; i++) {
             try {
@@ -752,15 +822,15 @@ final class FuncCall implements Symbol {
 
         if (passed) {
             this.function = function;
-            return Type.getReturnType(method);
+            return method.asmType().getReturnType();
         }
         return null;
     }
 
-    private @Nullable Type determineMethod(PythonCompiler compiler, Method method, String name, ImmutableList<Type> parse, Type owner) {
+    private @Nullable Type determineMethod(PythonCompiler compiler, MethodInfo method, String name, ImmutableList<Type> parse, Type owner) {
         if (!method.getName().equals(name)) return null;
         StringBuilder sb = new StringBuilder();
-        @NotNull Class<?>[] parameterTypes = method.getParameterTypes();
+        @NotNull ClassInfo[] parameterTypes = method.getParameterTypes();
         boolean passed = true;
         for (int i = 0, parameterTypesLength = parameterTypes.length; i < parameterTypesLength; i++) {
             try {
@@ -772,7 +842,7 @@ final class FuncCall implements Symbol {
 
         if (passed) {
             this.method = method;
-            return Type.getReturnType(method);
+            return method.asmType().getReturnType();
         }
         return null;
     }
@@ -804,7 +874,7 @@ final class FuncCall implements Symbol {
                 passed = false;
             }
         } else if (paramType.isPrimitive()) {
-            if (!paramType.type(compiler).equals(parse.get(i))) {
+            if (!matchesPrimitive(paramType.type(compiler), parse.get(i))) {
                 return false;
             }
         } else {
@@ -817,10 +887,10 @@ final class FuncCall implements Symbol {
         return passed;
     }
 
-    private boolean doesMethodPass(PythonCompiler compiler, @NotNull Class<?> @NotNull [] parameterTypes, int i, ImmutableList<Type> parse, boolean passed, StringBuilder sb) throws ClassNotFoundException {
+    private boolean doesMethodPass(PythonCompiler compiler, @NotNull ClassInfo @NotNull [] parameterTypes, int i, ImmutableList<Type> parse, boolean passed, StringBuilder sb) throws ClassNotFoundException {
         if (i >= parse.size()) return false;
 
-        Class<?> paramType = parameterTypes[i];
+        ClassInfo paramType = parameterTypes[i];
         if (!paramType.isPrimitive() && compiler.classes.has(paramType.getName())) {
             Type type = parse.get(i);
             PyClass pyClass = compiler.classes.get(type.getClassName());
@@ -840,16 +910,16 @@ final class FuncCall implements Symbol {
                 }
                 return passed;
             }
-            if (!pyClass.doesInherit(compiler, Type.getType(paramType))) {
+            if (!pyClass.doesInherit(compiler, paramType.asmType())) {
                 passed = false;
             }
         } else if (paramType.isPrimitive()) {
-            if (!Type.getType(paramType).equals(parse.get(i))) {
+            if (!matchesPrimitive(paramType.asmType(), parse.get(i))) {
                 return false;
             }
         } else {
             try {
-                var checkAgainst = Class.forName(parse.get(i).getClassName(), false, getClass().getClassLoader());
+                var checkAgainst = compiler.classpath().forName(parse.get(i).getClassName());
                 if (!paramType.isAssignableFrom(checkAgainst)) {
                     passed = false;
                     return passed;
@@ -862,23 +932,22 @@ final class FuncCall implements Symbol {
         return passed;
     }
 
-    private boolean doesConstructorPass(PythonCompiler compiler, @NotNull Class<?> @NotNull [] parameterTypes, int i, ImmutableList<Type> parse, boolean passed, StringBuilder sb) throws ClassNotFoundException {
-        Class<?> paramType = parameterTypes[i];
+    private boolean doesConstructorPass(PythonCompiler compiler, @NotNull ClassInfo @NotNull [] parameterTypes, int i, ImmutableList<Type> parse, boolean passed, StringBuilder sb) throws ClassNotFoundException {
+        ClassInfo paramType = parameterTypes[i];
         String className = parse.get(i).getClassName();
         if (!paramType.isPrimitive() && compiler.classes.has(className)) {
             PyClass pyClass = compiler.classes.get(paramType.getName());
-            if (!pyClass.doesInherit(compiler, Type.getType(paramType))) {
+            if (!pyClass.doesInherit(compiler, paramType.asmType())) {
                 passed = false;
             }
         } else if (paramType.isPrimitive()) {
-            var checkAgainst = Class.forName(parse.get(i).getClassName(), false, getClass().getClassLoader());
-            if (!Type.getType(paramType).equals(parse.get(i))) {
+            if (!matchesPrimitive(paramType.asmType(), parse.get(i))) {
                 return false;
             }
             sb.append(paramType.descriptorString());
         } else {
             try {
-                var checkAgainst = Class.forName(parse.get(i).getClassName(), false, getClass().getClassLoader());
+                var checkAgainst = compiler.classpath().forName(parse.get(i).getClassName());
                 if (!paramType.isAssignableFrom(checkAgainst)) {
                     passed = false;
                     return passed;
@@ -891,13 +960,21 @@ final class FuncCall implements Symbol {
         return passed;
     }
 
+    /**
+     * Whether an argument can be passed for a primitive parameter, where an int typed as a {@code Number} is narrowed to
+     * a long.
+     */
+    private static boolean matchesPrimitive(Type paramType, Type argType) {
+        return paramType.equals(argType) || paramType.equals(Type.LONG_TYPE) && JvmWriter.isBigInt(argType);
+    }
+
     private Type componentTypeR(Type owner) {
         owner = owner.getElementType();
         if (owner.getSort() == Type.ARRAY) owner = componentTypeR(owner);
         return owner;
     }
 
-    private void setupArgs(MethodVisitor mv, PythonCompiler compiler, List<?> visit1) {
+    private List<PyExpr> setupArgs(MethodVisitor mv, PythonCompiler compiler, List<?> visit1) {
         List<PyExpr> exprs = new ArrayList<>();
         for (int j = 0, objectsSize = visit1.size(); j < objectsSize; j++) {
             Object o = visit1.get(j);
@@ -923,13 +1000,7 @@ final class FuncCall implements Symbol {
             }
         }
 
-        Object[] preloaded = new Object[exprs.size()];
-        for (PyExpr expr : exprs) {
-            // What? TODO
-//                expr.load(mv, compiler, null, false);
-        }
-
-//            createArray(mv, compiler, exprs, preloaded);
+        return exprs;
     }
 
     private void createArray(MethodVisitor mv, PythonCompiler compiler, List<PyExpr> exprs, Object[] preloaded) {
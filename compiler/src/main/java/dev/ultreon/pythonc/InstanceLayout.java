@@ -0,0 +1,169 @@
+package dev.ultreon.pythonc;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.Type;
+
+import java.util.*;
+
+/**
+ * The instance fields of a class, collected before its body is compiled so every method sees all of them: attributes
+ * annotated in the class body ({@code x: int}), the names listed in {@code __slots__} and every attribute assigned on
+ * {@code self} in one of its methods. Annotated attributes get the annotated type, the others are {@code Object}.
+ * <p>
+ * Only attributes outside of these end up in the lazily allocated {@code __dict__}, which classes declaring
+ * {@code __slots__} don't have at all.
+ */
+final class InstanceLayout {
+    private static final Type OBJECT = Type.getType(Object.class);
+
+    private final PythonCompiler compiler;
+    private final String className;
+    private final Map<String, Type> fields = new LinkedHashMap<>();
+    private final Set<String> annotated = new HashSet<>();
+    private final Map<String, ParserRuleContext> assigned = new LinkedHashMap<>();
+    private final Set<PythonParser.AssignmentContext> declarations = new HashSet<>();
+    private @Nullable Set<String> slots;
+
+    private InstanceLayout(PythonCompiler compiler, String className) {
+        this.compiler = compiler;
+        this.className = className;
+    }
+
+    static InstanceLayout collect(PythonCompiler compiler, PythonParser.Class_def_rawContext ctx) {
+        InstanceLayout layout = new InstanceLayout(compiler, ctx.NAME().getText());
+        for (ParseTree statement : statements(ctx.block())) {
+            if (statement instanceof PythonParser.AssignmentContext assignment) {
+                layout.classAttribute(assignment);
+            } else if (statement instanceof PythonParser.Function_def_rawContext function) {
+                layout.method(function.block());
+            }
+        }
+        if (layout.slots != null) {
+            for (Map.Entry<String, ParserRuleContext> entry : layout.assigned.entrySet()) {
+                if (!layout.slots.contains(entry.getKey()) && !layout.annotated.contains(entry.getKey())) {
+                    throw new CompilerException("'" + layout.className + "' object has no attribute '" + entry.getKey() + "' in its __slots__ " + compiler.getLocation(entry.getValue()));
+                }
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * The fields in declaration order.
+     */
+    Map<String, Type> fields() {
+        return fields;
+    }
+
+    boolean hasDict() {
+        return slots == null;
+    }
+
+    /**
+     * Whether the class body statement only declared instance fields, and so has nothing left to compile.
+     */
+    boolean declares(PythonParser.AssignmentContext ctx) {
+        return declarations.contains(ctx);
+    }
+
+    private void classAttribute(PythonParser.AssignmentContext ctx) {
+        if (ctx.NAME() != null && ctx.expression() != null && ctx.annotated_rhs() == null) {
+            declare(ctx.NAME().getText(), compiler.annotationType(ctx.expression()));
+            declarations.add(ctx);
+            return;
+        }
+        if (ctx.star_targets().size() == 1 && ctx.star_expressions() != null
+                && "__slots__".equals(LocalTypes.name(ctx.star_targets().getFirst().star_target().getFirst()))) {
+            slots = new LinkedHashSet<>();
+            collectStrings(ctx.star_expressions());
+            for (String slot : slots) {
+                declare(slot, null);
+            }
+            declarations.add(ctx);
+        }
+    }
+
+    private void collectStrings(ParseTree tree) {
+        if (tree instanceof PythonParser.StringContext string) {
+            slots.add((String) compiler.visitString(string));
+            return;
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            collectStrings(tree.getChild(i));
+        }
+    }
+
+    private void method(ParseTree tree) {
+        if (tree instanceof PythonParser.Class_def_rawContext || tree instanceof PythonParser.Function_def_rawContext) {
+            // Nested definitions have a self of their own, if any
+            return;
+        }
+        if (tree instanceof PythonParser.AssignmentContext ctx) {
+            PythonParser.Single_subscript_attribute_targetContext annotatedTarget = ctx.single_subscript_attribute_target();
+            if (annotatedTarget != null && annotatedTarget.NAME() != null && isSelf(annotatedTarget.t_primary())) {
+                assign(annotatedTarget.NAME().getText(), compiler.annotationType(ctx.expression()), ctx);
+            }
+            for (PythonParser.Star_targetsContext targets : ctx.star_targets()) {
+                for (PythonParser.Star_targetContext target : targets.star_target()) {
+                    PythonParser.Target_with_star_atomContext attribute = target.target_with_star_atom();
+                    if (attribute != null && attribute.NAME() != null && isSelf(attribute.t_primary())) {
+                        assign(attribute.NAME().getText(), null, ctx);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            method(tree.getChild(i));
+        }
+    }
+
+    private void assign(String name, @Nullable Type type, ParserRuleContext ctx) {
+        assigned.putIfAbsent(name, ctx);
+        declare(name, type);
+    }
+
+    private void declare(String name, @Nullable Type type) {
+        if (type == null) {
+            fields.putIfAbsent(name, OBJECT);
+            return;
+        }
+        if (annotated.add(name)) {
+            fields.put(name, type);
+        } else if (!fields.get(name).equals(type)) {
+            throw new CompilerException("Attribute '" + name + "' of '" + className + "' is annotated as both " + fields.get(name).getClassName() + " and " + type.getClassName());
+        }
+    }
+
+    private static boolean isSelf(@Nullable PythonParser.T_primaryContext ctx) {
+        return ctx != null && ctx.atom() != null && ctx.atom().NAME() != null && ctx.atom().NAME().getText().equals("self");
+    }
+
+    /**
+     * The assignments and function definitions directly in a class body.
+     */
+    private static List<ParseTree> statements(PythonParser.BlockContext block) {
+        List<ParseTree> statements = new ArrayList<>();
+        if (block.simple_stmts() != null) {
+            simpleStatements(block.simple_stmts(), statements);
+            return statements;
+        }
+        for (PythonParser.StatementContext statement : block.statements().statement()) {
+            if (statement.simple_stmts() != null) {
+                simpleStatements(statement.simple_stmts(), statements);
+            } else if (statement.compound_stmt().function_def() != null) {
+                statements.add(statement.compound_stmt().function_def().function_def_raw());
+            }
+        }
+        return statements;
+    }
+
+    private static void simpleStatements(PythonParser.Simple_stmtsContext ctx, List<ParseTree> statements) {
+        for (PythonParser.Simple_stmtContext stmt : ctx.simple_stmt()) {
+            if (stmt.assignment() != null) {
+                statements.add(stmt.assignment());
+            }
+        }
+    }
+}
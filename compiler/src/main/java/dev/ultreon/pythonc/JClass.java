@@ -5,23 +5,20 @@ import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.*;
 
 final class JClass implements JvmClass {
     private final String className;
     private final Type asmType;
-    private final Class<?> type;
+    private final ClassInfo type;
     private String alias;
     private final HashMap<String, JvmField> fields = new HashMap<>();
     private final Map<String, List<JvmFunction>> functions = new HashMap<>();
 
-    JClass(String className, Class<?> type) {
+    JClass(String className, ClassInfo type) {
         this.className = className;
-        this.asmType = Type.getObjectType(className.replace(".", "/"));
+        this.asmType = type.asmType();
         this.alias = alias;
         this.type = type;
     }
@@ -41,7 +38,7 @@ final class JClass implements JvmClass {
         return asmType;
     }
 
-    public Class<?> getType() {
+    public ClassInfo getType() {
         return type;
     }
 
@@ -67,7 +64,7 @@ final class JClass implements JvmClass {
 
     public boolean isInterface(PythonCompiler compiler) {
         try {
-            Class<?> aClass = Class.forName(className.replace("/", "."), false, getClass().getClassLoader());
+            ClassInfo aClass = PythonCompiler.classCache.classpath().forName(className.replace("/", "."));
             return aClass.isInterface();
         } catch (ClassNotFoundException e) {
             throw new CompilerException("JVM Class '" + className + "' not found (" + compiler.getLocation(this) + ")");
@@ -100,8 +97,7 @@ final class JClass implements JvmClass {
 
     @Override
     public JvmFunction constructor(PythonCompiler compiler, Type[] paramTypes) {
-        Method method;
-        Constructor<?>[] constructors = type.getConstructors();
+        MethodInfo[] constructors = type.getConstructors();
         JvmClass[] ourParamTypes = new JvmClass[paramTypes.length];
         for (int i = 0, paramTypesLength = paramTypes.length; i < paramTypesLength; i++) {
             Type paramType = paramTypes[i];
@@ -110,19 +106,18 @@ final class JClass implements JvmClass {
             ourParamTypes[i] = PythonCompiler.classCache.get(paramType);
         }
 
-        Constructor<?> theConstructor;
         methodLoop:
-        for (Constructor<?> constructor1 : constructors) {
-            @NotNull Class<?>[] parameterTypes = constructor1.getParameterTypes();
+        for (MethodInfo constructor1 : constructors) {
+            @NotNull ClassInfo[] parameterTypes = constructor1.getParameterTypes();
             for (int i = 0, parameterTypesLength = parameterTypes.length; i < parameterTypesLength; i++) {
-                Class<?> theParamType = parameterTypes[i];
-                if (!(PythonCompiler.classCache.load(compiler, Type.getType(theParamType))))
+                ClassInfo theParamType = parameterTypes[i];
+                if (!(PythonCompiler.classCache.load(compiler, theParamType.asmType())))
                     throw new CompilerException("Class '" + theParamType.getName() + "' not found (" + compiler.getLocation(this) + ")");
 
                 if (i > ourParamTypes.length - 1) {
                     continue methodLoop;
                 }
-                if (!ourParamTypes[i].doesInherit(compiler, Type.getType(theParamType))) {
+                if (!ourParamTypes[i].doesInherit(compiler, theParamType.asmType())) {
                     continue methodLoop;
                 }
             }
@@ -141,8 +136,7 @@ final class JClass implements JvmClass {
 
     @Override
     public @Nullable JvmFunction function(PythonCompiler compiler, String name, Type[] paramTypes) {
-        Method method;
-        Method[] methodsByName = ClassUtils.getMethodsByName(type, name);
+        MethodInfo[] methodsByName = ClassUtils.getMethodsByName(type, name);
         JvmClass[] ourParamTypes = new JvmClass[paramTypes.length];
         for (int i = 0, paramTypesLength = paramTypes.length; i < paramTypesLength; i++) {
             Type paramType = paramTypes[i];
@@ -151,16 +145,15 @@ final class JClass implements JvmClass {
             ourParamTypes[i] = PythonCompiler.classCache.get(paramType);
         }
 
-        Method theMethod;
         methodLoop:
-        for (Method method1 : methodsByName) {
-            @NotNull Class<?>[] parameterTypes = method1.getParameterTypes();
+        for (MethodInfo method1 : methodsByName) {
+            @NotNull ClassInfo[] parameterTypes = method1.getParameterTypes();
             for (int i = 0, parameterTypesLength = parameterTypes.length; i < parameterTypesLength; i++) {
-                Class<?> theParamType = parameterTypes[i];
-                if (!(PythonCompiler.classCache.load(compiler, Type.getType(theParamType))))
+                ClassInfo theParamType = parameterTypes[i];
+                if (!(PythonCompiler.classCache.load(compiler, theParamType.asmType())))
                     throw new CompilerException("Class '" + theParamType.getName() + "' not found (" + compiler.getLocation(this) + ")");
 
-                if (!ourParamTypes[i].doesInherit(compiler, Type.getType(theParamType))) {
+                if (!ourParamTypes[i].doesInherit(compiler, theParamType.asmType())) {
                     continue methodLoop;
                 }
             }
@@ -180,29 +173,29 @@ final class JClass implements JvmClass {
 
     @Override
     public @Nullable JvmField field(PythonCompiler compiler, String name) {
-        Field field;
+        FieldInfo field;
         try {
             field = this.type.getField(name);
         } catch (NoSuchFieldException e) {
             return null;
         }
-        Class<?> type1 = field.getType();
+        ClassInfo type1 = field.getType();
         if (Modifier.isStatic(field.getModifiers())) {
             if (type1.isPrimitive()) {
-                Type asmType = Type.getType(type1);
-                Field finalField = field;
+                Type asmType = type1.asmType();
+                FieldInfo finalField = field;
                 return fields.computeIfAbsent(name, k -> new JField(this, finalField, name, asmType));
             }
-            Field finalField = field;
-            return fields.computeIfAbsent(name, k -> new JField(this, finalField, name, Type.getType(type1)));
+            FieldInfo finalField = field;
+            return fields.computeIfAbsent(name, k -> new JField(this, finalField, name, type1.asmType()));
         }
         if (type1.isPrimitive()) {
-            Type asmType = Type.getType(type1);
-            Field finalField1 = field;
+            Type asmType = type1.asmType();
+            FieldInfo finalField1 = field;
             return fields.computeIfAbsent(name, k -> new JField(this, finalField1, name, asmType));
         } else {
-            Field finalField2 = field;
-            return fields.computeIfAbsent(name, k -> new JField(this, finalField2, name, Type.getType(type1)));
+            FieldInfo finalField2 = field;
+            return fields.computeIfAbsent(name, k -> new JField(this, finalField2, name, type1.asmType()));
         }
     }
 
@@ -3,17 +3,15 @@ package dev.ultreon.pythonc;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
 import static org.objectweb.asm.Opcodes.*;
 
 public class JConstructor implements JvmFunction, JvmConstructor {
     public String name;
-    public Constructor<?> constructor;
-    public Class<?> owner;
-    public Class<?>[] paramTypes;
+    public MethodInfo constructor;
+    public ClassInfo owner;
+    public ClassInfo[] paramTypes;
     private JvmClass ownerClass;
     private JvmClass[] paramClasses;
     private JvmClass returnClass;
@@ -21,7 +19,7 @@ public class JConstructor implements JvmFunction, JvmConstructor {
     private final int lineNo;
     private final int columnNo;
 
-    public JConstructor(String name, Constructor<?> constructor, int lineNo, int columnNo) {
+    public JConstructor(String name, MethodInfo constructor, int lineNo, int columnNo) {
         super();
         this.name = name;
         this.constructor = constructor;
@@ -38,7 +36,7 @@ public class JConstructor implements JvmFunction, JvmConstructor {
 
     @Override
     public Type returnType(PythonCompiler compiler) {
-        return Type.getType(owner);
+        return owner.asmType();
     }
 
     @Override
@@ -54,7 +52,7 @@ public class JConstructor implements JvmFunction, JvmConstructor {
         if (this.paramTypesAsm != null) return this.paramTypesAsm;
         Type[] types = new Type[paramTypes.length];
         for (int i = 0; i < paramTypes.length; i++) {
-            types[i] = Type.getType(paramTypes[i]);
+            types[i] = paramTypes[i].asmType();
         }
         return this.paramTypesAsm = types;
     }
@@ -4,16 +4,15 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 
 public class JField implements JvmField {
     private final JClass jClass;
-    private final Field field;
+    private final FieldInfo field;
     private final String name;
     private final Type type1;
 
-    public JField(JClass jClass, Field field, String name, Type type1) {
+    public JField(JClass jClass, FieldInfo field, String name, Type type1) {
         this.jClass = jClass;
         this.field = field;
         this.name = name;
@@ -4,7 +4,6 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
-import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
 import static org.objectweb.asm.Opcodes.INVOKESTATIC;
@@ -12,10 +11,10 @@ import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
 
 public class JFunction implements JvmFunction {
     public String name;
-    public Method method;
-    public Class<?> owner;
-    public Class<?>[] paramTypes;
-    public Class<?> returnType;
+    public MethodInfo method;
+    public ClassInfo owner;
+    public ClassInfo[] paramTypes;
+    public ClassInfo returnType;
     private JvmClass ownerClass;
     private JvmClass[] paramClasses;
     private JvmClass returnClass;
@@ -23,7 +22,7 @@ public class JFunction implements JvmFunction {
     private final int lineNo;
     private final int columnNo;
 
-    public JFunction(String name, Method method, int lineNo, int columnNo) {
+    public JFunction(String name, MethodInfo method, int lineNo, int columnNo) {
         this.name = name;
         this.method = method;
         this.owner = method.getDeclaringClass();
@@ -40,7 +39,7 @@ public class JFunction implements JvmFunction {
 
     @Override
     public Type returnType(PythonCompiler compiler) {
-        return Type.getType(returnType);
+        return returnType.asmType();
     }
 
     @Override
@@ -56,7 +55,7 @@ public class JFunction implements JvmFunction {
         if (this.paramTypesAsm != null) return this.paramTypesAsm;
         Type[] types = new Type[paramTypes.length];
         for (int i = 0; i < paramTypes.length; i++) {
-            types[i] = Type.getType(paramTypes[i]);
+            types[i] = paramTypes[i].asmType();
         }
         return this.paramTypesAsm = types;
     }
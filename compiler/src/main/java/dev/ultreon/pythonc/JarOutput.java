@@ -0,0 +1,122 @@
+package dev.ultreon.pythonc;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+/**
+ * Packs the output into a jar when closed. Entries are written in sorted order, so the jar doesn't depend on the
+ * order workers finish in. That means compiled classes stay in memory until {@link #close()}, the jar costs about its
+ * uncompressed size in heap. Entries reused from the previous jar are only copied over while writing.
+ */
+public class JarOutput implements CompileOutput {
+    private final Path jarFile;
+    private final int level;
+    // A null value is an entry to copy from the previous jar
+    private final Map<String, byte[]> entries = new TreeMap<>();
+    private ZipFile previous;
+    private boolean closed;
+
+    public JarOutput(Path jarFile, int level) {
+        this.jarFile = jarFile;
+        this.level = level;
+    }
+
+    @Override
+    public synchronized void write(String name, byte[] bytes) {
+        if (closed) {
+            throw new IllegalStateException("Jar output already closed: " + jarFile);
+        }
+        entries.put(name.replace('\\', '/'), bytes);
+    }
+
+    @Override
+    public synchronized boolean reuse(String name) throws IOException {
+        if (previous == null) {
+            if (!Files.isRegularFile(jarFile)) return false;
+            previous = new ZipFile(jarFile.toFile());
+        }
+        if (closed) {
+            throw new IllegalStateException("Jar output already closed: " + jarFile);
+        }
+        if (previous.getEntry(name) == null) return false;
+        entries.put(name, null);
+        return true;
+    }
+
+    @Override
+    public synchronized void delete(String name) {
+        entries.remove(name);
+    }
+
+    @Override
+    public synchronized void retain(Set<String> names) {
+        entries.keySet().removeIf(name -> !names.contains(name));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+
+        Path parent = jarFile.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        // Reused entries are still read from the previous jar, so it can't be overwritten in place
+        Path temp = jarFile.resolveSibling(jarFile.getFileName() + ".tmp");
+
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(new Attributes.Name("Created-By"), "pythonc");
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp));
+             JarOutputStream jar = new JarOutputStream(out, manifest)) {
+            jar.setLevel(level);
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(JarFile.MANIFEST_NAME)) continue;
+                jar.putNextEntry(new JarEntry(entry.getKey()));
+                if (entry.getValue() != null) {
+                    jar.write(entry.getValue());
+                } else {
+                    try (InputStream in = previous.getInputStream(previous.getEntry(entry.getKey()))) {
+                        in.transferTo(jar);
+                    }
+                }
+                jar.closeEntry();
+            }
+        } finally {
+            if (previous != null) {
+                previous.close();
+                previous = null;
+            }
+            entries.clear();
+        }
+        Files.move(temp, jarFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static void pack(Path directory, Path jarFile, int level) throws IOException {
+        JarOutput output = new JarOutput(jarFile, level);
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(Files::isRegularFile).toList();
+        }
+        for (Path file : files) {
+            output.write(directory.relativize(file).toString(), Files.readAllBytes(file));
+        }
+        output.close();
+    }
+}
@@ -1,12 +1,42 @@
 package dev.ultreon.pythonc;
 
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Type;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JvmClassCache {
-    private final Map<Type, JvmClass> byType = new HashMap<>();
+    private final Map<Type, JvmClass> byType = new ConcurrentHashMap<>();
+    private final Map<String, CompiledClass> compiled = new ConcurrentHashMap<>();
+    private final OverloadCache overloads = new OverloadCache();
+    private volatile ClasspathIndex classpath = ClasspathIndex.system();
+
+    public record CompiledClass(int access, @Nullable String superName, String[] interfaces) {
+
+    }
+
+    public void addCompiled(String internalName, int access, @Nullable String superName, String[] interfaces) {
+        compiled.put(internalName, new CompiledClass(access, superName, interfaces));
+    }
+
+    public @Nullable CompiledClass getCompiled(String internalName) {
+        return compiled.get(internalName);
+    }
+
+    public OverloadCache overloads() {
+        return overloads;
+    }
+
+    public ClasspathIndex classpath() {
+        return classpath;
+    }
+
+    public void setClasspath(ClasspathIndex classpath) {
+        this.classpath = classpath;
+        byType.clear();
+        overloads.clear();
+    }
 
     public JvmClass get(Type type) {
         JvmClass jvmClass = byType.get(type);
@@ -26,9 +56,9 @@ public class JvmClassCache {
         }
         String className = type.getClassName();
         try {
-            Class<?> aClass = Class.forName(className, false, getClass().getClassLoader());
+            ClassInfo aClass = classpath.forName(className);
             JvmClass jvmClass = new JClass(className, aClass);
-            byType.put(jvmClass.type(compiler), jvmClass);
+            byType.putIfAbsent(jvmClass.type(compiler), jvmClass);
             return true;
         } catch (ClassNotFoundException e) {
             return false;
@@ -45,16 +75,24 @@ public class JvmClassCache {
 
     public void clear() {
         byType.clear();
+        compiled.clear();
+        overloads.clear();
+    }
+
+    public void clearCompiled() {
+        byType.values().removeIf(jvmClass -> !(jvmClass instanceof JClass));
+        compiled.clear();
+        overloads.clear();
     }
 
-    public boolean load(PythonCompiler compiler, Class<?> declaringClass) {
+    public boolean load(PythonCompiler compiler, ClassInfo declaringClass) {
         JvmClass jvmClass = new JClass(declaringClass.getName(), declaringClass);
         byType.put(jvmClass.type(compiler), jvmClass);
         return true;
     }
 
-    public JvmClass get(Class<?> declaringClass) {
-        JvmClass jvmClass = byType.get(Type.getType(declaringClass));
+    public JvmClass get(ClassInfo declaringClass) {
+        JvmClass jvmClass = byType.get(declaringClass.asmType());
         if (jvmClass == null) {
             throw new RuntimeException("Class '" + declaringClass.getName() + "' not found");
         }
@@ -1,12 +1,31 @@
 package dev.ultreon.pythonc;
 
+import org.objectweb.asm.Handle;
 import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
+import java.math.BigInteger;
+
 import static org.objectweb.asm.Opcodes.*;
 
 public class JvmWriter {
+    /**
+     * The static type of a Python int that may have been promoted past the range of a long.
+     */
+    static final Type NUMBER_TYPE = Type.getType(Number.class);
+    static final Type BIG_INTEGER_TYPE = Type.getType(BigInteger.class);
+    static final Type OBJECT_TYPE = Type.getType(Object.class);
+    static final String BOOTSTRAP = "pythonvm/runtime/Bootstrap";
+    private static final String BOOTSTRAP_DESCRIPTOR = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;";
+    static final Handle CALL_BOOTSTRAP = new Handle(H_INVOKESTATIC, BOOTSTRAP, "call", BOOTSTRAP_DESCRIPTOR, false);
+    static final Handle GETATTR_BOOTSTRAP = new Handle(H_INVOKESTATIC, BOOTSTRAP, "getattr", BOOTSTRAP_DESCRIPTOR, false);
+    static final Handle SETATTR_BOOTSTRAP = new Handle(H_INVOKESTATIC, BOOTSTRAP, "setattr", BOOTSTRAP_DESCRIPTOR, false);
+    static final Handle OPERATOR_BOOTSTRAP = new Handle(H_INVOKESTATIC, BOOTSTRAP, "operator", BOOTSTRAP_DESCRIPTOR, false);
+    private static final String PY_INT = "pythonvm/builtins/PyInt";
+    static final int MAX_INLINE_EXPONENT = 4;
+
     public final PythonCompiler pc;
 
     public JvmWriter(PythonCompiler pythonCompiler) {
@@ -135,18 +154,19 @@ public class JvmWriter {
         context.push(returnType);
     }
 
-    public void invokeDynamic(String owner, String name, String signature, boolean isInterface) {
+    /**
+     * Emits an {@code invokedynamic} linked by {@code bootstrap}. Unlike the other invokes there's no separate receiver,
+     * it's the first parameter of {@code descriptor} when there is one.
+     */
+    public void invokeDynamic(String name, String descriptor, Handle bootstrap, Object... bootstrapArgs) {
         Context context = getContext();
-        Type methodType = Type.getMethodType(signature);
-        Type[] argumentTypes = methodType.getArgumentTypes();
-        context.pop();
-        for (Type arg : argumentTypes) {
-            Type pop = context.pop();
-            getClassSymbol(pop.getClassName());
+        Type methodType = Type.getMethodType(descriptor);
+        for (Type ignored : methodType.getArgumentTypes()) {
+            context.pop();
         }
 
         var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
-        mv.visitMethodInsn(INVOKEDYNAMIC, owner, name, signature, isInterface);
+        mv.visitInvokeDynamicInsn(name, descriptor, bootstrap, bootstrapArgs);
         Type returnType = methodType.getReturnType();
         if (returnType.equals(Type.VOID_TYPE)) return;
         context.push(returnType);
@@ -381,6 +401,18 @@ public class JvmWriter {
         getContext().push(Type.SHORT_TYPE);
     }
 
+    public void storeValue(int index, Type type) {
+        var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
+        mv.visitVarInsn(type.getOpcode(ISTORE), index);
+        getContext().pop();
+    }
+
+    public void loadValue(int index, Type type) {
+        var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
+        mv.visitVarInsn(type.getOpcode(ILOAD), index);
+        getContext().push(type);
+    }
+
     public void storeObject(int index, Type type) {
         var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
         mv.visitVarInsn(ASTORE, index);
@@ -410,7 +442,8 @@ public class JvmWriter {
             mv.visitInsn(LADD);
             context.push(Type.LONG_TYPE);
         } else if (left == Type.LONG_TYPE && right == Type.LONG_TYPE) {
-            mv.visitInsn(LADD);
+            // PyEval only types this as a long when neither operand is wider than an int, see PyEval#integerType
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "addExact", "(JJ)J", false);
             context.push(Type.LONG_TYPE);
         } else if (left == Type.DOUBLE_TYPE && right == Type.DOUBLE_TYPE) {
             mv.visitInsn(DADD);
@@ -442,6 +475,10 @@ public class JvmWriter {
         } else if (left == Type.LONG_TYPE && right == Type.FLOAT_TYPE) {
             mv.visitInsn(FADD);
             context.push(Type.FLOAT_TYPE);
+        } else if (isBigIntOperation(left, right)) {
+            bigIntOperation(left, right, "add");
+        } else if (isDynamicOperation(left, right)) {
+            dynamicOperation(left, right, "add");
         } else {
             throw new RuntimeException("Unsupported addition between " + left + " and " + right);
         }
@@ -463,7 +500,8 @@ public class JvmWriter {
             mv.visitInsn(LSUB);
             context.push(Type.LONG_TYPE);
         } else if (left == Type.LONG_TYPE && right == Type.LONG_TYPE) {
-            mv.visitInsn(LSUB);
+            // PyEval only types this as a long when neither operand is wider than an int, see PyEval#integerType
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "subtractExact", "(JJ)J", false);
             context.push(Type.LONG_TYPE);
         } else if (left == Type.DOUBLE_TYPE && right == Type.DOUBLE_TYPE) {
             mv.visitInsn(DSUB);
@@ -495,6 +533,10 @@ public class JvmWriter {
         } else if (left == Type.LONG_TYPE && right == Type.FLOAT_TYPE) {
             mv.visitInsn(FSUB);
             context.push(Type.FLOAT_TYPE);
+        } else if (isBigIntOperation(left, right)) {
+            bigIntOperation(left, right, "subtract");
+        } else if (isDynamicOperation(left, right)) {
+            dynamicOperation(left, right, "sub");
         } else {
             throw new RuntimeException("Unsupported subtraction between " + left + " and " + right);
         }
@@ -516,7 +558,8 @@ public class JvmWriter {
             mv.visitInsn(LMUL);
             context.push(Type.LONG_TYPE);
         } else if (left == Type.LONG_TYPE && right == Type.LONG_TYPE) {
-            mv.visitInsn(LMUL);
+            // PyEval only types this as a long when neither operand is wider than an int, see PyEval#integerType
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "multiplyExact", "(JJ)J", false);
             context.push(Type.LONG_TYPE);
         } else if (left == Type.DOUBLE_TYPE && right == Type.DOUBLE_TYPE) {
             mv.visitInsn(DMUL);
@@ -548,6 +591,10 @@ public class JvmWriter {
         } else if (left == Type.LONG_TYPE && right == Type.FLOAT_TYPE) {
             mv.visitInsn(FMUL);
             context.push(Type.FLOAT_TYPE);
+        } else if (isBigIntOperation(left, right)) {
+            bigIntOperation(left, right, "multiply");
+        } else if (isDynamicOperation(left, right)) {
+            dynamicOperation(left, right, "mul");
         } else {
             throw new RuntimeException("Unsupported multiplication between " + left + " and " + right);
         }
@@ -601,6 +648,8 @@ public class JvmWriter {
         } else if (left == Type.LONG_TYPE && right == Type.FLOAT_TYPE) {
             mv.visitInsn(FDIV);
             context.push(Type.FLOAT_TYPE);
+        } else if (isDynamicOperation(left, right)) {
+            dynamicOperation(left, right, "truediv");
         } else {
             throw new RuntimeException("Unsupported division between " + left + " and " + right);
         }
@@ -622,8 +671,12 @@ public class JvmWriter {
             mv.visitInsn(LREM);
             context.push(Type.LONG_TYPE);
         } else if (left == Type.LONG_TYPE && right == Type.LONG_TYPE) {
-            mv.visitInsn(LREM);
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "floorMod", "(JJ)J", false);
             context.push(Type.LONG_TYPE);
+        } else if (isBigIntOperation(left, right)) {
+            bigIntOperation(left, right, "floorMod");
+        } else if (isDynamicOperation(left, right)) {
+            dynamicOperation(left, right, "mod");
         } else {
             throw new RuntimeException("Unsupported modulus between " + left + " and " + right);
         }
@@ -647,6 +700,10 @@ public class JvmWriter {
         } else if (left == Type.LONG_TYPE && right == Type.LONG_TYPE) {
             mv.visitInsn(LAND);
             context.push(Type.LONG_TYPE);
+        } else if (isBigIntOperation(left, right)) {
+            bigIntOperation(left, right, "and");
+        } else if (isDynamicOperation(left, right)) {
+            dynamicOperation(left, right, "and");
         } else {
             throw new RuntimeException("Unsupported and between " + left + " and " + right);
         }
@@ -670,6 +727,10 @@ public class JvmWriter {
         } else if (left == Type.LONG_TYPE && right == Type.LONG_TYPE) {
             mv.visitInsn(LOR);
             context.push(Type.LONG_TYPE);
+        } else if (isBigIntOperation(left, right)) {
+            bigIntOperation(left, right, "or");
+        } else if (isDynamicOperation(left, right)) {
+            dynamicOperation(left, right, "or");
         } else {
             throw new RuntimeException("Unsupported or between " + left + " and " + right);
         }
@@ -693,6 +754,10 @@ public class JvmWriter {
         } else if (left == Type.LONG_TYPE && right == Type.LONG_TYPE) {
             mv.visitInsn(LXOR);
             context.push(Type.LONG_TYPE);
+        } else if (isBigIntOperation(left, right)) {
+            bigIntOperation(left, right, "xor");
+        } else if (isDynamicOperation(left, right)) {
+            dynamicOperation(left, right, "xor");
         } else {
             throw new RuntimeException("Unsupported xor between " + left + " and " + right);
         }
@@ -716,6 +781,10 @@ public class JvmWriter {
         } else if (left == Type.LONG_TYPE && right == Type.LONG_TYPE) {
             mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "floorDiv", "(JJ)J", false);
             context.push(Type.LONG_TYPE);
+        } else if (isBigIntOperation(left, right)) {
+            bigIntOperation(left, right, "floorDivide");
+        } else if (isDynamicOperation(left, right)) {
+            dynamicOperation(left, right, "floordiv");
         } else {
             throw new RuntimeException("Unsupported floorDiv between " + left + " and " + right);
         }
@@ -730,11 +799,70 @@ public class JvmWriter {
         if (left == Type.DOUBLE_TYPE && right == Type.DOUBLE_TYPE) {
             mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "pow", "(DD)D", false);
             context.push(Type.DOUBLE_TYPE);
+        } else if (left == Type.LONG_TYPE && right == Type.LONG_TYPE) {
+            mv.visitMethodInsn(INVOKESTATIC, PY_INT, "powerExact", "(JJ)J", false);
+            context.push(Type.LONG_TYPE);
+        } else if (isBigIntOperation(left, right)) {
+            bigIntOperation(left, right, "power");
+        } else if (isDynamicOperation(left, right)) {
+            dynamicOperation(left, right, "pow");
         } else {
             throw new RuntimeException("Unsupported pow between " + left + " and " + right);
         }
     }
 
+    /**
+     * Raises the long on the stack to a constant power of at most {@link #MAX_INLINE_EXPONENT} (or a double to at most
+     * 2, which is the only one where multiplying rounds the same as {@code Math.pow}) with plain multiplications.
+     */
+    public void powConstant(long exponent) {
+        Context context = getContext();
+        Type value = context.pop();
+
+        var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
+        if (value != Type.LONG_TYPE && value != Type.DOUBLE_TYPE || exponent < 0 || exponent > maxInlineExponent(value)) {
+            throw new RuntimeException("Unsupported constant pow " + exponent + " for " + value);
+        }
+        switch ((int) exponent) {
+            case 0 -> {
+                mv.visitInsn(POP2);
+                mv.visitInsn(value == Type.LONG_TYPE ? LCONST_1 : DCONST_1);
+            }
+            case 1 -> {
+                // x ** 1 is x
+            }
+            case 2 -> {
+                mv.visitInsn(DUP2);
+                multiply(mv, value);
+            }
+            case 3 -> {
+                mv.visitInsn(DUP2);
+                mv.visitInsn(DUP2);
+                multiply(mv, value);
+                multiply(mv, value);
+            }
+            default -> {
+                mv.visitInsn(DUP2);
+                multiply(mv, value);
+                mv.visitInsn(DUP2);
+                multiply(mv, value);
+            }
+        }
+        context.push(value);
+    }
+
+    static int maxInlineExponent(Type type) {
+        return type == Type.LONG_TYPE ? MAX_INLINE_EXPONENT : 2;
+    }
+
+    private static void multiply(MethodVisitor mv, Type type) {
+        if (type == Type.DOUBLE_TYPE) {
+            mv.visitInsn(DMUL);
+        } else {
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "multiplyExact", "(JJ)J", false);
+        }
+    }
+
     public void notValue() {
         Context context = getContext();
         Type value = context.pop();
@@ -747,6 +875,9 @@ public class JvmWriter {
             mv.visitLdcInsn(-1L); // Push -1 as a long
             mv.visitInsn(LXOR);   // Perform value ^ -1
             context.push(Type.LONG_TYPE);
+        } else if (isBigInt(value)) {
+            mv.visitMethodInsn(INVOKESTATIC, PY_INT, "invert", "(Ljava/lang/Number;)Ljava/lang/Number;", false);
+            context.push(NUMBER_TYPE);
         } else {
             throw new RuntimeException("Unsupported not for " + value);
         }
@@ -782,7 +913,8 @@ public class JvmWriter {
             mv.visitInsn(INEG);
             context.push(Type.INT_TYPE);
         } else if (value == Type.LONG_TYPE) {
-            mv.visitInsn(LNEG);
+            // Only reached for a widened int, see PyEval#integerType
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "negateExact", "(J)J", false);
             context.push(Type.LONG_TYPE);
         } else if (value == Type.DOUBLE_TYPE) {
             mv.visitInsn(DNEG);
@@ -790,6 +922,9 @@ public class JvmWriter {
         } else if (value == Type.FLOAT_TYPE) {
             mv.visitInsn(FNEG);
             context.push(Type.FLOAT_TYPE);
+        } else if (isBigInt(value)) {
+            mv.visitMethodInsn(INVOKESTATIC, PY_INT, "negate", "(Ljava/lang/Number;)Ljava/lang/Number;", false);
+            context.push(NUMBER_TYPE);
         } else {
             throw new RuntimeException("Unsupported negate for " + value);
         }
@@ -811,9 +946,12 @@ public class JvmWriter {
             mv.visitInsn(LSHL);
             context.push(Type.LONG_TYPE);
         } else if (left == Type.LONG_TYPE && right == Type.LONG_TYPE) {
-            mv.visitInsn(L2I);
-            mv.visitInsn(LSHL);
+            mv.visitMethodInsn(INVOKESTATIC, PY_INT, "shiftLeftExact", "(JJ)J", false);
             context.push(Type.LONG_TYPE);
+        } else if (isBigIntOperation(left, right)) {
+            bigIntOperation(left, right, "shiftLeft");
+        } else if (isDynamicOperation(left, right)) {
+            dynamicOperation(left, right, "lshift");
         } else {
             throw new RuntimeException("Unsupported left shift between " + left + " and " + right);
         }
@@ -835,14 +973,178 @@ public class JvmWriter {
             mv.visitInsn(LSHR);
             context.push(Type.LONG_TYPE);
         } else if (left == Type.LONG_TYPE && right == Type.LONG_TYPE) {
-            mv.visitInsn(L2I);
-            mv.visitInsn(LSHR);
+            mv.visitMethodInsn(INVOKESTATIC, PY_INT, "shiftRight", "(JJ)J", false);
             context.push(Type.LONG_TYPE);
+        } else if (isBigIntOperation(left, right)) {
+            bigIntOperation(left, right, "shiftRight");
+        } else if (isDynamicOperation(left, right)) {
+            dynamicOperation(left, right, "rshift");
         } else {
             throw new RuntimeException("Unsupported right shift between " + left + " and " + right);
         }
     }
 
+    static boolean isBigInt(Type type) {
+        return type.equals(NUMBER_TYPE) || type.equals(BIG_INTEGER_TYPE);
+    }
+
+    static boolean isIntegral(Type type) {
+        return switch (type.getSort()) {
+            case Type.BOOLEAN, Type.CHAR, Type.BYTE, Type.SHORT, Type.INT, Type.LONG -> true;
+            default -> isBigInt(type);
+        };
+    }
+
+    private static boolean isBigIntOperation(Type left, Type right) {
+        return (isBigInt(left) || isBigInt(right)) && isIntegral(left) && isIntegral(right);
+    }
+
+    /**
+     * Applies a {@code PyInt} operation to the two operands on the stack, boxing whichever of them is still a primitive.
+     * The operand types have already been popped from the context.
+     */
+    private void bigIntOperation(Type left, Type right, String name) {
+        var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
+        toNumbers(mv, left, right);
+        mv.visitMethodInsn(INVOKESTATIC, PY_INT, name, "(Ljava/lang/Number;Ljava/lang/Number;)Ljava/lang/Number;", false);
+        getContext().push(NUMBER_TYPE);
+    }
+
+    /**
+     * Compares the two ints on the stack through {@code PyInt.compare}, leaving -1, 0 or 1 like {@code LCMP} does.
+     * Like after {@code LCMP}, the context keeps both operands for the jump that consumes the result.
+     */
+    public void compareNumbers() {
+        Context context = getContext();
+        Type left = context.pop();
+        Type right = context.pop();
+        var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
+        toNumbers(mv, left, right);
+        mv.visitMethodInsn(INVOKESTATIC, PY_INT, "compare", "(Ljava/lang/Number;Ljava/lang/Number;)I", false);
+        context.push(NUMBER_TYPE);
+        context.push(NUMBER_TYPE);
+    }
+
+    /**
+     * Boxes whichever of the two ints on the stack is still a primitive, {@code left} being the top one.
+     */
+    private static void toNumbers(MethodVisitor mv, Type left, Type right) {
+        toNumber(mv, left);
+        if (!isBigInt(right)) {
+            // Box the operand below the top one.
+            if (right.getSize() == 2) {
+                mv.visitInsn(DUP_X2);
+                mv.visitInsn(POP);
+            } else {
+                mv.visitInsn(SWAP);
+            }
+            toNumber(mv, right);
+            mv.visitInsn(SWAP);
+        }
+    }
+
+    /**
+     * Links the operator at runtime whatever the operands are, for an operation whose result type depends on their
+     * values, such as {@code a ** b} on ints.
+     */
+    public void dynamicValues(String name) {
+        Context context = getContext();
+        Type top = context.pop();
+        Type below = context.pop();
+        dynamicOperation(top, below, name);
+    }
+
+    /**
+     * Widens the int on top of the stack to a long, so both operands of an int operation are longs.
+     */
+    public void widenToLong() {
+        Context context = getContext();
+        Type type = context.pop();
+        if (type.getSort() != Type.LONG) {
+            if (!isIntegral(type) || isBigInt(type)) {
+                throw new RuntimeException("Not a primitive int: " + type);
+            }
+            var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
+            mv.visitInsn(I2L);
+        }
+        context.push(Type.LONG_TYPE);
+    }
+
+    /**
+     * Applies a {@code PyInt} operation to the two longs on the stack. The result is a {@code Number}, which is only a
+     * {@code BigInteger} when it left the long range.
+     */
+    public void promotingOperation(String name) {
+        Context context = getContext();
+        context.pop();
+        context.pop();
+        var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
+        mv.visitMethodInsn(INVOKESTATIC, PY_INT, name, "(JJ)Ljava/lang/Number;", false);
+        context.push(NUMBER_TYPE);
+    }
+
+    /**
+     * {@code -a} on the long on the stack, which only leaves the long range for {@code Long.MIN_VALUE}.
+     */
+    public void promotingNegate() {
+        Context context = getContext();
+        context.pop();
+        var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
+        mv.visitMethodInsn(INVOKESTATIC, PY_INT, "negate", "(J)Ljava/lang/Number;", false);
+        context.push(NUMBER_TYPE);
+    }
+
+    /**
+     * Whether an operation has to be dispatched at runtime, because one of the operands is an object other than a
+     * Python int.
+     */
+    static boolean isDynamicOperation(Type left, Type right) {
+        return (isReference(left) || isReference(right)) && !isBigIntOperation(left, right);
+    }
+
+    private static boolean isReference(Type type) {
+        return type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY;
+    }
+
+    /**
+     * Applies a binary operator through an inline cache in pylib, which picks the operation from the classes of the
+     * operands. Both are boxed first, the one on top of the stack is {@code top}. The operand types have already been
+     * popped from the context.
+     */
+    private void dynamicOperation(Type top, Type below, String name) {
+        var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
+        Context context = getContext();
+        context.push(below);
+        context.push(top);
+        coerce(OBJECT_TYPE);
+        if (PyVariable.isPrimitive(below)) {
+            // Bring the operand below to the top to box it, then swap them back.
+            if (below.getSize() == 2) {
+                mv.visitInsn(DUP_X2);
+                mv.visitInsn(POP);
+            } else {
+                mv.visitInsn(SWAP);
+            }
+            context.pop();
+            context.pop();
+            context.push(OBJECT_TYPE);
+            context.push(below);
+            coerce(OBJECT_TYPE);
+            mv.visitInsn(SWAP);
+        }
+        invokeDynamic(name, "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", OPERATOR_BOOTSTRAP);
+    }
+
+    private static void toNumber(MethodVisitor mv, Type type) {
+        if (isBigInt(type)) {
+            return;
+        }
+        if (type.getSort() != Type.LONG) {
+            mv.visitInsn(I2L);
+        }
+        mv.visitMethodInsn(INVOKESTATIC, "java/lang/Long", "valueOf", "(J)Ljava/lang/Long;", false);
+    }
+
     public void jump(Label endLabel) {
         var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
         mv.visitJumpInsn(Opcodes.GOTO, endLabel);
@@ -963,10 +1265,9 @@ public class JvmWriter {
 
     public void pop() {
         var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
-        mv.visitInsn(POP);
-
         Context context = getContext();
-        context.pop();
+        Type type = context.pop();
+        mv.visitInsn(type.getSize() == 2 ? POP2 : POP);
     }
 
     public void swap() {
@@ -1372,6 +1673,62 @@ public class JvmWriter {
         mv.visitInsn(FRETURN);
     }
 
+    public void returnValue(Type type) {
+        Context context = getContext();
+        context.pop();
+
+        var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
+        mv.visitInsn(type.getOpcode(IRETURN));
+    }
+
+    /**
+     * Returns the zero value of the given type, which is what falling off the end of a function yields.
+     */
+    public void returnDefault(Type type) {
+        var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
+        if (type.getSort() == Type.VOID) {
+            mv.visitInsn(RETURN);
+            return;
+        }
+        zero(type);
+        mv.visitInsn(type.getOpcode(IRETURN));
+    }
+
+    public void storeDefault(int index, Type type) {
+        var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
+        zero(type);
+        mv.visitVarInsn(type.getOpcode(ISTORE), index);
+    }
+
+    private void zero(Type type) {
+        var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
+        switch (type.getSort()) {
+            case Type.OBJECT, Type.ARRAY -> mv.visitInsn(ACONST_NULL);
+            case Type.LONG -> mv.visitInsn(LCONST_0);
+            case Type.FLOAT -> mv.visitInsn(FCONST_0);
+            case Type.DOUBLE -> mv.visitInsn(DCONST_0);
+            default -> mv.visitInsn(ICONST_0);
+        }
+    }
+
+    /**
+     * Converts the value on top of the stack to the given type, boxing, unboxing or casting where needed.
+     */
+    public void coerce(Type to) {
+        Type from = getContext().peek();
+        if (from.equals(to)) return;
+        if (PyVariable.isPrimitive(to)) {
+            PyVariable.convert(pc, to);
+            return;
+        }
+        if (PyVariable.isPrimitive(from)) {
+            box(from);
+        }
+        if (!to.equals(Type.getType(Object.class)) && !getContext().peek().equals(to)) {
+            cast(to);
+        }
+    }
+
     public void pushZeroInt() {
         var mv = pc.mv == null ? pc.rootInitMv : pc.mv;
         mv.visitInsn(ICONST_0);
@@ -0,0 +1,489 @@
+package dev.ultreon.pythonc;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.util.*;
+
+/**
+ * Flow-sensitive type inference for the locals of a single function body, run over the parse tree before any of its
+ * bytecode is written.
+ * <p>
+ * Every assignment to a local is a definition. Definitions that reach the same program point along different paths
+ * (the end of an if/else, a loop header) have to live in the same local slot, so they are unioned into one
+ * {@link Web}. The type of a web is the join of every value assigned in it: bool widens to int, int to float, unrelated
+ * references to their common superclass, and anything else to {@code Object}. Joins only ever widen, so iterating the
+ * pass until nothing changes terminates.
+ */
+final class LocalTypes {
+    private static final Type OBJECT = Type.getType(Object.class);
+    private static final List<Integer> NUMERIC_ORDER = List.of(Type.BOOLEAN, Type.BYTE, Type.SHORT, Type.CHAR, Type.INT, Type.LONG, Type.FLOAT, Type.DOUBLE);
+    // Far more than any function needs, only reached if a join stopped being monotonic
+    private static final int MAX_PASSES = 1000;
+
+    private final PythonCompiler compiler;
+    private final Map<ParserRuleContext, Web> definitions = new LinkedHashMap<>();
+    private final Map<String, Web> parameters = new LinkedHashMap<>();
+    private final Map<ParserRuleContext, Map<String, Set<Web>>> points = new HashMap<>();
+    private final Deque<Loop> loops = new ArrayDeque<>();
+    private boolean changed;
+
+    /**
+     * The definitions sharing a local slot. Only the root of a web holds its type and slot.
+     */
+    static final class Web {
+        private Web parent = this;
+        private Type type;
+        private int slot = -1;
+
+        private Web(Type type) {
+            this.type = type;
+        }
+
+        private Web root() {
+            Web root = this;
+            while (root.parent != root) root = root.parent;
+            Web node = this;
+            while (node.parent != root) {
+                Web next = node.parent;
+                node.parent = root;
+                node = next;
+            }
+            return root;
+        }
+
+        public Type type() {
+            return root().type;
+        }
+
+        public int slot() {
+            return root().slot;
+        }
+
+        void slot(int slot) {
+            root().slot = slot;
+        }
+    }
+
+    private static final class Loop {
+        final List<Map<String, Set<Web>>> breaks = new ArrayList<>();
+        final List<Map<String, Set<Web>>> continues = new ArrayList<>();
+    }
+
+    private LocalTypes(PythonCompiler compiler) {
+        this.compiler = compiler;
+    }
+
+    static LocalTypes infer(PythonCompiler compiler, PythonParser.BlockContext body, List<TypedName> parameters) {
+        LocalTypes types = new LocalTypes(compiler);
+        Map<String, Set<Web>> entry = new LinkedHashMap<>();
+        for (TypedName parameter : parameters) {
+            Web web = new Web(parameter.type());
+            types.parameters.put(parameter.name(), web);
+            entry.put(parameter.name(), Set.of(web));
+        }
+
+        // Expressions are typed by the compiler itself, so it must not write anything while doing so
+        MethodVisitor oldMv = compiler.mv;
+        Map<String, Symbol> oldSymbols = new HashMap<>(compiler.symbols);
+        compiler.mv = new MethodVisitor(Opcodes.ASM9) {
+        };
+        compiler.pushContext(new FunctionContext());
+        try {
+            int pass = 0;
+            do {
+                types.changed = false;
+                types.block(body, new LinkedHashMap<>(entry));
+                if (types.changed && ++pass == MAX_PASSES) {
+                    throw new CompilerException("Types of the locals don't settle " + compiler.getLocation(body));
+                }
+            } while (types.changed);
+        } finally {
+            compiler.popContext();
+            compiler.mv = oldMv;
+            compiler.symbols.clear();
+            compiler.symbols.putAll(oldSymbols);
+        }
+        return types;
+    }
+
+    /**
+     * The web an assignment stores into, or {@code null} if the assignment isn't to a plain local name.
+     */
+    @Nullable Web definition(ParserRuleContext assignment) {
+        return definitions.get(assignment);
+    }
+
+    @Nullable Web parameter(String name) {
+        return parameters.get(name);
+    }
+
+    /**
+     * Every web that isn't rooted at a parameter, each listed once.
+     */
+    Collection<Web> locals() {
+        Set<Web> params = new HashSet<>();
+        for (Web web : parameters.values()) params.add(web.root());
+
+        Set<Web> result = new LinkedHashSet<>();
+        for (Web web : definitions.values()) {
+            Web root = web.root();
+            if (!params.contains(root)) result.add(root);
+        }
+        return result;
+    }
+
+    /**
+     * The web each local lives in at the start of a block or right after a compound statement.
+     */
+    Map<String, Web> at(ParserRuleContext ctx) {
+        Map<String, Set<Web>> env = points.get(ctx);
+        if (env == null) return Map.of();
+
+        Map<String, Web> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Set<Web>> entry : env.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().iterator().next().root());
+        }
+        return result;
+    }
+
+    private @Nullable Map<String, Set<Web>> block(PythonParser.BlockContext ctx, Map<String, Set<Web>> env) {
+        points.put(ctx, copy(env));
+        if (ctx.statements() != null) {
+            return statements(ctx.statements(), env);
+        }
+        return simpleStatements(ctx.simple_stmts(), env);
+    }
+
+    private @Nullable Map<String, Set<Web>> statements(PythonParser.StatementsContext ctx, @Nullable Map<String, Set<Web>> env) {
+        for (PythonParser.StatementContext statement : ctx.statement()) {
+            if (env == null) {
+                // Nothing after a return, break or continue is reachable
+                return null;
+            }
+            if (statement.simple_stmts() != null) {
+                env = simpleStatements(statement.simple_stmts(), env);
+            } else {
+                env = compoundStatement(statement.compound_stmt(), env);
+            }
+        }
+        return env;
+    }
+
+    private @Nullable Map<String, Set<Web>> simpleStatements(PythonParser.Simple_stmtsContext ctx, Map<String, Set<Web>> env) {
+        for (PythonParser.Simple_stmtContext statement : ctx.simple_stmt()) {
+            if (statement.assignment() != null) {
+                assignment(statement.assignment(), env);
+            } else if (statement.return_stmt() != null || statement.raise_stmt() != null) {
+                return null;
+            } else if (statement.BREAK() != null || statement.CONTINUE() != null) {
+                Loop loop = loops.peek();
+                if (loop != null) {
+                    (statement.BREAK() != null ? loop.breaks : loop.continues).add(copy(env));
+                }
+                return null;
+            }
+        }
+        return env;
+    }
+
+    private @Nullable Map<String, Set<Web>> compoundStatement(PythonParser.Compound_stmtContext ctx, Map<String, Set<Web>> env) {
+        Map<String, Set<Web>> result;
+        if (ctx.function_def() != null || ctx.class_def() != null) {
+            result = env;
+        } else if (ctx.if_stmt() != null) {
+            PythonParser.If_stmtContext ifStmt = ctx.if_stmt();
+            result = branches(ifStmt.block(), ifStmt.elif_stmt(), ifStmt.else_block(), env);
+        } else if (ctx.while_stmt() != null) {
+            PythonParser.While_stmtContext whileStmt = ctx.while_stmt();
+            result = loop(null, whileStmt.block(), whileStmt.else_block(), env);
+        } else if (ctx.for_stmt() != null) {
+            PythonParser.For_stmtContext forStmt = ctx.for_stmt();
+            result = loop(forStmt, forStmt.block(), forStmt.else_block(), env);
+        } else {
+            // try, with and match: any of their blocks may run, or none of them
+            result = env;
+            for (PythonParser.BlockContext block : childBlocks(ctx)) {
+                result = merge(result, block(block, copy(env)));
+            }
+        }
+
+        if (result != null) points.put(ctx, copy(result));
+        return result;
+    }
+
+    private @Nullable Map<String, Set<Web>> branches(PythonParser.BlockContext block, PythonParser.@Nullable Elif_stmtContext elif,
+                                                     PythonParser.@Nullable Else_blockContext elseBlock, Map<String, Set<Web>> env) {
+        Map<String, Set<Web>> taken = block(block, copy(env));
+        Map<String, Set<Web>> other;
+        if (elif != null) {
+            other = branches(elif.block(), elif.elif_stmt(), elif.else_block(), copy(env));
+        } else if (elseBlock != null) {
+            other = block(elseBlock.block(), copy(env));
+        } else {
+            other = env;
+        }
+        return merge(taken, other);
+    }
+
+    private @Nullable Map<String, Set<Web>> loop(PythonParser.@Nullable For_stmtContext forStmt, PythonParser.BlockContext body, PythonParser.@Nullable Else_blockContext elseBlock,
+                                                 Map<String, Set<Web>> env) {
+        Loop loop = new Loop();
+        loops.push(loop);
+        Map<String, Set<Web>> head = env;
+        try {
+            while (true) {
+                loop.breaks.clear();
+                loop.continues.clear();
+
+                Map<String, Set<Web>> iteration = copy(head);
+                if (forStmt != null) {
+                    defineTargets(forStmt, iteration);
+                }
+                Map<String, Set<Web>> next = merge(head, block(body, iteration));
+                for (Map<String, Set<Web>> continued : loop.continues) {
+                    next = merge(next, continued);
+                }
+                if (next == null || next.equals(head)) break;
+                head = next;
+            }
+        } finally {
+            loops.pop();
+        }
+
+        Map<String, Set<Web>> exit = elseBlock != null ? block(elseBlock.block(), copy(head)) : head;
+        for (Map<String, Set<Web>> broken : loop.breaks) {
+            exit = merge(exit, broken);
+        }
+        return exit;
+    }
+
+    private void assignment(PythonParser.AssignmentContext ctx, Map<String, Set<Web>> env) {
+        if (ctx.NAME() != null) {
+            if (ctx.annotated_rhs() == null) return;
+            Type type;
+            try {
+                type = compiler.annotationType(ctx.expression());
+            } catch (RuntimeException e) {
+                type = OBJECT;
+            }
+            define(ctx, ctx.NAME().getText(), type, env);
+            return;
+        }
+
+        if (ctx.augassign() != null || ctx.star_targets().size() != 1 || ctx.star_expressions() == null) return;
+        String name = targetName(ctx.star_targets(0));
+        if (name == null) return;
+
+        List<PythonParser.Star_expressionContext> values = ctx.star_expressions().star_expression();
+        PythonParser.ExpressionContext value = values.size() == 1 ? values.getFirst().expression() : null;
+        define(ctx, name, value == null ? OBJECT : typeOf(value, env), env);
+    }
+
+    private void define(ParserRuleContext ctx, String name, Type type, Map<String, Set<Web>> env) {
+        Web web = definitions.get(ctx);
+        if (web == null) {
+            web = new Web(type);
+            definitions.put(ctx, web);
+            changed = true;
+        } else {
+            widen(web.root(), type);
+        }
+        env.put(name, Set.of(web));
+    }
+
+    private @Nullable Map<String, Set<Web>> merge(@Nullable Map<String, Set<Web>> a, @Nullable Map<String, Set<Web>> b) {
+        if (a == null) return b;
+        if (b == null) return a;
+
+        Map<String, Set<Web>> result = copy(a);
+        for (Map.Entry<String, Set<Web>> entry : b.entrySet()) {
+            Set<Web> webs = result.get(entry.getKey());
+            if (webs == null) {
+                result.put(entry.getKey(), entry.getValue());
+                continue;
+            }
+            if (webs.containsAll(entry.getValue())) continue;
+
+            Set<Web> merged = new LinkedHashSet<>(webs);
+            merged.addAll(entry.getValue());
+            Web first = merged.iterator().next();
+            for (Web web : merged) union(first, web);
+            result.put(entry.getKey(), Collections.unmodifiableSet(merged));
+        }
+        return result;
+    }
+
+    private void union(Web a, Web b) {
+        Web rootA = a.root();
+        Web rootB = b.root();
+        if (rootA == rootB) return;
+
+        rootB.parent = rootA;
+        rootA.type = join(rootA.type, rootB.type);
+        changed = true;
+    }
+
+    private void widen(Web root, Type type) {
+        Type joined = join(root.type, type);
+        if (!joined.equals(root.type)) {
+            root.type = joined;
+            changed = true;
+        }
+    }
+
+    private Type join(Type a, Type b) {
+        if (a.equals(b)) return a;
+        if (a.getSort() == Type.VOID || b.getSort() == Type.VOID) return OBJECT;
+
+        int rankA = NUMERIC_ORDER.indexOf(a.getSort());
+        int rankB = NUMERIC_ORDER.indexOf(b.getSort());
+        if (rankA >= 0 && rankB >= 0) {
+            Type wider = rankA > rankB ? a : b;
+            // A float can't hold every long, so the two meet at double
+            if (wider.getSort() == Type.FLOAT && Math.min(rankA, rankB) == NUMERIC_ORDER.indexOf(Type.LONG)) {
+                return Type.DOUBLE_TYPE;
+            }
+            return wider;
+        }
+        // An int that may have been promoted to a BigInteger stays a Number, the long path can't hold it
+        if (JvmWriter.isBigInt(a) && isInteger(rankB) || JvmWriter.isBigInt(b) && isInteger(rankA)) {
+            return JvmWriter.NUMBER_TYPE;
+        }
+        if (rankA >= 0 || rankB >= 0) return OBJECT;
+
+        ClassInfo infoA = a.getSort() == Type.OBJECT ? compiler.classpath().find(a.getInternalName()) : null;
+        ClassInfo infoB = b.getSort() == Type.OBJECT ? compiler.classpath().find(b.getInternalName()) : null;
+        if (infoA == null || infoB == null) return OBJECT;
+        for (ClassInfo superclass = infoA; superclass != null; superclass = superclass.getSuperclass()) {
+            if (superclass.isAssignableFrom(infoB)) {
+                // The common superclass may be one the module never imported
+                return PyVariable.isInScope(compiler, superclass.asmType()) ? superclass.asmType() : OBJECT;
+            }
+        }
+        return OBJECT;
+    }
+
+    private static boolean isInteger(int rank) {
+        return rank >= 0 && rank <= NUMERIC_ORDER.indexOf(Type.LONG);
+    }
+
+    private Type typeOf(PythonParser.ExpressionContext ctx, Map<String, Set<Web>> env) {
+        Map<String, Symbol> symbols = new HashMap<>(compiler.symbols);
+        try {
+            for (Map.Entry<String, Set<Web>> entry : env.entrySet()) {
+                Type type = entry.getValue().iterator().next().type();
+                compiler.symbols.put(entry.getKey(), new PyVariable(entry.getKey(), type, -1, ctx.getStart().getLine(), true, new Label()));
+            }
+            return switch (compiler.visit(ctx)) {
+                case Boolean b -> Type.BOOLEAN_TYPE;
+                case Integer i -> Type.INT_TYPE;
+                case Long l -> Type.LONG_TYPE;
+                case Float f -> Type.FLOAT_TYPE;
+                case Double d -> Type.DOUBLE_TYPE;
+                case String s -> Type.getType(String.class);
+                case PyExpr expr -> {
+                    Type type = expr.type(compiler);
+                    yield type == null || type.getSort() == Type.VOID || !PyVariable.isInScope(compiler, type) ? OBJECT : type;
+                }
+                case null, default -> OBJECT;
+            };
+        } catch (RuntimeException e) {
+            // Whatever the compiler can't type statically stays dynamic
+            return OBJECT;
+        } finally {
+            compiler.symbols.clear();
+            compiler.symbols.putAll(symbols);
+        }
+    }
+
+    /**
+     * A single loop target is keyed by the for statement, the names of an unpacked target by their own star_target.
+     */
+    private void defineTargets(PythonParser.For_stmtContext ctx, Map<String, Set<Web>> env) {
+        String name = targetName(ctx.star_targets());
+        if (name != null) {
+            define(ctx, name, elementType(ctx), env);
+            return;
+        }
+
+        List<PythonParser.Star_targetContext> targets = unpackTargets(ctx.star_targets());
+        if (targets == null) return;
+        List<PythonParser.ExpressionContext> enumerate = targets.size() == 2 ? compiler.builtinCall(iterable(ctx), "enumerate") : null;
+        for (int i = 0; i < targets.size(); i++) {
+            define(targets.get(i), name(targets.get(i)), enumerate != null && enumerate.size() <= 2 && i == 0 ? Type.LONG_TYPE : OBJECT, env);
+        }
+    }
+
+    private Type elementType(PythonParser.For_stmtContext ctx) {
+        List<PythonParser.ExpressionContext> range = compiler.builtinCall(iterable(ctx), "range");
+        return range != null && range.size() <= 3 ? Type.LONG_TYPE : OBJECT;
+    }
+
+    /**
+     * The single expression a for statement iterates, or {@code null} if it's a tuple or starred.
+     */
+    private static PythonParser.@Nullable ExpressionContext iterable(PythonParser.For_stmtContext ctx) {
+        List<PythonParser.Star_expressionContext> iterables = ctx.star_expressions().star_expression();
+        if (iterables.size() != 1 || !ctx.star_expressions().COMMA().isEmpty()) return null;
+        return iterables.getFirst().expression();
+    }
+
+    private static @Nullable String targetName(PythonParser.Star_targetsContext ctx) {
+        if (ctx.star_target().size() != 1) return null;
+        PythonParser.Target_with_star_atomContext target = ctx.star_target(0).target_with_star_atom();
+        if (target == null || target.star_atom() == null || target.star_atom().NAME() == null) return null;
+        return target.star_atom().NAME().getText();
+    }
+
+    /**
+     * The targets of {@code a, b = ...} or {@code (a, b) = ...}, or {@code null} unless there are several and each is
+     * a plain name.
+     */
+    static @Nullable List<PythonParser.Star_targetContext> unpackTargets(PythonParser.Star_targetsContext ctx) {
+        List<PythonParser.Star_targetContext> targets = ctx.star_target();
+        if (targets.size() == 1) {
+            PythonParser.Target_with_star_atomContext target = targets.getFirst().target_with_star_atom();
+            if (target == null || target.star_atom() == null) return null;
+            PythonParser.Star_atomContext atom = target.star_atom();
+            if (atom.star_targets_tuple_seq() != null) {
+                targets = atom.star_targets_tuple_seq().star_target();
+            } else if (atom.star_targets_list_seq() != null) {
+                targets = atom.star_targets_list_seq().star_target();
+            }
+        }
+        if (targets.size() < 2) return null;
+        for (PythonParser.Star_targetContext target : targets) {
+            if (name(target) == null) return null;
+        }
+        return targets;
+    }
+
+    static @Nullable String name(PythonParser.Star_targetContext ctx) {
+        PythonParser.Target_with_star_atomContext target = ctx.target_with_star_atom();
+        if (target == null || target.star_atom() == null || target.star_atom().NAME() == null) return null;
+        return target.star_atom().NAME().getText();
+    }
+
+    private static List<PythonParser.BlockContext> childBlocks(ParseTree tree) {
+        List<PythonParser.BlockContext> blocks = new ArrayList<>();
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            ParseTree child = tree.getChild(i);
+            if (child instanceof PythonParser.BlockContext block) {
+                blocks.add(block);
+            } else {
+                blocks.addAll(childBlocks(child));
+            }
+        }
+        return blocks;
+    }
+
+    private static Map<String, Set<Web>> copy(Map<String, Set<Web>> env) {
+        return new LinkedHashMap<>(env);
+    }
+}
@@ -0,0 +1,30 @@
+package dev.ultreon.pythonc;
+
+import java.util.Locale;
+
+/**
+ * Compiler log level, taken from the {@code pythonc.log} system property (error, warn, info, debug or trace).
+ * The flags are constants, so disabled log statements are free.
+ */
+final class Log {
+    enum Level {
+        ERROR, WARN, INFO, DEBUG, TRACE
+    }
+
+    static final Level LEVEL = level(System.getProperty("pythonc.log", "info"));
+    static final boolean DEBUG = LEVEL.compareTo(Level.DEBUG) >= 0;
+    static final boolean TRACE = LEVEL.compareTo(Level.TRACE) >= 0;
+
+    private Log() {
+
+    }
+
+    private static Level level(String name) {
+        try {
+            return Level.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("WARNING: Unknown log level '" + name + "' in pythonc.log, using info");
+            return Level.INFO;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package dev.ultreon.pythonc;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * A method or constructor of a {@link ClassInfo}, mirroring {@link java.lang.reflect.Method} and
+ * {@link java.lang.reflect.Constructor}.
+ */
+public final class MethodInfo {
+    private final ClassInfo declaringClass;
+    private final int access;
+    private final String name;
+    private final String descriptor;
+    private final Type type;
+    private volatile ClassInfo[] parameterTypes;
+
+    MethodInfo(ClassInfo declaringClass, int access, String name, String descriptor) {
+        this.declaringClass = declaringClass;
+        this.access = access;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.type = Type.getMethodType(descriptor);
+    }
+
+    public ClassInfo getDeclaringClass() {
+        return declaringClass;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    public Type asmType() {
+        return type;
+    }
+
+    public int getModifiers() {
+        return access;
+    }
+
+    public boolean isConstructor() {
+        return name.equals("<init>");
+    }
+
+    public boolean isPublic() {
+        return (access & Opcodes.ACC_PUBLIC) != 0;
+    }
+
+    public boolean isStatic() {
+        return (access & Opcodes.ACC_STATIC) != 0;
+    }
+
+    public int getParameterCount() {
+        return type.getArgumentTypes().length;
+    }
+
+    public ClassInfo[] getParameterTypes() {
+        ClassInfo[] result = this.parameterTypes;
+        if (result != null) return result.clone();
+
+        Type[] argumentTypes = type.getArgumentTypes();
+        result = new ClassInfo[argumentTypes.length];
+        for (int i = 0; i < argumentTypes.length; i++) {
+            result[i] = declaringClass.index().resolve(argumentTypes[i]);
+        }
+        this.parameterTypes = result;
+        return result.clone();
+    }
+
+    public ClassInfo getReturnType() {
+        return declaringClass.index().resolve(type.getReturnType());
+    }
+
+    @Override
+    public String toString() {
+        return declaringClass.getName() + "." + name + descriptor;
+    }
+}
@@ -0,0 +1,56 @@
+package dev.ultreon.pythonc;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.Type;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which Java method or constructor a call resolved to, so call sites with the same owner, name and argument
+ * types don't search the class hierarchy again. Only holds members of classpath classes, and is cleared together with
+ * {@link JvmClassCache}.
+ */
+public class OverloadCache {
+    private final Map<Key, Resolution> arguments = new ConcurrentHashMap<>();
+    private final Map<Key, Resolution> results = new ConcurrentHashMap<>();
+
+    public record Key(Type owner, String name, List<Type> argTypes) {
+
+    }
+
+    public record Resolution(MethodInfo member, @Nullable BitSet boxing, @Nullable Type[] paramTypes, @Nullable Type returnType) {
+        public BitSet boxingCopy() {
+            return (BitSet) boxing.clone();
+        }
+    }
+
+    /**
+     * Resolution of the parameter types and boxing of a call's arguments.
+     */
+    public @Nullable Resolution arguments(Key key) {
+        return arguments.get(key);
+    }
+
+    public void putArguments(Key key, MethodInfo member, BitSet boxing, Type[] paramTypes) {
+        arguments.put(key, new Resolution(member, (BitSet) boxing.clone(), paramTypes, null));
+    }
+
+    /**
+     * Resolution of a call's result type.
+     */
+    public @Nullable Resolution result(Key key) {
+        return results.get(key);
+    }
+
+    public void putResult(Key key, MethodInfo member, Type returnType) {
+        results.put(key, new Resolution(member, null, null, returnType));
+    }
+
+    public void clear() {
+        arguments.clear();
+        results.clear();
+    }
+}
@@ -123,10 +123,14 @@ class PyBuiltinClass implements JvmClass {
                 if (jvmClass == null)
                     throw new CompilerException(E_CLASS_NOT_IN_CP.formatted(type.getClassName(), compiler.getLocation(this)));
                 if (jvmClass instanceof JClass jClass) {
-                    Class<?> type1 = jClass.getType();
+                    ClassInfo type1 = jClass.getType();
                     if (type1 == null)
                         throw new CompilerException(E_CLASS_NOT_IN_CP.formatted(type.getClassName(), compiler.getLocation(this)));
-                    equals = type1.isAssignableFrom(getClass());
+                    try {
+                        equals = type1.isAssignableFrom(compiler.classpath().forName(jvmName.getClassName()));
+                    } catch (ClassNotFoundException e) {
+                        throw new CompilerException(E_CLASS_NOT_IN_CP.formatted(jvmName.getClassName(), compiler.getLocation(this)));
+                    }
                 }
             }
             return equals;
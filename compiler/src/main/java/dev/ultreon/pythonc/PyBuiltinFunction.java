@@ -3,7 +3,6 @@ package dev.ultreon.pythonc;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
 
-import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.stream.Collectors;
 
@@ -71,14 +70,14 @@ class PyBuiltinFunction implements Symbol {
     public Type type(PythonCompiler compiler) {
         String className = mapOwner.getClassName();
         try {
-            Class<?> aClass = Class.forName(className, false, getClass().getClassLoader());
-            for (Method method : aClass.getMethods()) {
+            ClassInfo aClass = compiler.classpath().forName(className);
+            for (MethodInfo method : aClass.getMethods()) {
                 String name1 = method.getName();
                 if (!name1.equals(name)) {
                     continue;
                 }
 
-                return Type.getType(method.getReturnType());
+                return method.getReturnType().asmType();
             }
 
             throw new CompilerException("No matching function: " + className + "." + name + "(...)");
@@ -0,0 +1,86 @@
+package dev.ultreon.pythonc;
+
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@link ClassWriter} that answers the hierarchy queries of frame computation from the compiler's own type model
+ * instead of loading classes: classes compiled in this run are looked up in {@link JvmClassCache}, everything else in
+ * the {@link ClasspathIndex}. Classes of this run are registered with {@link JvmClassCache#addCompiled} when their
+ * header is written.
+ */
+public class PyClassWriter extends ClassWriter {
+    private static final String OBJECT = "java/lang/Object";
+
+    private final JvmClassCache classCache;
+
+    public PyClassWriter(JvmClassCache classCache, int flags) {
+        super(flags);
+        this.classCache = classCache;
+    }
+
+    @Override
+    protected String getCommonSuperClass(String type1, String type2) {
+        if (type1.equals(type2)) return type1;
+        if (isInterface(type1) || isInterface(type2)) return OBJECT;
+        if (isAssignableFrom(type1, type2)) return type1;
+        if (isAssignableFrom(type2, type1)) return type2;
+
+        String type = superName(type1);
+        while (type != null && !isAssignableFrom(type, type2)) {
+            type = superName(type);
+        }
+        return type == null ? OBJECT : type;
+    }
+
+    private boolean isAssignableFrom(String type, String other) {
+        if (type.equals(OBJECT)) return true;
+
+        Set<String> visited = new HashSet<>();
+        return inherits(other, type, visited);
+    }
+
+    private boolean inherits(String type, String supertype, Set<String> visited) {
+        if (type.equals(supertype)) return true;
+        if (!visited.add(type)) return false;
+
+        JvmClassCache.CompiledClass compiled = classCache.getCompiled(type);
+        if (compiled != null) {
+            if (compiled.superName() != null && inherits(compiled.superName(), supertype, visited)) return true;
+            for (String anInterface : compiled.interfaces()) {
+                if (inherits(anInterface, supertype, visited)) return true;
+            }
+            return false;
+        }
+
+        ClassInfo info = classCache.classpath().find(type);
+        return info != null && isSupertype(info, supertype);
+    }
+
+    private boolean isSupertype(ClassInfo info, String supertype) {
+        ClassInfo other = classCache.classpath().find(supertype);
+        return other != null && other.isAssignableFrom(info);
+    }
+
+    private boolean isInterface(String type) {
+        JvmClassCache.CompiledClass compiled = classCache.getCompiled(type);
+        if (compiled != null) return (compiled.access() & Opcodes.ACC_INTERFACE) != 0;
+
+        ClassInfo info = classCache.classpath().find(type);
+        return info != null && info.isInterface();
+    }
+
+    private @Nullable String superName(String type) {
+        JvmClassCache.CompiledClass compiled = classCache.getCompiled(type);
+        if (compiled != null) return compiled.superName();
+
+        ClassInfo info = classCache.classpath().find(type);
+        if (info == null) return null;
+        ClassInfo superclass = info.getSuperclass();
+        return superclass == null ? null : superclass.asmType().getInternalName();
+    }
+}
@@ -28,9 +28,15 @@ class PyComparison implements PyExpr {
         return null;
     }
 
-    @Override
-    public void load(MethodVisitor mv, PythonCompiler compiler, Object preloaded, boolean boxed) {
-        PythonParser.Bitwise_orContext bitwiseOrContext = switch (context) {
+    public Comparison comparator() {
+        return comparator;
+    }
+
+    /**
+     * The right-hand side of the comparison.
+     */
+    public PythonParser.Bitwise_orContext operand() {
+        return switch (context) {
             case PythonParser.Eq_bitwise_orContext ctx -> ctx.bitwise_or();
             case PythonParser.Noteq_bitwise_orContext ctx -> ctx.bitwise_or();
             case PythonParser.Lt_bitwise_orContext ctx -> ctx.bitwise_or();
@@ -39,6 +45,11 @@ class PyComparison implements PyExpr {
             case PythonParser.Gte_bitwise_orContext ctx -> ctx.bitwise_or();
             default -> throw new RuntimeException("Unknown comparison context: " + context.getText());
         };
+    }
+
+    @Override
+    public void load(MethodVisitor mv, PythonCompiler compiler, Object preloaded, boolean boxed) {
+        PythonParser.Bitwise_orContext bitwiseOrContext = operand();
         if (bitwiseOrContext != null) {
             Object visit = compiler.visit(bitwiseOrContext);
 
@@ -46,7 +57,12 @@ class PyComparison implements PyExpr {
                 throw new RuntimeException("Unknown visitArgs for expression context: " + bitwiseOrContext.getText());
             }
 
-            switch (visit) {
+            Type left = compiler.getContext(Context.class).peek();
+            Type right = integralType(compiler, visit);
+            if (right != null && JvmWriter.isIntegral(left) && (JvmWriter.isBigInt(left) || JvmWriter.isBigInt(right))) {
+                compiler.loadExpr(context, visit);
+                cmpNumber(mv, compiler);
+            } else switch (visit) {
                 case String s -> {
                     compiler.writer.loadConstant(s);
 
@@ -110,6 +126,19 @@ class PyComparison implements PyExpr {
         throw new RuntimeException("compare_op_bitwise_or_pair not supported for:\n" + ctx.getText());
     }
 
+    private static Type integralType(PythonCompiler compiler, Object operand) {
+        Type type = switch (operand) {
+            case PyExpr expr -> expr.type(compiler);
+            case Long l -> Type.LONG_TYPE;
+            case Integer i -> Type.INT_TYPE;
+            case Short s -> Type.SHORT_TYPE;
+            case Byte b -> Type.BYTE_TYPE;
+            case Boolean b -> Type.BOOLEAN_TYPE;
+            default -> null;
+        };
+        return type != null && JvmWriter.isIntegral(type) ? type : null;
+    }
+
     private void cmpExpr(MethodVisitor mv, PythonCompiler compiler, PyExpr expr) {
         if (expr.type(compiler).equals(Type.LONG_TYPE)) {
             cmpLong(mv, compiler);
@@ -143,8 +172,8 @@ class PyComparison implements PyExpr {
                 Label labelIfFalse = conditionContext.ifFalse();
                 Label labelIfTrue = conditionContext.ifTrue();
 
-                if (labelIfFalse != null) mv.visitJumpInsn(IFEQ, labelIfFalse);
-                if (labelIfTrue != null) mv.visitJumpInsn(IFNE, labelIfTrue);
+                if (labelIfFalse != null) mv.visitJumpInsn(IFNE, labelIfFalse);
+                if (labelIfTrue != null) mv.visitJumpInsn(IFEQ, labelIfTrue);
                 return;
             }
         }
@@ -202,16 +231,16 @@ class PyComparison implements PyExpr {
                 Label labelIfTrue = conditionContext.ifTrue();
                 context.pop();
                 context.pop();
-                if (labelIfFalse != null) mv.visitJumpInsn(IFEQ, labelIfFalse);
-                if (labelIfTrue != null) mv.visitJumpInsn(IFNE, labelIfTrue);
+                if (labelIfFalse != null) mv.visitJumpInsn(IFNE, labelIfFalse);
+                if (labelIfTrue != null) mv.visitJumpInsn(IFEQ, labelIfTrue);
                 return;
             } else if (comparator == Comparison.NE) {
                 Label labelIfFalse = conditionContext.ifFalse();
                 Label labelIfTrue = conditionContext.ifTrue();
                 context.pop();
                 context.pop();
-                if (labelIfFalse != null) mv.visitJumpInsn(IFNE, labelIfFalse);
-                if (labelIfTrue != null) mv.visitJumpInsn(IFEQ, labelIfTrue);
+                if (labelIfFalse != null) mv.visitJumpInsn(IFEQ, labelIfFalse);
+                if (labelIfTrue != null) mv.visitJumpInsn(IFNE, labelIfTrue);
                 return;
             } else if (comparator == Comparison.LT) {
                 Label labelIfFalse = conditionContext.ifFalse();
@@ -295,28 +324,45 @@ class PyComparison implements PyExpr {
             }
         }
 
-        Label labelTrue = new Label();
-        Label labelEnd = new Label();
-
         if (pop2 == Type.LONG_TYPE) mv.visitInsn(LCMP);
         else if (pop2 == Type.FLOAT_TYPE) mv.visitInsn(FCMPG);
         else if (pop2 == Type.DOUBLE_TYPE) mv.visitInsn(DCMPG);
+        jumpOnComparison(mv, compiler);
+    }
+
+    /**
+     * Compares two ints of which at least one can be a {@code BigInteger}, through {@code PyInt.compare}.
+     */
+    private void cmpNumber(MethodVisitor mv, PythonCompiler compiler) {
+        compiler.writer.compareNumbers();
+        jumpOnComparison(mv, compiler);
+    }
+
+    /**
+     * Branches on the -1, 0 or 1 a comparison like {@code LCMP} left on the stack, while the context still holds the
+     * types of both compared operands.
+     */
+    private void jumpOnComparison(MethodVisitor mv, PythonCompiler compiler) {
+        Context context = compiler.getContext(Context.class);
+        Label labelTrue = new Label();
+        Label labelEnd = new Label();
+
         if (context instanceof ConditionContext conditionContext) {
             if (comparator == Comparison.EQ) {
                 Label labelIfFalse = conditionContext.ifFalse();
                 Label labelIfTrue = conditionContext.ifTrue();
                 context.pop();
                 context.pop();
-                if (labelIfFalse != null) mv.visitJumpInsn(IFEQ, labelIfFalse);
-                if (labelIfTrue != null) mv.visitJumpInsn(IFNE, labelIfTrue);
+                if (labelIfFalse != null) mv.visitJumpInsn(IFNE, labelIfFalse);
+                if (labelIfTrue != null) mv.visitJumpInsn(IFEQ, labelIfTrue);
                 return;
             } else if (comparator == Comparison.NE) {
                 Label labelIfFalse = conditionContext.ifFalse();
                 Label labelIfTrue = conditionContext.ifTrue();
                 context.pop();
                 context.pop();
-                if (labelIfFalse != null) mv.visitJumpInsn(IFNE, labelIfFalse);
-                if (labelIfTrue != null) mv.visitJumpInsn(IFEQ, labelIfTrue);
+                if (labelIfFalse != null) mv.visitJumpInsn(IFEQ, labelIfFalse);
+                if (labelIfTrue != null) mv.visitJumpInsn(IFNE, labelIfTrue);
                 return;
             } else if (comparator == Comparison.LT) {
                 Label labelIfFalse = conditionContext.ifFalse();
@@ -431,16 +477,16 @@ class PyComparison implements PyExpr {
                         Label labelIfTrue = conditionContext.ifTrue();
                         context.pop();
                         context.pop();
-                        if (labelIfFalse != null) mv.visitJumpInsn(IFEQ, labelIfFalse);
-                        if (labelIfTrue != null) mv.visitJumpInsn(IFNE, labelIfTrue);
+                        if (labelIfFalse != null) mv.visitJumpInsn(IFNE, labelIfFalse);
+                        if (labelIfTrue != null) mv.visitJumpInsn(IFEQ, labelIfTrue);
                         return;
                     } else if (comparator == Comparison.NE) {
                         Label labelIfFalse = conditionContext.ifFalse();
                         Label labelIfTrue = conditionContext.ifTrue();
                         context.pop();
                         context.pop();
-                        if (labelIfFalse != null) mv.visitJumpInsn(IFNE, labelIfFalse);
-                        if (labelIfTrue != null) mv.visitJumpInsn(IFEQ, labelIfTrue);
+                        if (labelIfFalse != null) mv.visitJumpInsn(IFEQ, labelIfFalse);
+                        if (labelIfTrue != null) mv.visitJumpInsn(IFNE, labelIfTrue);
                         return;
                     } else if (comparator == Comparison.LT) {
                         Label labelIfFalse = conditionContext.ifFalse();
@@ -497,15 +543,15 @@ class PyComparison implements PyExpr {
                         Label labelIfFalse = conditionContext.ifFalse();
                         Label labelIfTrue = conditionContext.ifTrue();
 
-                        if (labelIfFalse != null) mv.visitJumpInsn(IFEQ, labelIfFalse);
-                        if (labelIfTrue != null) mv.visitJumpInsn(IFNE, labelIfTrue);
+                        if (labelIfFalse != null) mv.visitJumpInsn(IFNE, labelIfFalse);
+                        if (labelIfTrue != null) mv.visitJumpInsn(IFEQ, labelIfTrue);
                         return;
                     } else if (comparator == Comparison.NE) {
                         Label labelIfFalse = conditionContext.ifFalse();
                         Label labelIfTrue = conditionContext.ifTrue();
 
-                        if (labelIfFalse != null) mv.visitJumpInsn(IFNE, labelIfFalse);
-                        if (labelIfTrue != null) mv.visitJumpInsn(IFEQ, labelIfTrue);
+                        if (labelIfFalse != null) mv.visitJumpInsn(IFEQ, labelIfFalse);
+                        if (labelIfTrue != null) mv.visitJumpInsn(IFNE, labelIfTrue);
                         return;
                     } else if (comparator == Comparison.LT) {
                         Label labelIfFalse = conditionContext.ifFalse();
@@ -559,16 +605,16 @@ class PyComparison implements PyExpr {
                         Label labelIfTrue = conditionContext.ifTrue();
                         context.pop();
                         context.pop();
-                        if (labelIfFalse != null) mv.visitJumpInsn(IFEQ, labelIfFalse);
-                        if (labelIfTrue != null) mv.visitJumpInsn(IFNE, labelIfTrue);
+                        if (labelIfFalse != null) mv.visitJumpInsn(IFNE, labelIfFalse);
+                        if (labelIfTrue != null) mv.visitJumpInsn(IFEQ, labelIfTrue);
                         return;
                     } else if (comparator == Comparison.NE) {
                         Label labelIfFalse = conditionContext.ifFalse();
                         Label labelIfTrue = conditionContext.ifTrue();
                         context.pop();
                         context.pop();
-                        if (labelIfFalse != null) mv.visitJumpInsn(IFNE, labelIfFalse);
-                        if (labelIfTrue != null) mv.visitJumpInsn(IFEQ, labelIfTrue);
+                        if (labelIfFalse != null) mv.visitJumpInsn(IFEQ, labelIfFalse);
+                        if (labelIfTrue != null) mv.visitJumpInsn(IFNE, labelIfTrue);
                         return;
                     } else if (comparator == Comparison.LT) {
                         Label labelIfFalse = conditionContext.ifFalse();
@@ -628,16 +674,16 @@ class PyComparison implements PyExpr {
                 Label labelIfTrue = conditionContext.ifTrue();
                 context.pop();
                 context.pop();
-                if (labelIfFalse != null) mv.visitJumpInsn(IFEQ, labelIfFalse);
-                if (labelIfTrue != null) mv.visitJumpInsn(IFNE, labelIfTrue);
+                if (labelIfFalse != null) mv.visitJumpInsn(IFNE, labelIfFalse);
+                if (labelIfTrue != null) mv.visitJumpInsn(IFEQ, labelIfTrue);
                 return;
             } else if (comparator == Comparison.NE) {
                 Label labelIfFalse = conditionContext.ifFalse();
                 Label labelIfTrue = conditionContext.ifTrue();
                 context.pop();
                 context.pop();
-                if (labelIfFalse != null) mv.visitJumpInsn(IFNE, labelIfFalse);
-                if (labelIfTrue != null) mv.visitJumpInsn(IFEQ, labelIfTrue);
+                if (labelIfFalse != null) mv.visitJumpInsn(IFEQ, labelIfFalse);
+                if (labelIfTrue != null) mv.visitJumpInsn(IFNE, labelIfTrue);
                 return;
             } else if (comparator == Comparison.LT) {
                 Label labelIfFalse = conditionContext.ifFalse();
@@ -709,16 +755,16 @@ class PyComparison implements PyExpr {
                 Label labelIfTrue = conditionContext.ifTrue();
                 context.pop();
                 context.pop();
-                if (labelIfFalse != null) mv.visitJumpInsn(IFEQ, labelIfFalse);
-                if (labelIfTrue != null) mv.visitJumpInsn(IFNE, labelIfTrue);
+                if (labelIfFalse != null) mv.visitJumpInsn(IFNE, labelIfFalse);
+                if (labelIfTrue != null) mv.visitJumpInsn(IFEQ, labelIfTrue);
                 return;
             } else if (comparator == Comparison.NE) {
                 Label labelIfFalse = conditionContext.ifFalse();
                 Label labelIfTrue = conditionContext.ifTrue();
                 context.pop();
                 context.pop();
-                if (labelIfFalse != null) mv.visitJumpInsn(IFNE, labelIfFalse);
-                if (labelIfTrue != null) mv.visitJumpInsn(IFEQ, labelIfTrue);
+                if (labelIfFalse != null) mv.visitJumpInsn(IFEQ, labelIfFalse);
+                if (labelIfTrue != null) mv.visitJumpInsn(IFNE, labelIfTrue);
                 return;
             } else if (comparator == Comparison.LT) {
                 Label labelIfFalse = conditionContext.ifFalse();
@@ -1,8 +1,10 @@
 package dev.ultreon.pythonc;
 
 import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
+import java.math.BigInteger;
 import java.util.Objects;
 
 final class PyConstant implements PyExpr {
@@ -23,6 +25,7 @@ final class PyConstant implements PyExpr {
             case Short s -> Type.SHORT;
             case Long l -> Type.LONG;
             case Character c -> Type.CHARACTER;
+            case BigInteger b -> Type.BIG_INTEGER;
             default -> throw new RuntimeException("No supported matching type found for:\n" + this.value);
         };
     }
@@ -36,7 +39,8 @@ final class PyConstant implements PyExpr {
         BYTE(org.objectweb.asm.Type.BYTE_TYPE),
         SHORT(org.objectweb.asm.Type.SHORT_TYPE),
         LONG(org.objectweb.asm.Type.LONG_TYPE),
-        CHARACTER(org.objectweb.asm.Type.CHAR_TYPE);
+        CHARACTER(org.objectweb.asm.Type.CHAR_TYPE),
+        BIG_INTEGER(org.objectweb.asm.Type.getType(BigInteger.class));
 
         public final org.objectweb.asm.Type type;
 
@@ -52,7 +56,15 @@ final class PyConstant implements PyExpr {
 
     @Override
     public void load(MethodVisitor mv, PythonCompiler compiler, Object preloaded, boolean boxed) {
-        mv.visitLdcInsn(value);
+        if (value instanceof BigInteger) {
+            // Only ints that don't fit in a long end up here.
+            mv.visitTypeInsn(Opcodes.NEW, "java/math/BigInteger");
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitLdcInsn(value.toString());
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/math/BigInteger", "<init>", "(Ljava/lang/String;)V", false);
+        } else {
+            mv.visitLdcInsn(value);
+        }
         Context context = compiler.getContext(Context.class);
         context.push(type.type);
     }
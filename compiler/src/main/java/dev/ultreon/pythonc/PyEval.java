@@ -26,6 +26,16 @@ class PyEval implements PyExpr {
         this.finalAddition = finalAddition;
     }
 
+    /**
+     * Returns the literal this expression wraps, or {@code null} if it performs an operation or isn't a literal.
+     */
+    public @Nullable Object constantValue() {
+        if (operator != null || finalAddition != null) {
+            return null;
+        }
+        return ConstantFolder.literal(finalValue);
+    }
+
     @Override
     public Object preload(MethodVisitor mv, PythonCompiler compiler, boolean boxed) {
         return null;
@@ -33,6 +43,21 @@ class PyEval implements PyExpr {
 
     @Override
     public void load(MethodVisitor mv, PythonCompiler compiler, Object preloaded, boolean boxed) {
+        if (isDynamic(compiler)) {
+            // The writer boxes both operands and links the operator at runtime
+            compiler.loadExpr(ctx, finalValue);
+            loadAddition(compiler);
+            doOperation(mv);
+            return;
+        }
+        if (isIntegerOperation(compiler)) {
+            loadIntegers(compiler);
+            return;
+        }
+        if (operator == Operator.POW) {
+            loadPower(compiler);
+            return;
+        }
         switch (finalValue) {
             case PyExpr pyExpr -> {
                 loadValue(mv, compiler, pyExpr);
@@ -88,7 +113,7 @@ class PyEval implements PyExpr {
                             doOperation(mv);
                             return;
                         }
-                    } else {
+                    } else if (!JvmWriter.isBigInt(pyExpr.type(compiler))) {
                         throw new RuntimeException("Unknown type: " + pyExpr.type(compiler));
                     }
                 }
@@ -218,28 +243,164 @@ class PyEval implements PyExpr {
         if (finalAddition != null) {
             loadAddition(compiler);
             doOperation(mv);
+        } else if (operator == Operator.UNARY_MINUS || operator == Operator.UNARY_PLUS || operator == Operator.UNARY_NOT) {
+            doOperation(mv);
+        }
+    }
+
+    /**
+     * Whether the operation can only be picked at runtime, see {@link JvmWriter#isDynamicOperation(Type, Type)}.
+     */
+    private boolean isDynamic(PythonCompiler compiler) {
+        return operator != null && finalAddition != null
+                && JvmWriter.isDynamicOperation(typeOf(finalValue, compiler), typeOf(finalAddition, compiler));
+    }
+
+    /**
+     * Whether this is {@code +}, {@code -}, {@code *}, {@code //}, {@code <<} or unary {@code -} on primitive ints,
+     * which can leave the long range where Python promotes the result instead of wrapping.
+     */
+    private boolean isIntegerOperation(PythonCompiler compiler) {
+        if (operator == null) {
+            return false;
         }
+        return switch (operator) {
+            case ADD, SUB, MUL, FLOORDIV, LSHIFT -> finalAddition != null
+                    && isPrimitiveInt(typeOf(finalValue, compiler)) && isPrimitiveInt(typeOf(finalAddition, compiler));
+            case UNARY_MINUS -> isPrimitiveInt(typeOf(finalValue, compiler));
+            default -> false;
+        };
+    }
+
+    /**
+     * A long when the result can't leave the long range, otherwise a {@code Number} that {@code PyInt} only makes a
+     * {@code BigInteger} once it does.
+     */
+    private Type integerType(PythonCompiler compiler) {
+        boolean narrow = isNarrow(typeOf(finalValue, compiler))
+                && (finalAddition == null || isNarrow(typeOf(finalAddition, compiler)));
+        return switch (operator) {
+            case ADD, SUB, MUL, UNARY_MINUS -> narrow ? Type.LONG_TYPE : JvmWriter.NUMBER_TYPE;
+            case FLOORDIV -> narrow || ConstantFolder.literal(finalAddition) instanceof Long divisor && divisor != -1
+                    ? Type.LONG_TYPE : JvmWriter.NUMBER_TYPE;
+            case LSHIFT -> isNarrow(typeOf(finalValue, compiler))
+                    && ConstantFolder.literal(finalAddition) instanceof Long count && count >= 0 && count <= Integer.SIZE
+                    ? Type.LONG_TYPE : JvmWriter.NUMBER_TYPE;
+            default -> throw new IllegalStateException("Not an int operation: " + operator);
+        };
+    }
+
+    private void loadIntegers(PythonCompiler compiler) {
+        JvmWriter writer = compiler.writer;
+        Type type = integerType(compiler);
+        compiler.loadExpr(ctx, finalValue);
+        writer.widenToLong();
+        if (operator == Operator.UNARY_MINUS) {
+            if (type.equals(Type.LONG_TYPE)) {
+                writer.negateValue();
+            } else {
+                writer.promotingNegate();
+            }
+            return;
+        }
+        compiler.loadExpr(ctx, finalAddition);
+        writer.widenToLong();
+        if (type.equals(Type.LONG_TYPE)) {
+            doOperation(null);
+            return;
+        }
+        writer.promotingOperation(switch (operator) {
+            case ADD -> "add";
+            case SUB -> "subtract";
+            case MUL -> "multiply";
+            case FLOORDIV -> "floorDivide";
+            case LSHIFT -> "shiftLeft";
+            default -> throw new IllegalStateException("Not an int operation: " + operator);
+        });
+    }
+
+    private static boolean isPrimitiveInt(Type type) {
+        return switch (type.getSort()) {
+            case Type.BOOLEAN, Type.BYTE, Type.SHORT, Type.INT, Type.LONG -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Whether an int fits 32 bits, so that the sum, difference or product of two of them can't leave the long range.
+     */
+    private static boolean isNarrow(Type type) {
+        return isPrimitiveInt(type) && type.getSort() != Type.LONG;
+    }
+
+    private void loadPower(PythonCompiler compiler) {
+        JvmWriter writer = compiler.writer;
+        Type type = type(compiler);
+        compiler.loadExpr(ctx, finalValue);
+        if (type.equals(JvmWriter.OBJECT_TYPE)) {
+            compiler.loadExpr(ctx, finalAddition);
+            writer.dynamicValues("pow");
+            return;
+        }
+        if (type.equals(JvmWriter.NUMBER_TYPE)) {
+            if (JvmWriter.isBigInt(typeOf(finalValue, compiler))) {
+                compiler.loadExpr(ctx, finalAddition);
+                writer.powValues();
+                return;
+            }
+            writer.widenToLong();
+            compiler.loadExpr(ctx, finalAddition);
+            writer.promotingOperation("power");
+            return;
+        }
+        if (type.equals(Type.LONG_TYPE)) {
+            writer.widenToLong();
+        } else {
+            writer.smartCast(type);
+        }
+        if (ConstantFolder.literal(finalAddition) instanceof Long exponent && exponent >= 0 && exponent <= JvmWriter.maxInlineExponent(type)) {
+            writer.powConstant(exponent);
+            return;
+        }
+        compiler.loadExpr(ctx, finalAddition);
+        writer.smartCast(type);
+        writer.powValues();
+    }
+
+    /**
+     * An int raised to a literal int is a float when the exponent is negative, and an int otherwise, which is only a long
+     * for the square of an int that fits 32 bits. Any other exponent can be either sign, so the power is linked at
+     * runtime, where a negative one makes it a float. A float on either side makes it a float.
+     */
+    private Type powerType(PythonCompiler compiler) {
+        Type base = typeOf(finalValue, compiler);
+        Type exponent = typeOf(finalAddition, compiler);
+        if (isFloating(base) || isFloating(exponent)) {
+            return Type.DOUBLE_TYPE;
+        }
+        if (!(ConstantFolder.literal(finalAddition) instanceof Long e)) {
+            return JvmWriter.OBJECT_TYPE;
+        }
+        if (e < 0) {
+            return Type.DOUBLE_TYPE;
+        }
+        return isNarrow(base) && e <= 2 ? Type.LONG_TYPE : JvmWriter.NUMBER_TYPE;
+    }
+
+    private static boolean isFloating(Type type) {
+        return type.getSort() == Type.FLOAT || type.getSort() == Type.DOUBLE;
     }
 
     private void loadConst(MethodVisitor mv, PythonCompiler compiler, Object aChar) {
         compiler.loadConstant(ctx, aChar, mv);
-        if (this.operator == Operator.POW) {
-            compiler.writer.smartCast(Type.DOUBLE_TYPE);
-        }
     }
 
     private void loadValue(MethodVisitor mv, PythonCompiler compiler, PyExpr pyExpr) {
         pyExpr.load(mv, compiler, pyExpr.preload(mv, compiler, false), false);
-        if (this.operator == Operator.POW) {
-            compiler.writer.smartCast(Type.DOUBLE_TYPE);
-        }
     }
 
     private void loadAddition(PythonCompiler compiler) {
         compiler.loadExpr(ctx, finalAddition);
-        if (this.operator == Operator.POW) {
-            compiler.writer.smartCast(Type.DOUBLE_TYPE);
-        }
     }
 
     private void doOperation(MethodVisitor mv) {
@@ -312,6 +473,19 @@ class PyEval implements PyExpr {
 
     @Override
     public Type type(PythonCompiler compiler) {
+        if (isDynamic(compiler)) {
+            return JvmWriter.OBJECT_TYPE;
+        }
+        if (isIntegerOperation(compiler)) {
+            return integerType(compiler);
+        }
+        if (operator == Operator.POW) {
+            return powerType(compiler);
+        }
+        if (operator != null && operator != Operator.DIV
+                && (isBigInt(finalValue, compiler) || isBigInt(finalAddition, compiler))) {
+            return JvmWriter.NUMBER_TYPE;
+        }
         if (finalAddition != null) {
             if (finalAddition instanceof PyExpr expr) {
                 Type type = expr.type(compiler);
@@ -373,6 +547,10 @@ class PyEval implements PyExpr {
         throw new RuntimeException("No supported matching sum type found for:\n" + ctx.getText());
     }
 
+    private static boolean isBigInt(@Nullable Object operand, PythonCompiler compiler) {
+        return operand instanceof PyExpr expr && JvmWriter.isBigInt(expr.type(compiler));
+    }
+
     private static @Nullable Type castInt(Type type) {
         if (type.equals(Type.LONG_TYPE)) {
             return Type.LONG_TYPE;
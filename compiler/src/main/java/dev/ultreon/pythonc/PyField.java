@@ -16,17 +16,11 @@ public record PyField(Type owner, String name, Type type, int lineNo) implements
 
     @Override
     public void load(MethodVisitor mv, PythonCompiler compiler, Object preloaded, boolean boxed) {
-        compiler.writer.getField(owner(compiler).getInternalName(), name, type.getDescriptor());
-    }
-
-    @Override
-    public int lineNo() {
-        return 0;
-    }
-
-    @Override
-    public String name() {
-        return "";
+        loadSelf(mv, compiler);
+        compiler.writer.getField(owner.getInternalName(), name, type.getDescriptor());
+        if (boxed && PyVariable.isPrimitive(type)) {
+            compiler.writer.box(type);
+        }
     }
 
     @Override
@@ -52,60 +46,19 @@ public record PyField(Type owner, String name, Type type, int lineNo) implements
 
     @Override
     public void set(MethodVisitor mv, PythonCompiler compiler, PyExpr visit) {
-        if (type.getSort() == Type.OBJECT) {
-            visit.load(mv, compiler, visit.preload(mv, compiler, true), true);
-            compiler.writer.getContext().pop();
-
-            mv.visitFieldInsn(Opcodes.PUTFIELD, owner.getDescriptor(), name, type.getDescriptor());
-        } else {
-            visit.load(mv, compiler, visit.preload(mv, compiler, false), false);
-            if (compiler.writer.getContext().pop() != type) {
-                int sort = visit.type(compiler).getSort();
-                if (sort == Type.OBJECT) {
-                    throw new RuntimeException("Cannot smart cast " + visit.type(compiler) + " to " + type);
-                } else if (sort == Type.ARRAY) {
-                    throw new RuntimeException("Cannot smart cast " + visit.type(compiler) + " to " + type);
-                } else if (sort == Type.VOID) {
-                    throw new RuntimeException("Cannot smart cast " + visit.type(compiler) + " to " + type);
-                } else if (sort == Type.LONG) {
-                    if (type.getSort() == Type.DOUBLE) {
-                        mv.visitInsn(Opcodes.D2L);
-                    } else if (type.getSort() == Type.INT) {
-                        mv.visitInsn(Opcodes.L2I);
-                    } else {
-                        throw new RuntimeException("Cannot smart cast " + visit.type(compiler) + " to " + type);
-                    }
-                } else if (sort == Type.DOUBLE) {
-                    if (type.getSort() == Type.LONG) {
-                        mv.visitInsn(Opcodes.L2D);
-                    } else if (type.getSort() == Type.INT) {
-                        mv.visitInsn(Opcodes.I2D);
-                    } else {
-                        throw new RuntimeException("Cannot smart cast " + visit.type(compiler) + " to " + type);
-                    }
-                } else if (sort == Type.INT) {
-                    if (type.getSort() == Type.LONG) {
-                        mv.visitInsn(Opcodes.I2L);
-                    } else if (type.getSort() == Type.DOUBLE) {
-                        mv.visitInsn(Opcodes.I2D);
-                    } else {
-                        throw new RuntimeException("Cannot smart cast " + visit.type(compiler) + " to " + type);
-                    }
-                } else if (sort == Type.FLOAT) {
-                    if (type.getSort() == Type.DOUBLE) {
-                        mv.visitInsn(Opcodes.F2D);
-                    } else if (type.getSort() == Type.INT) {
-                        mv.visitInsn(Opcodes.F2I);
-                    } else {
-                        throw new RuntimeException("Cannot smart cast " + visit.type(compiler) + " to " + type);
-                    }
-                } else {
-                    throw new RuntimeException("Cannot smart cast " + visit.type(compiler) + " to " + type);
-                }
-            }
+        loadSelf(mv, compiler);
+        boolean primitive = PyVariable.isPrimitive(type);
+        visit.load(mv, compiler, visit.preload(mv, compiler, !primitive), !primitive);
+        compiler.writer.coerce(type);
+        compiler.writer.putField(owner.getInternalName(), name, type.getDescriptor());
+    }
 
-            mv.visitFieldInsn(Opcodes.PUTFIELD, owner.getDescriptor(), name, type.getDescriptor());
-        }
+    /**
+     * Instance fields are only reachable through {@code self}, which is always the first local.
+     */
+    private void loadSelf(MethodVisitor mv, PythonCompiler compiler) {
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        compiler.writer.getContext().push(owner);
     }
 
     @Override
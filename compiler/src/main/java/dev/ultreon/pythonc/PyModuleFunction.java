@@ -0,0 +1,91 @@
+package dev.ultreon.pythonc;
+
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.util.List;
+
+/**
+ * A function defined at module level. It compiles to a static method on the module class, so calls to it are
+ * resolved at compile time and invoked directly with its own descriptor.
+ */
+final class PyModuleFunction implements Symbol {
+    private final Type owner;
+    private final String name;
+    private final String jvmName;
+    private final Type[] paramTypes;
+    private final Type returnType;
+    private final int lineNo;
+
+    PyModuleFunction(Type owner, String name, String jvmName, Type[] paramTypes, Type returnType, int lineNo) {
+        this.owner = owner;
+        this.name = name;
+        this.jvmName = jvmName;
+        this.paramTypes = paramTypes;
+        this.returnType = returnType;
+        this.lineNo = lineNo;
+    }
+
+    public Type owner() {
+        return owner;
+    }
+
+    public String jvmName() {
+        return jvmName;
+    }
+
+    public Type[] parameterTypes() {
+        return paramTypes;
+    }
+
+    public Type returnType() {
+        return returnType;
+    }
+
+    public String descriptor() {
+        return Type.getMethodDescriptor(returnType, paramTypes);
+    }
+
+    public void invoke(MethodVisitor mv, PythonCompiler compiler, List<PyExpr> args) {
+        if (args.size() != paramTypes.length) {
+            throw new CompilerException("Function '" + name + "' takes " + paramTypes.length + " arguments but " + args.size() + " were given (" + compiler.getLocation(this) + ")");
+        }
+
+        for (int i = 0; i < paramTypes.length; i++) {
+            PyExpr arg = args.get(i);
+            arg.load(mv, compiler, arg.preload(mv, compiler, false), false);
+            compiler.writer.coerce(paramTypes[i]);
+        }
+        compiler.writer.invokeStatic(owner.getInternalName(), jvmName, descriptor(), false);
+    }
+
+    @Override
+    public Object preload(MethodVisitor mv, PythonCompiler compiler, boolean boxed) {
+        return null;
+    }
+
+    @Override
+    public void load(MethodVisitor mv, PythonCompiler compiler, Object preloaded, boolean boxed) {
+        throw new CompilerException("Function '" + name + "' can't be used as a value yet (" + compiler.getLocation(this) + ")");
+    }
+
+    @Override
+    public int lineNo() {
+        return lineNo;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Type type(PythonCompiler compiler) {
+        return returnType;
+    }
+
+    @Override
+    public void set(MethodVisitor mv, PythonCompiler compiler, PyExpr visit) {
+        throw new CompilerException("Cannot reassign function '" + name + "' (" + compiler.getLocation(visit) + ")");
+    }
+}
@@ -11,6 +11,11 @@ import java.util.Objects;
 import java.util.Set;
 
 final class PyVariable implements Symbol {
+    private static final Set<Type> BUILTIN_TYPES = Set.of(Type.getType(String.class), Type.getType(byte[].class),
+            Type.getType(List.class), Type.getType(Map.class), Type.getType(Set.class), Type.getType(Object[].class),
+            Type.getType(Object.class), Type.getType(Class.class));
+    private static final List<Integer> NUMERIC_ORDER = List.of(Type.BOOLEAN, Type.BYTE, Type.SHORT, Type.CHAR, Type.INT, Type.LONG, Type.FLOAT, Type.DOUBLE);
+
     private final String name;
     private Type type;
     private final int index;
@@ -34,7 +39,14 @@ final class PyVariable implements Symbol {
 
     @Override
     public void load(MethodVisitor mv, PythonCompiler compiler, Object preloaded, boolean boxed) {
-        int opcode;
+        if (isPrimitive(type)) {
+            compiler.writer.loadValue(index, type);
+            if (boxed) {
+                compiler.writer.box(type);
+            }
+            return;
+        }
+
         compiler.writer.loadObject(index, compiler.writer.boxType(type));
 
         if (!boxed) {
@@ -42,44 +54,67 @@ final class PyVariable implements Symbol {
         }
     }
 
+    static boolean isPrimitive(Type type) {
+        return type.getSort() >= Type.BOOLEAN && type.getSort() <= Type.DOUBLE;
+    }
+
+    /**
+     * Whether a primitive of one type can be stored in a slot of the other without losing its value.
+     */
+    static boolean widens(Type from, Type to) {
+        int rankFrom = NUMERIC_ORDER.indexOf(from.getSort());
+        int rankTo = NUMERIC_ORDER.indexOf(to.getSort());
+        if (rankFrom < 0 || rankTo < 0 || rankFrom > rankTo) {
+            return false;
+        }
+        return !(from.getSort() == Type.LONG && to.getSort() == Type.FLOAT);
+    }
+
+    /**
+     * Whether an int typed as a {@code Number} is stored as a primitive int, which only holds it while it fits a long.
+     */
+    private static boolean isIntNarrowing(Type from, Type to) {
+        return JvmWriter.isBigInt(from) && switch (to.getSort()) {
+            case Type.CHAR, Type.BYTE, Type.SHORT, Type.INT, Type.LONG -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Converts the value on top of the stack to the given primitive type, unboxing it first if it is an object.
+     */
+    static void convert(PythonCompiler compiler, Type to) {
+        Type from = compiler.writer.getContext().peek();
+        if (isIntNarrowing(from, to)) {
+            // Fails on an int outside the long range instead of truncating it
+            compiler.writer.invokeStatic("pythonvm/builtins/PyInt", "toLong", "(Ljava/lang/Number;)J", false);
+            compiler.writer.smartCast(to);
+        } else if (JvmWriter.isBigInt(from) && (to.getSort() == Type.FLOAT || to.getSort() == Type.DOUBLE)) {
+            compiler.writer.invokeVirtual("java/lang/Number", "doubleValue", "()D", false);
+            compiler.writer.smartCast(to);
+        } else if (from.getSort() == Type.OBJECT || from.getSort() == Type.ARRAY) {
+            compiler.writer.cast(compiler.writer.boxType(to));
+            compiler.writer.unbox(to);
+        } else {
+            compiler.writer.smartCast(to);
+        }
+    }
+
     @Override
     public Type type(PythonCompiler compiler) {
-        if (type.equals(Type.LONG_TYPE)) {
-            return Type.LONG_TYPE;
-        } else if (type.equals(Type.DOUBLE_TYPE)) {
-            return Type.DOUBLE_TYPE;
-        } else if (type.equals(Type.INT_TYPE)) {
-            return Type.INT_TYPE;
-        } else if (type.equals(Type.FLOAT_TYPE)) {
-            return Type.FLOAT_TYPE;
-        } else if (type.equals(Type.BOOLEAN_TYPE)) {
-            return Type.BOOLEAN_TYPE;
-        } else if (type.equals(Type.CHAR_TYPE)) {
-            return Type.CHAR_TYPE;
-        } else if (type.equals(Type.BYTE_TYPE)) {
-            return Type.BYTE_TYPE;
-        } else if (type.equals(Type.SHORT_TYPE)) {
-            return Type.SHORT_TYPE;
-        } else if (type.equals(Type.getType(String.class))) {
-            return Type.getType(String.class);
-        } else if (type.equals(Type.getType(byte[].class))) {
-            return Type.getType(byte[].class);
-        } else if (type.equals(Type.getType(List.class))) {
-            return Type.getType(List.class);
-        } else if (type.equals(Type.getType(Map.class))) {
-            return Type.getType(Map.class);
-        } else if (type.equals(Type.getType(Set.class))) {
-            return Type.getType(Set.class);
-        } else if (type.equals(Type.getType(Object[].class))) {
-            return Type.getType(Object[].class);
-        } else if (type.equals(Type.getType(Object.class))) {
-            return Type.getType(Object.class);
-        } else if (type.equals(Type.getType(Class.class))) {
-            return Type.getType(Class.class);
+        if (isPrimitive(type) || BUILTIN_TYPES.contains(type) || JvmWriter.isBigInt(type)) {
+            return type;
         }
         return compiler.typeCheck(type, this);
     }
 
+    /**
+     * Whether a local of the given type can be read back, a Java class has to be imported by the module for that.
+     */
+    static boolean isInScope(PythonCompiler compiler, Type type) {
+        return isPrimitive(type) || BUILTIN_TYPES.contains(type) || JvmWriter.isBigInt(type) || compiler.isInScope(type);
+    }
+
     @Override
     public void set(MethodVisitor mv, PythonCompiler compiler, PyExpr visit) {
         if (type.getSort() == Type.OBJECT) {
@@ -109,13 +144,16 @@ final class PyVariable implements Symbol {
             Type newType = visit.type(compiler);
             if (!type.equals(newType)) {
                 if (typeConstant) {
-                    throw new RuntimeException("Cannot assign " + newType + " to " + type);
+                    if (!isPrimitive(newType) && !newType.equals(compiler.writer.boxType(type)) && !isIntNarrowing(newType, type)) {
+                        throw new RuntimeException("Cannot assign " + newType + " to " + type);
+                    }
+                } else if (!widens(newType, type) && !newType.equals(compiler.writer.boxType(type))) {
+                    // The slot keeps its type, since a loop or branch joining here may still read it as that type
+                    throw new CompilerException("Cannot assign " + newType.getClassName() + " to local '" + name + "' of type " + type.getClassName() + ", annotate it with a type that holds both");
                 }
-                type = newType;
+                convert(compiler, type);
             }
-            compiler.writer.box(type);
-            compiler.writer.getContext().pop();
-            mv.visitVarInsn(Opcodes.ASTORE, index);
+            compiler.writer.storeValue(index, type);
         }
     }
 
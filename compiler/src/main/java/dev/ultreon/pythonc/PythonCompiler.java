@@ -1,6 +1,7 @@
 package dev.ultreon.pythonc;
 
 import com.google.common.base.CaseFormat;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.ParserRuleContext;
@@ -11,14 +12,18 @@ import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.*;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.math.BigInteger;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.Deflater;
 
 import static org.objectweb.asm.Opcodes.*;
 
@@ -45,10 +50,13 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
     private ClassWriter cw = rootCw;
     private String rootDir;
     private Path pathOfFile;
+    private PythonParser.@Nullable File_inputContext tree;
+    private String sourceName;
     private String path = "";
     private String fileName = "Main";
     final Set<String> implementing = new HashSet<>();
     final Map<String, Symbol> symbols = new HashMap<>();
+    final Map<String, Object> constants = new HashMap<>();
     final PyImports imports = new PyImports(this);
     private State state = State.File;
     final BitSet flags = new BitSet();
@@ -68,42 +76,138 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
 
     public final JvmWriter writer = new JvmWriter(this);
     private @Nullable PyClass definingClass;
+    private @Nullable String definingInternalName;
+    private @Nullable InstanceLayout definingLayout;
+    private Type currentReturnType = Type.VOID_TYPE;
+    private @Nullable LocalTypes localTypes;
     @Nullable PyClass definingInstance;
     private PyModule definingModule;
-
-    public void compileSources(String sourceDir) {
+    private CompileOutput output = new DirectoryOutput(Path.of("build/tmp/compilePython"));
+    private @Nullable BuildCache cache;
+    private final List<String> outputs = new ArrayList<>();
+    // Outputs of every source compiled or reused so far, anything else in the output is stale
+    private final Set<String> sourceOutputs = new TreeSet<>();
+    private final Set<String> importedModules = new TreeSet<>();
+    private @Nullable CompileStats stats;
+    private long lexNanos;
+    private long parseNanos;
+    private long writeNanos;
+    private int tokenCount;
+    private int nodeCount;
+    private long bytesWritten;
+    private boolean llFallback;
+    private int resolutionHits;
+    private int resolutionMisses;
+    private SourceParser.Mode parseMode = SourceParser.Mode.TWO_STAGE;
+
+    public boolean compileSources(String sourceDir) {
+        return compileSources(sourceDir, 1);
+    }
+
+    public boolean compileSources(String sourceDir, int threads) {
         // Walk the directory
         Path path = Path.of(System.getProperty("user.dir")).relativize(Path.of(sourceDir));
+        Path root = Path.of(sourceDir).toAbsolutePath();
+        String prefix = Path.of(sourceDir).normalize().toString().replace('\\', '/') + ":";
         try {
-            try (Stream<Path> walk = Files.walk(path)) {
-                walk
-                        .map(Path::toString)
-                        .filter(string -> string.endsWith(".py"))
-                        .forEach(v -> {
-                            try {
-                                compile(new File(v), new File(sourceDir));
-                            } catch (IOException e) {
-                                throw new RuntimeException(e);
-                            }
-                        });
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(root)) {
+                files = walk.filter(Files::isRegularFile).toList();
             }
-            try (Stream<Path> walk = Files.walk(path)) {
-                walk
-                        .filter(p -> !p.toString().endsWith(".py"))
-                        .map(v -> Path.of(sourceDir).relativize(v.toAbsolutePath()).toString())
-                        .forEach(v -> {
-                            try {
-                                // Copy over resources
-                                Path path1 = Path.of("build/tmp/compilePython", v);
-                                System.out.println("path1 = " + path1);
-                                if (Files.notExists(path1)) Files.createDirectories(path1.getParent());
-                                Path path2 = Path.of(sourceDir, v);
-                                if (Files.isDirectory(path2)) return;
-                                Files.copy(Path.of(sourceDir, v), path1.toAbsolutePath(), StandardCopyOption.REPLACE_EXISTING);
-                            } catch (IOException e) {
-                                throw new RuntimeException(e);
-                            }
-                        });
+
+            Map<String, String> hashes = new LinkedHashMap<>();
+            for (Path file : files) {
+                hashes.put(root.relativize(file).toString().replace('\\', '/'), BuildCache.hash(Files.readAllBytes(file)));
+            }
+
+            Set<String> dirty = new LinkedHashSet<>();
+            if (cache == null) {
+                dirty.addAll(hashes.keySet());
+            } else {
+                Set<String> changedModules = new TreeSet<>();
+                for (String key : cache.keys(prefix)) {
+                    String name = key.substring(prefix.length());
+                    if (hashes.containsKey(name)) continue;
+
+                    // Source was removed, drop whatever it produced
+                    for (String output : cache.remove(key).outputs()) {
+                        this.output.delete(output);
+                    }
+                    changedModules.add(BuildCache.moduleName(name));
+                }
+                for (Map.Entry<String, String> entry : hashes.entrySet()) {
+                    BuildCache.Entry cached = cache.get(prefix + entry.getKey());
+                    if (cached == null || !cached.hash().equals(entry.getValue())) {
+                        changedModules.add(BuildCache.moduleName(entry.getKey()));
+                    }
+                }
+
+                Set<String> affected = cache.dependents(prefix, changedModules);
+                for (String name : hashes.keySet()) {
+                    if (affected.contains(BuildCache.moduleName(name)) || !reuse(cache.get(prefix + name))) {
+                        dirty.add(name);
+                    } else {
+                        sourceOutputs.addAll(cache.get(prefix + name).outputs());
+                    }
+                }
+            }
+
+            // Every file gets its own compiler, so serial and parallel builds produce the same classes
+            List<String> sources = dirty.stream().filter(name -> name.endsWith(".py")).toList();
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, sources.size())));
+            try {
+                // All classes are declared before any code is generated, so the frames don't depend on which file a
+                // thread happens to get to first
+                List<Future<PythonCompiler>> declared = new ArrayList<>();
+                for (String name : sources) {
+                    declared.add(executor.submit(() -> {
+                        PythonCompiler compiler = new PythonCompiler();
+                        compiler.output = output;
+                        compiler.stats = stats;
+                        compiler.parseMode = parseMode;
+                        compiler.declare(path.resolve(name).toFile(), new File(sourceDir));
+                        return compiler;
+                    }));
+                }
+                List<Future<PythonCompiler>> futures = new ArrayList<>();
+                for (Future<PythonCompiler> future : declared) {
+                    PythonCompiler compiler = future.get();
+                    futures.add(executor.submit(() -> {
+                        compiler.generate();
+                        return compiler;
+                    }));
+                }
+                for (int i = 0; i < futures.size(); i++) {
+                    PythonCompiler compiler = futures.get(i).get();
+                    compileErrors.addAll(compiler.compileErrors);
+                    sourceOutputs.addAll(compiler.outputs);
+                    String name = sources.get(i);
+                    if (compiler.compileErrors.isEmpty()) {
+                        updateCache(prefix + name, hashes.get(name), compiler.importedModules, compiler.outputs);
+                    } else if (cache != null) {
+                        cache.remove(prefix + name);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+                throw new RuntimeException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+
+            // Copy over resources
+            for (String name : dirty) {
+                if (name.endsWith(".py")) continue;
+                output.write(name, Files.readAllBytes(root.resolve(name)));
+                sourceOutputs.add(name);
+                updateCache(prefix + name, hashes.get(name), Set.of(), List.of(name));
+            }
+
+            if (cache != null) {
+                cache.save();
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -114,8 +218,36 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
                 System.err.println("ERROR: " + ex.getMessage());
             }
 
-            System.exit(1);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean reuse(BuildCache.Entry cached) throws IOException {
+        if (cached == null) return false;
+        for (String name : cached.outputs()) {
+            if (!output.reuse(name)) return false;
         }
+        return true;
+    }
+
+    private void updateCache(String key, String hash, Set<String> imports, List<String> outputs) throws IOException {
+        if (cache == null) return;
+        BuildCache.Entry old = cache.get(key);
+        if (old != null) {
+            for (String stale : old.outputs()) {
+                if (!outputs.contains(stale)) output.delete(stale);
+            }
+        }
+        cache.put(key, new BuildCache.Entry(hash, new TreeSet<>(imports), new ArrayList<>(outputs)));
+    }
+
+    private void writeOutput(String name, byte[] bytes) throws IOException {
+        long start = System.nanoTime();
+        output.write(name, bytes);
+        outputs.add(name);
+        writeNanos += System.nanoTime() - start;
+        bytesWritten += bytes.length;
     }
 
     JvmClass getClassSymbol(String className) {
@@ -181,11 +313,14 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         if (tree == null) {
             throw new RuntimeException("Tree is null");
         }
-        System.out.print("Visiting: " + tree.getClass().getSimpleName() + " " + tree.getText());
-        if (!contextStack.isEmpty()) {
-            System.out.println(" (Stack size before: " + getContext(Context.class).stackSize() + ")");
-        } else {
-            System.out.println();
+        nodeCount++;
+        if (Log.TRACE) {
+            System.out.print("Visiting: " + tree.getClass().getSimpleName() + " " + tree.getText());
+            if (!contextStack.isEmpty()) {
+                System.out.println(" (Stack size before: " + getContext(Context.class).stackSize() + ")");
+            } else {
+                System.out.println();
+            }
         }
 
         Object visit = super.visit(tree);
@@ -193,11 +328,13 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
             String simpleName = tree.getClass().getSimpleName();
             throw new RuntimeException("Visit unavailable for visit" + simpleName.substring(0, simpleName.length() - "Context".length()) + ":\n" + tree.getText());
         }
-        System.out.print("Visited: " + tree.getClass().getSimpleName() + " " + tree.getText());
-        if (!contextStack.isEmpty()) {
-            System.out.println(" (Stack size after: " + getContext(Context.class).stackSize() + ")");
-        } else {
-            System.out.println();
+        if (Log.TRACE) {
+            System.out.print("Visited: " + tree.getClass().getSimpleName() + " " + tree.getText());
+            if (!contextStack.isEmpty()) {
+                System.out.println(" (Stack size after: " + getContext(Context.class).stackSize() + ")");
+            } else {
+                System.out.println();
+            }
         }
 
         return visit;
@@ -317,17 +454,23 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
 
         PythonParser.If_stmtContext ifStmtContext = ctx.if_stmt();
         if (ifStmtContext != null) {
-            return visit(ifStmtContext);
+            Object visit = visit(ifStmtContext);
+            restoreLocals(ctx);
+            return visit;
         }
 
         PythonParser.While_stmtContext whileStmtContext = ctx.while_stmt();
         if (whileStmtContext != null) {
-            return visit(whileStmtContext);
+            Object visit = visit(whileStmtContext);
+            restoreLocals(ctx);
+            return visit;
         }
 
         PythonParser.For_stmtContext forStmtContext = ctx.for_stmt();
         if (forStmtContext != null) {
-            return visit(forStmtContext);
+            Object visit = visit(forStmtContext);
+            restoreLocals(ctx);
+            return visit;
         }
 
         throw new RuntimeException("No supported matching compound_stmt found for:\n" + ctx.getText());
@@ -335,23 +478,543 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
 
     @Override
     public Object visitFor_stmt(PythonParser.For_stmtContext ctx) {
-//        PythonParser.Named_expressionContext namedExpressionContext = ctx.named_expression();
-//        if (namedExpressionContext != null) {
-//            Object visit = visit(namedExpressionContext);
-//            loadExpr(ctx, visit);
-//        } else {
-//            throw new RuntimeException("No supported matching named_expression found for:\n" + ctx.getText());
-//        }
+        PythonParser.Star_expressionsContext iterable = ctx.star_expressions();
+        if (mv == null || ctx.ASYNC() != null || iterable.star_expression().size() != 1 || !iterable.COMMA().isEmpty()
+                || iterable.star_expression(0).expression() == null) {
+            throw new RuntimeException("No supported matching for_stmt found for:\n" + ctx.getText());
+        }
+
+        PythonParser.ExpressionContext expression = iterable.star_expression(0).expression();
+        List<PythonParser.Star_targetContext> targets = LocalTypes.unpackTargets(ctx.star_targets());
+        if (targets != null) {
+            return unpackingLoop(ctx, targets, expression);
+        }
+
+        List<PythonParser.ExpressionContext> range = builtinCall(expression, "range");
+        if (range != null && range.size() <= 3) {
+            return rangeLoop(ctx, range);
+        }
+        Runnable bind = target(ctx, localTypes == null ? null : localTypes.definition(ctx), ctx.star_targets().getText());
+        loadExpr(expression, visit(expression));
+        return iterableLoop(ctx, expression, bind, () -> {});
+    }
+
+    /**
+     * Compiles loops that unpack each element into several names. Iterating {@code enumerate}, {@code zip} and
+     * {@code dict.items()} is fused into the loop, storing straight into the targets without creating a tuple for each
+     * element. Other iterables have their elements unpacked at runtime.
+     */
+    private Object unpackingLoop(PythonParser.For_stmtContext ctx, List<PythonParser.Star_targetContext> targets,
+                                 PythonParser.ExpressionContext iterable) {
+        List<Runnable> binds = new ArrayList<>();
+        for (PythonParser.Star_targetContext target : targets) {
+            binds.add(target(ctx, localTypes == null ? null : localTypes.definition(target), LocalTypes.name(target)));
+        }
+
+        List<PythonParser.ExpressionContext> enumerate = builtinCall(iterable, "enumerate");
+        if (enumerate != null && enumerate.size() <= 2 && targets.size() == 2) {
+            // The index is counted alongside whichever loop walks the iterable.
+            int counter = allocateLocal(Type.LONG_TYPE);
+            loadExpr(enumerate.getFirst(), visit(enumerate.getFirst()));
+            if (enumerate.size() == 2) {
+                loadIntegerArgument(enumerate.get(1));
+                writer.storeValue(counter, Type.LONG_TYPE);
+            } else {
+                mv.visitInsn(LCONST_0);
+                mv.visitVarInsn(LSTORE, counter);
+            }
+            return iterableLoop(ctx, enumerate.getFirst(), () -> {
+                binds.get(1).run();
+                writer.loadValue(counter, Type.LONG_TYPE);
+                binds.get(0).run();
+            }, () -> {
+                mv.visitVarInsn(LLOAD, counter);
+                mv.visitInsn(LCONST_1);
+                mv.visitInsn(LADD);
+                mv.visitVarInsn(LSTORE, counter);
+            });
+        }
+
+        List<PythonParser.ExpressionContext> zip = builtinCall(iterable, "zip");
+        if (zip != null && zip.size() == targets.size()) {
+            return zipLoop(ctx, zip, binds);
+        }
+
+        PythonParser.PrimaryContext items = itemsReceiver(iterable);
+        Object receiver = items == null || targets.size() != 2 ? null : visit(items);
+        if (receiver instanceof PyExpr expr && expr.type(this) instanceof Type type && type.getSort() == Type.OBJECT
+                && isSubtype(classpath().find(type.getInternalName()), "java/util/Map")) {
+            loadExpr(items, receiver);
+            writer.invokeInterface("java/util/Map", "entrySet", "()Ljava/util/Set;", true);
+            writer.invokeInterface("java/util/Set", "iterator", "()Ljava/util/Iterator;", true);
+            return iteratorLoop(ctx, () -> {
+                Context context = writer.getContext();
+                context.pop();
+                mv.visitTypeInsn(CHECKCAST, "java/util/Map$Entry");
+                mv.visitInsn(DUP);
+                mv.visitMethodInsn(INVOKEINTERFACE, "java/util/Map$Entry", "getKey", "()Ljava/lang/Object;", true);
+                context.push(Type.getType(Object.class));
+                binds.get(0).run();
+                mv.visitMethodInsn(INVOKEINTERFACE, "java/util/Map$Entry", "getValue", "()Ljava/lang/Object;", true);
+                context.push(Type.getType(Object.class));
+                binds.get(1).run();
+            }, () -> {});
+        }
+
+        int values = allocateLocal(Type.getType(Object[].class));
+        loadExpr(iterable, visit(iterable));
+        return iterableLoop(ctx, iterable, () -> {
+            writer.coerce(Type.getType(Object.class));
+            mv.visitLdcInsn(targets.size());
+            writer.getContext().push(Type.INT_TYPE);
+            writer.invokeStatic("pythonvm/builtins/BuiltinsPy", "unpack", "(Ljava/lang/Object;I)[Ljava/lang/Object;", false);
+            writer.storeValue(values, Type.getType(Object[].class));
+            for (int i = 0; i < binds.size(); i++) {
+                mv.visitVarInsn(ALOAD, values);
+                mv.visitLdcInsn(i);
+                mv.visitInsn(AALOAD);
+                writer.getContext().push(Type.getType(Object.class));
+                binds.get(i).run();
+            }
+        }, () -> {});
+    }
+
+    /**
+     * Walks the arguments of {@code zip} in lockstep, stopping as soon as one of them runs out.
+     */
+    private Object zipLoop(PythonParser.For_stmtContext ctx, List<PythonParser.ExpressionContext> iterables, List<Runnable> binds) {
+        int[] iterators = new int[iterables.size()];
+        for (int i = 0; i < iterables.size(); i++) {
+            PythonParser.ExpressionContext iterable = iterables.get(i);
+            loadExpr(iterable, visit(iterable));
+            toIterator(iterable);
+            iterators[i] = allocateLocal(Type.getType(Iterator.class));
+            writer.storeValue(iterators[i], Type.getType(Iterator.class));
+        }
+
+        Label condition = new Label();
+        Label exhausted = new Label();
+        Label loopEnd = new Label();
+
+        mv.visitLabel(condition);
+        for (int iterator : iterators) {
+            mv.visitVarInsn(ALOAD, iterator);
+            mv.visitMethodInsn(INVOKEINTERFACE, "java/util/Iterator", "hasNext", "()Z", true);
+            mv.visitJumpInsn(IFEQ, exhausted);
+        }
+        loopBody(ctx, () -> {
+            for (int i = 0; i < iterators.length; i++) {
+                mv.visitVarInsn(ALOAD, iterators[i]);
+                mv.visitMethodInsn(INVOKEINTERFACE, "java/util/Iterator", "next", "()Ljava/lang/Object;", true);
+                writer.getContext().push(Type.getType(Object.class));
+                binds.get(i).run();
+            }
+        }, condition, loopEnd);
+        mv.visitJumpInsn(GOTO, condition);
+
+        loopElse(ctx, exhausted, loopEnd);
+        return Unit.Instance;
+    }
+
+    /**
+     * Returns the positional arguments of a call to the builtin {@code name}, or {@code null} if the expression is
+     * anything else.
+     */
+    @Nullable List<PythonParser.ExpressionContext> builtinCall(PythonParser.@Nullable ExpressionContext expression, String name) {
+        if (expression == null) return null;
+        Symbol symbol = symbols.get(name);
+        if (symbol != null && !(symbol instanceof PyBuiltinClass) && !(symbol instanceof PyBuiltinFunction)) return null;
+
+        PythonParser.PrimaryContext call = call(expression);
+        if (call == null) return null;
+        PythonParser.AtomContext callee = call.primary().atom();
+        if (callee == null || callee.NAME() == null || !callee.NAME().getText().equals(name)) return null;
+
+        PythonParser.ArgumentsContext arguments = call.arguments();
+        if (arguments == null) return null;
+        PythonParser.ArgsContext args = arguments.args();
+        if (args.kwargs() != null || !args.starred_expression().isEmpty() || !args.assignment_expression().isEmpty()) {
+            return null;
+        }
+        List<PythonParser.ExpressionContext> expressions = args.expression();
+        return expressions.isEmpty() ? null : expressions;
+    }
+
+    /**
+     * Returns {@code d} for an expression {@code d.items()}, or {@code null} if it's anything else.
+     */
+    private PythonParser.@Nullable PrimaryContext itemsReceiver(PythonParser.ExpressionContext expression) {
+        PythonParser.PrimaryContext call = call(expression);
+        if (call == null || call.arguments() != null) return null;
+        PythonParser.PrimaryContext method = call.primary();
+        if (method.DOT() == null || !method.NAME().getText().equals("items")) return null;
+        return method.primary();
+    }
+
+    private PythonParser.@Nullable PrimaryContext call(PythonParser.ExpressionContext expression) {
+        ParseTree node = expression;
+        while (node != null && !(node instanceof PythonParser.PrimaryContext) && node.getChildCount() == 1) {
+            node = node.getChild(0);
+        }
+        if (!(node instanceof PythonParser.PrimaryContext call) || call.LPAR() == null || call.primary() == null) return null;
+        return call;
+    }
+
+    /**
+     * Compiles {@code for x in range(...)} to a counted loop over a {@code long}, without creating the range or an
+     * iterator.
+     */
+    private Object rangeLoop(PythonParser.For_stmtContext ctx, List<PythonParser.ExpressionContext> range) {
+        Runnable bind = target(ctx, localTypes == null ? null : localTypes.definition(ctx), ctx.star_targets().getText());
+
+        // The arguments are evaluated once, in order, like the call to range() would.
+        int counter = allocateLocal(Type.LONG_TYPE);
+        int stop = allocateLocal(Type.LONG_TYPE);
+        if (range.size() == 1) {
+            mv.visitInsn(LCONST_0);
+            mv.visitVarInsn(LSTORE, counter);
+        } else {
+            loadIntegerArgument(range.getFirst());
+            writer.storeValue(counter, Type.LONG_TYPE);
+        }
+        loadIntegerArgument(range.get(range.size() == 1 ? 0 : 1));
+        writer.storeValue(stop, Type.LONG_TYPE);
+
+        long constantStep = 1;
+        int step = -1;
+        if (range.size() == 3) {
+            Object stepValue = visit(range.get(2));
+            if (ConstantFolder.literal(stepValue) instanceof Long value) {
+                if (value == 0) {
+                    throw new CompilerException("range() arg 3 must not be zero " + getLocation(range.get(2)));
+                }
+                constantStep = value;
+            } else {
+                loadIntegerArgument(range.get(2), stepValue);
+                step = allocateLocal(Type.LONG_TYPE);
+                writer.storeValue(step, Type.LONG_TYPE);
+
+                Label nonZero = new Label();
+                mv.visitVarInsn(LLOAD, step);
+                mv.visitInsn(LCONST_0);
+                mv.visitInsn(LCMP);
+                mv.visitJumpInsn(IFNE, nonZero);
+                mv.visitTypeInsn(NEW, "java/lang/IllegalArgumentException");
+                mv.visitInsn(DUP);
+                mv.visitLdcInsn("range() arg 3 must not be zero");
+                mv.visitMethodInsn(INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>", "(Ljava/lang/String;)V", false);
+                mv.visitInsn(ATHROW);
+                mv.visitLabel(nonZero);
+            }
+        }
+
+        Label condition = new Label();
+        Label body = new Label();
+        Label next = new Label();
+        Label exhausted = new Label();
+        Label loopEnd = new Label();
+
+        mv.visitLabel(condition);
+        if (step < 0) {
+            // The direction is known, so this is the plain `i < stop` (or `i > stop`) test the JIT recognizes.
+            mv.visitVarInsn(LLOAD, counter);
+            mv.visitVarInsn(LLOAD, stop);
+            mv.visitInsn(LCMP);
+            mv.visitJumpInsn(constantStep > 0 ? IFGE : IFLE, exhausted);
+        } else {
+            Label descending = new Label();
+            mv.visitVarInsn(LLOAD, step);
+            mv.visitInsn(LCONST_0);
+            mv.visitInsn(LCMP);
+            mv.visitJumpInsn(IFLT, descending);
+            mv.visitVarInsn(LLOAD, counter);
+            mv.visitVarInsn(LLOAD, stop);
+            mv.visitInsn(LCMP);
+            mv.visitJumpInsn(IFGE, exhausted);
+            mv.visitJumpInsn(GOTO, body);
+            mv.visitLabel(descending);
+            mv.visitVarInsn(LLOAD, counter);
+            mv.visitVarInsn(LLOAD, stop);
+            mv.visitInsn(LCMP);
+            mv.visitJumpInsn(IFLE, exhausted);
+        }
+
+        mv.visitLabel(body);
+        writer.loadValue(counter, Type.LONG_TYPE);
+        loopBody(ctx, bind, next, loopEnd);
+
+        mv.visitLabel(next);
+        if (step >= 0) {
+            Label descending = new Label();
+            Label advance = new Label();
+            mv.visitVarInsn(LLOAD, step);
+            mv.visitInsn(LCONST_0);
+            mv.visitInsn(LCMP);
+            mv.visitJumpInsn(IFLT, descending);
+            jumpIfLastStep(counter, stop, false, step, constantStep, exhausted);
+            mv.visitJumpInsn(GOTO, advance);
+            mv.visitLabel(descending);
+            jumpIfLastStep(counter, stop, true, step, constantStep, exhausted);
+            mv.visitLabel(advance);
+        } else if (constantStep != 1 && constantStep != -1) {
+            // Stepping by one from inside the range can't go past Long.MAX_VALUE or Long.MIN_VALUE, larger steps can
+            jumpIfLastStep(counter, stop, constantStep < 0, step, constantStep, exhausted);
+        }
+        mv.visitVarInsn(LLOAD, counter);
+        if (step < 0) {
+            mv.visitLdcInsn(constantStep);
+        } else {
+            mv.visitVarInsn(LLOAD, step);
+        }
+        mv.visitInsn(LADD);
+        mv.visitVarInsn(LSTORE, counter);
+        mv.visitJumpInsn(GOTO, condition);
+
+        loopElse(ctx, exhausted, loopEnd);
+        return Unit.Instance;
+    }
+
+    /**
+     * Jumps to {@code exhausted} if the next step would reach or pass {@code stop}, so the counter is never stepped out
+     * of the range and can't overflow. The distance left and the step size are compared unsigned, which holds every
+     * distance between two longs as well as the size of a {@code Long.MIN_VALUE} step.
+     */
+    private void jumpIfLastStep(int counter, int stop, boolean descending, int step, long constantStep, Label exhausted) {
+        mv.visitVarInsn(LLOAD, descending ? counter : stop);
+        mv.visitVarInsn(LLOAD, descending ? stop : counter);
+        mv.visitInsn(LSUB);
+        if (step >= 0) {
+            mv.visitVarInsn(LLOAD, step);
+            if (descending) mv.visitInsn(LNEG);
+        } else {
+            mv.visitLdcInsn(descending ? -constantStep : constantStep);
+        }
+        mv.visitMethodInsn(INVOKESTATIC, "java/lang/Long", "compareUnsigned", "(JJ)I", false);
+        mv.visitJumpInsn(IFLE, exhausted);
+    }
+
+    /**
+     * Compiles a loop over anything other than a range. The static type of the iterable picks how it's walked: arrays
+     * and {@link java.util.RandomAccess} lists by index, other Java iterables and iterators through their iterator,
+     * maps over their keys, and everything else through the {@code iter} builtin at runtime. The iterable has to be on
+     * top of the stack already.
+     */
+    private Object iterableLoop(PythonParser.For_stmtContext ctx, PythonParser.ExpressionContext iterable, Runnable bind, Runnable advance) {
+        Type type = writer.getContext().peek();
+
+        if (type.getSort() == Type.ARRAY) {
+            return arrayLoop(ctx, type, bind, advance);
+        }
+        ClassInfo info = PyVariable.isPrimitive(type) ? null : classpath().find(type.getInternalName());
+        if (isSubtype(info, "java/util/List") && isSubtype(info, "java/util/RandomAccess")) {
+            return listLoop(ctx, bind, advance);
+        }
+        toIterator(iterable);
+        return iteratorLoop(ctx, bind, advance);
+    }
+
+    /**
+     * Turns the iterable on top of the stack into an {@link Iterator}.
+     */
+    private void toIterator(PythonParser.ExpressionContext iterable) {
+        Type type = writer.getContext().peek();
+        if (PyVariable.isPrimitive(type)) {
+            throw new CompilerException("'" + type.getClassName() + "' object is not iterable " + getLocation(iterable));
+        }
+
+        ClassInfo info = type.getSort() == Type.ARRAY ? null : classpath().find(type.getInternalName());
+        if (isSubtype(info, "java/util/Map")) {
+            // Iterating a dict gives its keys
+            writer.invokeInterface("java/util/Map", "keySet", "()Ljava/util/Set;", true);
+            writer.invokeInterface("java/util/Set", "iterator", "()Ljava/util/Iterator;", true);
+        } else if (isSubtype(info, "java/lang/Iterable")) {
+            writer.invokeInterface("java/lang/Iterable", "iterator", "()Ljava/util/Iterator;", true);
+        } else if (!isSubtype(info, "java/util/Iterator")) {
+            writer.coerce(Type.getType(Object.class));
+            writer.invokeStatic("pythonvm/builtins/BuiltinsPy", "iter", "(Ljava/lang/Object;)Ljava/util/Iterator;", false);
+        }
+    }
+
+    private Object arrayLoop(PythonParser.For_stmtContext ctx, Type type, Runnable bind, Runnable advance) {
+        Type elementType = Type.getType(type.getDescriptor().substring(1));
+        int array = allocateLocal(type);
+        int length = allocateLocal(Type.INT_TYPE);
+        int index = allocateLocal(Type.INT_TYPE);
+        writer.storeValue(array, type);
+        // Arrays can't grow, so the length is read once.
+        mv.visitVarInsn(ALOAD, array);
+        mv.visitInsn(ARRAYLENGTH);
+        mv.visitVarInsn(ISTORE, length);
+        mv.visitInsn(ICONST_0);
+        mv.visitVarInsn(ISTORE, index);
+
+        Label condition = new Label();
+        Label next = new Label();
+        Label exhausted = new Label();
+        Label loopEnd = new Label();
+
+        mv.visitLabel(condition);
+        mv.visitVarInsn(ILOAD, index);
+        mv.visitVarInsn(ILOAD, length);
+        mv.visitJumpInsn(IF_ICMPGE, exhausted);
+        mv.visitVarInsn(ALOAD, array);
+        mv.visitVarInsn(ILOAD, index);
+        mv.visitInsn(elementType.getOpcode(IALOAD));
+        writer.getContext().push(elementType);
+        loopBody(ctx, bind, next, loopEnd);
+
+        mv.visitLabel(next);
+        advance.run();
+        mv.visitIincInsn(index, 1);
+        mv.visitJumpInsn(GOTO, condition);
+
+        loopElse(ctx, exhausted, loopEnd);
+        return Unit.Instance;
+    }
+
+    private Object listLoop(PythonParser.For_stmtContext ctx, Runnable bind, Runnable advance) {
+        int list = allocateLocal(Type.getType(List.class));
+        int index = allocateLocal(Type.INT_TYPE);
+        writer.storeValue(list, writer.getContext().peek());
+        mv.visitInsn(ICONST_0);
+        mv.visitVarInsn(ISTORE, index);
+
+        Label condition = new Label();
+        Label next = new Label();
+        Label exhausted = new Label();
+        Label loopEnd = new Label();
+
+        // The size is checked on every iteration, so elements appended by the body are visited too, like in Python.
+        mv.visitLabel(condition);
+        mv.visitVarInsn(ILOAD, index);
+        mv.visitVarInsn(ALOAD, list);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/util/List", "size", "()I", true);
+        mv.visitJumpInsn(IF_ICMPGE, exhausted);
+        mv.visitVarInsn(ALOAD, list);
+        mv.visitVarInsn(ILOAD, index);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/util/List", "get", "(I)Ljava/lang/Object;", true);
+        writer.getContext().push(Type.getType(Object.class));
+        loopBody(ctx, bind, next, loopEnd);
+
+        mv.visitLabel(next);
+        advance.run();
+        mv.visitIincInsn(index, 1);
+        mv.visitJumpInsn(GOTO, condition);
+
+        loopElse(ctx, exhausted, loopEnd);
+        return Unit.Instance;
+    }
+
+    private Object iteratorLoop(PythonParser.For_stmtContext ctx, Runnable bind, Runnable advance) {
+        int iterator = allocateLocal(Type.getType(Iterator.class));
+        writer.storeValue(iterator, Type.getType(Iterator.class));
+
+        Label condition = new Label();
+        Label next = new Label();
+        Label exhausted = new Label();
+        Label loopEnd = new Label();
+
+        mv.visitLabel(condition);
+        mv.visitVarInsn(ALOAD, iterator);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/util/Iterator", "hasNext", "()Z", true);
+        mv.visitJumpInsn(IFEQ, exhausted);
+        mv.visitVarInsn(ALOAD, iterator);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/util/Iterator", "next", "()Ljava/lang/Object;", true);
+        writer.getContext().push(Type.getType(Object.class));
+        loopBody(ctx, bind, next, loopEnd);
+
+        mv.visitLabel(next);
+        advance.run();
+        mv.visitJumpInsn(GOTO, condition);
+
+        loopElse(ctx, exhausted, loopEnd);
+        return Unit.Instance;
+    }
 
-        throw new RuntimeException("No supported matching for_stmt found for:\n" + ctx.getText());
+    /**
+     * Returns the code storing the value on top of the stack into a loop target.
+     */
+    private Runnable target(PythonParser.For_stmtContext ctx, LocalTypes.@Nullable Web web, String name) {
+        if (web == null || web.slot() < 0) {
+            throw new CompilerException("Unsupported for loop target '" + ctx.star_targets().getText() + "' " + getLocation(ctx));
+        }
+        return () -> {
+            writer.coerce(web.type());
+            writer.storeValue(web.slot(), web.type());
+            symbols.put(name, new PyVariable(name, web.type(), web.slot(), ctx.start.getLine(), false, new Label()));
+        };
+    }
+
+    /**
+     * Binds the loop targets and compiles the loop body, where {@code continue} goes to {@code next} and {@code break}
+     * to {@code loopEnd}.
+     */
+    private void loopBody(PythonParser.For_stmtContext ctx, Runnable bind, Label next, Label loopEnd) {
+        bind.run();
+
+        // region Loop(block)
+        Context loopContext = new ForLoopContext(next, loopEnd);
+        pushContext(loopContext);
+        visit(ctx.block());
+        if (loopContext.needsPop()) {
+            throw new RuntimeException("Still values on stack for:\n" + ctx.getText());
+        }
+        popContext();
+        // endregion Loop
+    }
+
+    /**
+     * The else block only runs when the loop ran out of elements, a {@code break} jumps past it.
+     */
+    private void loopElse(PythonParser.For_stmtContext ctx, Label exhausted, Label loopEnd) {
+        mv.visitLabel(exhausted);
+        if (ctx.else_block() != null) {
+            // region Else(block)
+            visit(ctx.else_block().block());
+            // endregion Else
+        }
+        mv.visitLabel(loopEnd);
+    }
+
+    private boolean isSubtype(@Nullable ClassInfo info, String internalName) {
+        if (info == null) return false;
+        ClassInfo type = classpath().find(internalName);
+        return type != null && type.isAssignableFrom(info);
+    }
+
+    private void loadIntegerArgument(PythonParser.ExpressionContext ctx) {
+        loadIntegerArgument(ctx, visit(ctx));
+    }
+
+    private void loadIntegerArgument(PythonParser.ExpressionContext ctx, Object value) {
+        loadExpr(ctx, value);
+        Type type = writer.getContext().peek();
+        if (type.equals(Type.DOUBLE_TYPE) || type.equals(Type.FLOAT_TYPE) || type.equals(Type.getType(String.class))) {
+            throw new CompilerException("'" + ctx.getText() + "' must be an integer " + getLocation(ctx));
+        }
+        writer.coerce(Type.LONG_TYPE);
     }
 
     @Override
     public Object visitWhile_stmt(PythonParser.While_stmtContext ctx) {
+        PythonParser.Named_expressionContext namedExpressionContext = ctx.named_expression();
+        if (namedExpressionContext == null) {
+            throw new RuntimeException("No supported matching named_expression found for:\n" + ctx.getText());
+        }
+        Object condition = visit(namedExpressionContext);
+        Boolean constant = ConstantFolder.truth(condition);
+        if (Boolean.FALSE.equals(constant)) {
+            // The body never runs, only the else block does.
+            if (ctx.else_block() != null) {
+                visit(ctx.else_block().block());
+            }
+            return Unit.Instance;
+        }
+
         Label loopStart = new Label();
         Label loopEnd = new Label();
         Label elseBlock = null;
-        if (ctx.else_block() != null) {
+        if (ctx.else_block() != null && constant == null) {
             elseBlock = new Label();
         }
 
@@ -359,16 +1022,12 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         mv.visitLabel(loopStart);
 
         // region Comparison(named_expression)
-        pushContext(new WhileConditionContext(loopEnd, elseBlock));
-        PythonParser.Named_expressionContext namedExpressionContext = ctx.named_expression();
-        if (namedExpressionContext != null) {
-            Object visit = visit(namedExpressionContext);
-            loadExpr(ctx, visit);
-        } else {
-            throw new RuntimeException("No supported matching named_expression found for:\n" + ctx.getText());
+        Context context = new WhileConditionContext(loopEnd, elseBlock);
+        if (constant == null) {
+            pushContext(context);
+            loadExpr(ctx, condition);
+            popContext();
         }
-        Context context = writer.getContext();
-        popContext();
         // endregion Comparison
 
         // region Loop(block)
@@ -409,6 +1068,25 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
 
     @Override
     public Object visitIf_stmt(PythonParser.If_stmtContext ctx) {
+        PythonParser.Named_expressionContext namedExpressionContext = ctx.named_expression();
+        Object condition = namedExpressionContext != null ? visit(namedExpressionContext) : null;
+        Boolean constant = ConstantFolder.truth(condition);
+        if (constant != null) {
+            // Only the arm that's taken is compiled.
+            if (constant) {
+                visit(ctx.block());
+            } else if (ctx.elif_stmt() != null) {
+                Label endLabel = new Label();
+                pushContext(new IfStatementContext(null, endLabel));
+                visit(ctx.elif_stmt());
+                writer.label(endLabel);
+                popContext();
+            } else if (ctx.else_block() != null) {
+                visit(ctx.else_block());
+            }
+            return Unit.Instance;
+        }
+
         Label endLabel = new Label(); // Marks the end of the if-else block
         Label elseLabel = new Label(); // Marks the start of the else block (if present)
 
@@ -423,9 +1101,8 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         this.pushContext(context);
 
         // Visit and evaluate the "if" condition
-        PythonParser.Named_expressionContext namedExpressionContext = ctx.named_expression();
         if (namedExpressionContext != null) {
-            Object visit = visit(namedExpressionContext);// Generates bytecode for the condition
+            Object visit = condition;
             switch (visit) {
                 case PyConstant pyConstant -> {
                     if (mv == null) {
@@ -517,6 +1194,18 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
 
         // Evaluate condition
         Object visit = visit(ctx.named_expression());
+        Boolean constant = ConstantFolder.truth(visit);
+        if (constant != null) {
+            // Only the arm that's taken is compiled, the enclosing if statement marks the end label.
+            if (constant) {
+                visit(ctx.block());
+            } else if (ctx.elif_stmt() != null) {
+                visit(ctx.elif_stmt());
+            } else if (ctx.else_block() != null) {
+                visit(ctx.else_block());
+            }
+            return Unit.Instance;
+        }
         loadConstant(ctx, visit, mv);
         context.pop();
         writer.jumpIfEqual(jumpTarget);
@@ -542,11 +1231,11 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         return Unit.Instance;
     }
 
-    private void popContext() {
+    void popContext() {
         contextStack.pop();
     }
 
-    private void pushContext(Context ifStatementContext) {
+    void pushContext(Context ifStatementContext) {
         contextStack.push(ifStatementContext);
     }
 
@@ -627,35 +1316,51 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
             }
         }
 
-        StringBuilder signature = new StringBuilder();
-        for (TypedName typedName : parmeters) {
+        Type object = Type.getType(Object.class);
+        @Nullable Type inherited = cw == rootCw ? null : inheritedMethodType(name.getText(), parmeters.size());
+        Type[] paramTypes = new Type[parmeters.size()];
+        for (int i = 0; i < parmeters.size(); i++) {
+            TypedName typedName = parmeters.get(i);
             if (typedName.type() == null) {
                 throw new RuntimeException("No type found for:\n" + ctx.getText());
             }
-            Symbol symbol = imports.get(typedName.type());
-            if (symbol == null) {
-                throw new RuntimeException("No import found for " + typedName.type() + " " + getLocation(ctx));
-            }
-            String s = symbol.name();
-            if (s == null) {
-                throw new RuntimeException("No import found for " + symbol.type(this) + " " + getLocation(ctx));
+            if (inherited != null && typedName.type().equals(object)) {
+                // Unannotated parameters take the type of the method being overridden
+                typedName = new TypedName(typedName.name(), inherited.getArgumentTypes()[i]);
+                parmeters.set(i, typedName);
             }
-            signature.append(s).append("L").append(typedName.name()).append(";");
+            paramTypes[i] = typedName.type();
+        }
+
+        Type returnType;
+        if (ctx.expression() != null) {
+            returnType = annotationType(ctx.expression());
+        } else if (name.getText().equals("__init__")) {
+            returnType = Type.VOID_TYPE;
+        } else {
+            returnType = inherited != null ? inherited.getReturnType() : object;
         }
-        String sig = "";
 
-        // TODO
-        Type returnType = Type.VOID_TYPE;
+        String jvmName;
+        int access;
+        if (name.getText().startsWith("__")) {
+            access = ACC_PRIVATE + (static_ ? ACC_STATIC : 0) + (class_ ? ACC_STATIC : 0);
+            jvmName = name.getText().substring(2);
+        } else {
+            access = ACC_PUBLIC + (static_ ? ACC_STATIC : 0) + (class_ ? ACC_STATIC : 0);
+            jvmName = name.getText().startsWith("_") ? name.getText().substring(1) : name.getText();
+        }
+        mv = cw.visitMethod(access, jvmName, Type.getMethodDescriptor(returnType, paramTypes), null, null);
 
-        if (name.getText().startsWith("__"))
-            mv = cw.visitMethod(ACC_PRIVATE + (static_ ? ACC_STATIC : 0) + (class_ ? ACC_STATIC : 0), name.getText().substring(2), "(" + sig + ")" + returnType.getDescriptor(), null, null);
-        else {
-            int access = ACC_PUBLIC + (static_ ? ACC_STATIC : 0) + (class_ ? ACC_STATIC : 0);
-            if (name.getText().startsWith("_"))
-                mv = cw.visitMethod(access, name.getText().substring(1), "(" + sig + ")" + returnType.getDescriptor(), null, null);
-            else
-                mv = cw.visitMethod(access, name.getText(), "(" + sig + ")" + returnType.getDescriptor(), null, null);
+        if (cw == rootCw) {
+            // Registered before the body is compiled so recursive calls resolve too
+            symbols.put(name.getText(), new PyModuleFunction(Type.getObjectType(getName()), name.getText(), jvmName, paramTypes, returnType, ctx.start.getLine()));
         }
+        Type oldReturnType = currentReturnType;
+        currentReturnType = returnType;
+        int oldVariableIndex = currentVariableIndex;
+        currentVariableIndex = static_ || class_ ? 0 : 1;
+        LocalTypes oldLocalTypes = localTypes;
 
         endLabel = new Label();
         endLabel.info = 100000;
@@ -675,22 +1380,23 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
             pushContext(functionContext);
 
             PyClass oldDefiningInstance = definingInstance;
-            Map<String, Symbol> oldSymbols = null;
+            Map<String, Symbol> oldSymbols = new HashMap<>(symbols);
             if (definingClass != null) {
                 definingInstance = definingClass;
-                oldSymbols = new HashMap<>(symbols);
-
-                for (TypedName parmeter : parmeters) {
-                    TypedName parmeter1 = parmeter;
-                    createVariable(parmeter1.name(), parmeter1.type(), ctx.start.getLine(), false);
-                }
+            }
+            localTypes = LocalTypes.infer(this, block, parmeters);
+            for (TypedName parmeter : parmeters) {
+                createParameter(parmeter.name(), parmeter.type(), ctx.start.getLine());
+            }
+            for (LocalTypes.Web web : localTypes.locals()) {
+                // Every local starts out initialized, so slots merged from paths that never assigned them still verify
+                web.slot(allocateLocal(web.type()));
+                writer.storeDefault(web.slot(), web.type());
             }
             visit(block);
             definingInstance = oldDefiningInstance;
-            if (oldSymbols != null) {
-                symbols.clear();
-                symbols.putAll(oldSymbols);
-            }
+            symbols.clear();
+            symbols.putAll(oldSymbols);
 
             popContext();
             while (functionContext.needsPop()) {
@@ -700,12 +1406,15 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
 
 //            writer.label(endLabel);
 
-            writer.returnVoid();
+            writer.returnDefault(returnType);
             writer.end();
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException(e);
         } finally {
+            currentReturnType = oldReturnType;
+            currentVariableIndex = oldVariableIndex;
+            localTypes = oldLocalTypes;
             flags.clear(F_CPL_STATIC_FUNC);
             flags.clear(F_CPL_CLASS_FUNC);
             flags.clear(F_CPL_INSTANCE_FUNC);
@@ -713,14 +1422,134 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
             mv = null;
         }
 
+        if ((access & ACC_PUBLIC) != 0 && !Arrays.stream(paramTypes).allMatch(object::equals)) {
+            writeBridge(access, cw == rootCw ? getName() : definingInternalName, jvmName, paramTypes, returnType);
+        }
+
         if (curPyClass != null) {
-            curPyClass.methods.computeIfAbsent(name.getText(), v -> new ArrayList<>()).add(new PyFunction(curPyClass, name.getText(), parmeters.stream().map(TypedName::type).toArray(Type[]::new), returnType, ctx.start.getLine()));
+            curPyClass.methods.computeIfAbsent(name.getText(), v -> new ArrayList<>()).add(new PyFunction(curPyClass, name.getText(), paramTypes, returnType, ctx.start.getLine()));
         }
         return Unit.Instance;
     }
 
+    /**
+     * Resolves a type annotation to the JVM type it compiles to. Builtin numbers and booleans stay unboxed.
+     */
+    Type annotationType(PythonParser.ExpressionContext ctx) {
+        if (ctx.getText().equals("None")) {
+            return Type.VOID_TYPE;
+        }
+
+        Object visit;
+        flags.set(F_CPL_TYPE_ANNO);
+        try {
+            visit = visit(ctx);
+        } finally {
+            flags.clear(F_CPL_TYPE_ANNO);
+        }
+
+        if (!(visit instanceof PyObjectRef(String name, int lineNo))) {
+            throw new CompilerException("Unsupported type annotation '" + ctx.getText() + "' " + getLocation(ctx));
+        }
+        Symbol symbol = symbols.get(name);
+        if (symbol == null) {
+            symbol = imports.get(name);
+        }
+        return switch (symbol) {
+            case PyBuiltinClass builtinClass -> builtinClass.jvmUnboxed;
+            case null -> throw new CompilerException("Type '" + name + "' not found " + getLocation(ctx));
+            default -> symbol.type(this);
+        };
+    }
+
+    /**
+     * The class being compiled, named like its class file. Its fields have to be accessed through this name, the
+     * {@link PyClass} type is derived from the source path.
+     */
+    private Type definingType() {
+        if (definingInternalName == null) {
+            throw new IllegalStateException("Not inside a class");
+        }
+        return Type.getObjectType(definingInternalName);
+    }
+
+    /**
+     * The descriptor of the superclass or interface method a class method overrides, so that an unannotated
+     * {@code run(self)} still implements {@code Runnable.run()V}.
+     */
+    private @Nullable Type inheritedMethodType(String name, int parameterCount) {
+        if (definingInternalName == null) return null;
+        JvmClassCache.CompiledClass compiled = classCache.getCompiled(definingInternalName);
+        if (compiled == null) return null;
+
+        List<String> supertypes = new ArrayList<>();
+        if (compiled.superName() != null) supertypes.add(compiled.superName());
+        supertypes.addAll(List.of(compiled.interfaces()));
+        for (String supertype : supertypes) {
+            ClassInfo info = classpath().find(supertype);
+            if (info == null) continue;
+            for (MethodInfo method : info.getMethods(name)) {
+                if (!method.isStatic() && method.getParameterCount() == parameterCount) {
+                    return method.asmType();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes an overload of a function that takes and returns boxed values. It unboxes its arguments and delegates
+     * to the typed method, so dynamic callers that only know the argument count can still reach it.
+     */
+    private void writeBridge(int access, String owner, String jvmName, Type[] paramTypes, Type returnType) {
+        boolean static_ = (access & ACC_STATIC) != 0;
+        Type[] boxedTypes = new Type[paramTypes.length];
+        Arrays.fill(boxedTypes, Type.getType(Object.class));
+
+        MethodVisitor bridge = cw.visitMethod(access | ACC_SYNTHETIC | ACC_BRIDGE, jvmName, Type.getMethodDescriptor(Type.getType(Object.class), boxedTypes), null, null);
+        bridge.visitCode();
+        int index = 0;
+        if (!static_) {
+            bridge.visitVarInsn(ALOAD, index++);
+        }
+        for (Type paramType : paramTypes) {
+            bridge.visitVarInsn(ALOAD, index++);
+            switch (paramType.getSort()) {
+                case Type.BOOLEAN -> {
+                    bridge.visitTypeInsn(CHECKCAST, "java/lang/Boolean");
+                    bridge.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Boolean", "booleanValue", "()Z", false);
+                }
+                case Type.CHAR -> {
+                    bridge.visitTypeInsn(CHECKCAST, "java/lang/Character");
+                    bridge.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Character", "charValue", "()C", false);
+                }
+                case Type.BYTE, Type.SHORT, Type.INT, Type.LONG, Type.FLOAT, Type.DOUBLE -> {
+                    // Any Number is accepted, so an Integer from Java still reaches an int (long) parameter
+                    bridge.visitTypeInsn(CHECKCAST, "java/lang/Number");
+                    bridge.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Number", paramType.getClassName() + "Value", "()" + paramType.getDescriptor(), false);
+                }
+                default -> {
+                    if (!paramType.equals(Type.getType(Object.class))) {
+                        bridge.visitTypeInsn(CHECKCAST, paramType.getInternalName());
+                    }
+                }
+            }
+        }
+        bridge.visitMethodInsn(static_ ? INVOKESTATIC : INVOKEVIRTUAL, owner, jvmName, Type.getMethodDescriptor(returnType, paramTypes), false);
+        if (returnType.equals(Type.VOID_TYPE)) {
+            bridge.visitInsn(ACONST_NULL);
+        } else if (PyVariable.isPrimitive(returnType)) {
+            Type boxed = writer.boxType(returnType);
+            bridge.visitMethodInsn(INVOKESTATIC, boxed.getInternalName(), "valueOf", "(" + returnType.getDescriptor() + ")" + boxed.getDescriptor(), false);
+        }
+        bridge.visitInsn(ARETURN);
+        bridge.visitMaxs(0, 0);
+        bridge.visitEnd();
+    }
+
     @Override
     public Object visitBlock(PythonParser.BlockContext ctx) {
+        restoreLocals(ctx);
         PythonParser.StatementsContext statementsContext = ctx.statements();
         if (statementsContext != null) {
             return visit(statementsContext);
@@ -752,20 +1581,6 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
             }
 
             typedNames.add(typedName);
-
-            if (flags.get(F_CPL_FUNCTION)) {
-                // TODO
-                throw new AssertionError("DEBUG");
-//                if (visit.equals("self")) {
-//                    if (!flags.get(F_CPL_INSTANCE_FUNC)) {
-//                        throw new CompilerException("self on a non-instance method:\n" + ctx.getText());
-//                    } else {
-//                        return Unit.Instance;
-//                    }
-//                }
-            } else {
-                throw new RuntimeException("param_no_default not supported for:\n" + ctx.getText());
-            }
         }
 
         for (int i = 0; i < ctx.param_with_default().size(); i++) {
@@ -801,15 +1616,15 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
 
     @Override
     public Object visitParam(PythonParser.ParamContext ctx) {
-        PythonParser.AnnotationContext annotation = ctx.annotation();
-        if (annotation != null) {
-            throw new RuntimeException("annotation not supported for:\n" + ctx.getText());
-        }
-
         TerminalNode name = ctx.NAME();
         if (name == null) {
             throw new RuntimeException("No NAME found for:\n" + ctx.getText());
         }
+
+        PythonParser.AnnotationContext annotation = ctx.annotation();
+        if (annotation != null) {
+            return new TypedName(name.getText(), annotationType(annotation.expression()));
+        }
         return name.getText();
     }
 
@@ -867,60 +1682,31 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
     @Override
     public Object visitClass_def_raw(PythonParser.Class_def_rawContext ctx) {
         TerminalNode name = ctx.NAME();
-        cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
-
-        String superClass = "java/lang/Object";
-        List<String> implementing = new ArrayList<>();
-        PythonParser.ArgumentsContext arguments = ctx.arguments();
-        if (arguments != null) {
-            flags.set(F_CPL_CLASS_INHERITANCE);
-            try {
-                Object visit = visit(arguments);
-                if (visit == null) {
-                    throw new RuntimeException("arguments not supported for:\n" + ctx.getText());
-                }
-
-                if (visit instanceof List<?> list) {
-                    for (Object o : list) {
-                        if (o instanceof String classname) {
-                            if (!classname.startsWith("L") || !classname.endsWith(";")) {
-                                throw new RuntimeException("Class not supported for:\n" + ctx.getText());
-                            }
-                            var normalName = classname.substring(1, classname.length() - 1).replace('/', '.');
-                            try {
-                                Class<?> type = Class.forName(normalName, false, getClass().getClassLoader());
-                                if (type.isInterface()) {
-                                    implementing.add(normalName.replace('.', '/'));
-                                } else if (superClass.equals("java/lang/Object") && type != Object.class) {
-                                    superClass = normalName.replace('.', '/');
-                                } else {
-                                    throw new CompilerException("Cannot inherit multiple super classes for: " + path.replace("/", ".") + name.getText() + " at " + getLocation(ctx));
-                                }
-                            } catch (ClassNotFoundException e) {
-                                throw new RuntimeException(e);
-                            }
-                        }
-                    }
-                }
-            } finally {
-                flags.clear(F_CPL_CLASS_INHERITANCE);
-            }
-        }
+        cw = new PyClassWriter(classCache, ClassWriter.COMPUTE_FRAMES);
 
-        cw.visit(V1_8, ACC_PUBLIC, path + fileName + "/" + name.getText(), null, superClass, implementing == null ? new String[0] : implementing.isEmpty() ? null : implementing.toArray(new String[0]));
+        ClassHeader header = classHeader(ctx);
+        String[] interfaces = header.interfaces();
+        cw.visit(V1_8, ACC_PUBLIC, path + fileName + "/" + name.getText(), null, header.superClass(), interfaces.length == 0 ? null : interfaces);
+        classCache.addCompiled(path + fileName + "/" + name.getText(), ACC_PUBLIC, header.superClass(), interfaces);
         String classname = (path + fileName + "/" + name.getText()).replace("/", ".");
         PyClass value = new PyClass(this.pathOfFile, name.getText(), ctx.start.getLine(), ctx.start.getCharPositionInLine());
         this.definingClass = value;
+        this.definingInternalName = path + fileName + "/" + name.getText();
         imports.add(name.getText(), value);
         undefinedClasses.remove(classname);
 
         curPyClass = value;
 
-        FieldVisitor self = cw.visitField(ACC_PUBLIC | ACC_FINAL, "__dict__", "Ljava/util/Map;", /*<String, Object>*/ "Ljava/util/Map<Ljava/lang/String;Ljava/lang/Object;>;", null);
-//        AnnotationVisitor annotationVisitor = self.visitAnnotation("pythonvm/vm/annotations/Generated", true);
-//        annotationVisitor.visit("reason", "Generated for Python interop");
-//        annotationVisitor.visitEnd();
-        self.visitEnd();
+        InstanceLayout layout = InstanceLayout.collect(this, ctx);
+        this.definingLayout = layout;
+        for (Map.Entry<String, Type> field : layout.fields().entrySet()) {
+            String fieldName = field.getKey();
+            cw.visitField(fieldName.startsWith("__") ? ACC_PRIVATE : ACC_PUBLIC, fieldName, field.getValue().getDescriptor(), null, null).visitEnd();
+            value.fields.put(fieldName, new PyField(definingType(), fieldName, field.getValue(), ctx.start.getLine()));
+        }
+        if (layout.hasDict()) {
+            writeLazyDict(definingInternalName);
+        }
 
         // Create default constructor
         mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
@@ -928,11 +1714,6 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         mv.visitVarInsn(ALOAD, 0);
         mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
         mv.visitVarInsn(ALOAD, 0);
-        mv.visitTypeInsn(NEW, "java/util/HashMap");
-        mv.visitInsn(DUP);
-        mv.visitMethodInsn(INVOKESPECIAL, "java/util/HashMap", "<init>", "()V", false);
-        mv.visitFieldInsn(PUTFIELD, path + fileName + "/" + name.getText(), "__dict__", "Ljava/util/Map;");
-        mv.visitVarInsn(ALOAD, 0);
         mv.visitMethodInsn(INVOKESPECIAL, path + fileName + "/" + name.getText(), "__init__", "()V", false);
         mv.visitInsn(RETURN);
         mv.visitMaxs(1, 1);
@@ -952,6 +1733,8 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         cw.visitEnd();
 
         definingClass = null;
+        definingInternalName = null;
+        definingLayout = null;
         classes.add(value);
         classCache.add(this, value);
         curPyClass = null;
@@ -959,13 +1742,7 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         byte[] bytes = cw.toByteArray();
 
         try {
-            String s = "build/tmp/compilePython/" + path + fileName;
-            if (!new File(s).exists()) {
-                new File(s).mkdirs();
-            }
-            FileOutputStream fileOutputStream = new FileOutputStream("build/tmp/compilePython/" + path + fileName + "/" + name.getText() + ".class");
-            fileOutputStream.write(bytes);
-            fileOutputStream.close();
+            writeOutput(path + fileName + "/" + name.getText() + ".class", bytes);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -974,6 +1751,32 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         return Unit.Instance;
     }
 
+    /**
+     * Writes the {@code __dict__} of a class, which is only allocated once an attribute outside of its instance fields
+     * is set.
+     */
+    private void writeLazyDict(String owner) {
+        cw.visitField(ACC_PRIVATE, "__dict__", "Ljava/util/Map;", "Ljava/util/Map<Ljava/lang/String;Ljava/lang/Object;>;", null).visitEnd();
+
+        MethodVisitor dict = cw.visitMethod(ACC_PUBLIC, "__dict__", "()Ljava/util/Map;", "()Ljava/util/Map<Ljava/lang/String;Ljava/lang/Object;>;", null);
+        dict.visitCode();
+        Label allocated = new Label();
+        dict.visitVarInsn(ALOAD, 0);
+        dict.visitFieldInsn(GETFIELD, owner, "__dict__", "Ljava/util/Map;");
+        dict.visitJumpInsn(IFNONNULL, allocated);
+        dict.visitVarInsn(ALOAD, 0);
+        dict.visitTypeInsn(NEW, "java/util/HashMap");
+        dict.visitInsn(DUP);
+        dict.visitMethodInsn(INVOKESPECIAL, "java/util/HashMap", "<init>", "()V", false);
+        dict.visitFieldInsn(PUTFIELD, owner, "__dict__", "Ljava/util/Map;");
+        dict.visitLabel(allocated);
+        dict.visitVarInsn(ALOAD, 0);
+        dict.visitFieldInsn(GETFIELD, owner, "__dict__", "Ljava/util/Map;");
+        dict.visitInsn(ARETURN);
+        dict.visitMaxs(3, 1);
+        dict.visitEnd();
+    }
+
     @Override
     public Object visitDecorators(PythonParser.DecoratorsContext ctx) {
         List<PythonParser.Named_expressionContext> namedExpressionContexts = ctx.named_expression();
@@ -1044,6 +1847,10 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         if (starExpressionsContext != null) {
             return visit(starExpressionsContext);
         }
+        PythonParser.Return_stmtContext returnStmtContext = ctx.return_stmt();
+        if (returnStmtContext != null) {
+            return visit(returnStmtContext);
+        }
         PythonParser.AssignmentContext assignment = ctx.assignment();
         if (assignment != null) {
             Object visit = visit(assignment);
@@ -1055,31 +1862,56 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
             return visit;
         }
 
-        TerminalNode aBreak = ctx.BREAK();
-        if (aBreak != null) {
-            Context context = writer.getLoopContext();
-            if (context instanceof WhileLoopContext whileConditionContext) {
-                mv.visitJumpInsn(GOTO, whileConditionContext.endLabel);
-                return Unit.Instance;
-//            } else if (writer.getContext() instanceof ForConditionContext) {
-//                ForConditionContext forConditionContext = (ForConditionContext) writer.getContext();
-//                mv.visitJumpInsn(GOTO, forConditionContext.loopEnd);
-//                return Unit.Instance;
-            } else {
-                throw new RuntimeException("Not in a loop:\n" + ctx.getText());
-            }
+        if (ctx.BREAK() != null) {
+            mv.visitJumpInsn(GOTO, writer.getLoopContext().getBreakLabel());
+            return Unit.Instance;
+        }
+        if (ctx.CONTINUE() != null) {
+            mv.visitJumpInsn(GOTO, writer.getLoopContext().getContinuationLabel());
+            return Unit.Instance;
         }
         throw new RuntimeException("No supported matching simple_stmt found of type " + ctx.getClass().getSimpleName() + " for:\n" + ctx.getText());
     }
 
+    @Override
+    public Object visitReturn_stmt(PythonParser.Return_stmtContext ctx) {
+        if (mv == null) {
+            throw new CompilerException("'return' outside function " + getLocation(ctx));
+        }
+
+        PythonParser.Star_expressionsContext value = ctx.star_expressions();
+        if (value == null) {
+            writer.returnDefault(currentReturnType);
+            return Unit.Instance;
+        }
+        if (currentReturnType.equals(Type.VOID_TYPE)) {
+            throw new CompilerException("Function returning None can't return a value " + getLocation(ctx));
+        }
+
+        PyExpr expr = constant(ctx, visit(value));
+        expr.load(mv, this, expr.preload(mv, this, false), false);
+        writer.coerce(currentReturnType);
+        writer.returnValue(currentReturnType);
+        return Unit.Instance;
+    }
+
     @Override
     public Object visitAssignment(PythonParser.AssignmentContext ctx) {
         flags.set(F_CPL_ASSIGN);
         try {
             curLabel = new Label();
+            if (definingLayout != null && definingLayout.declares(ctx)) {
+                // Field declarations, the fields themselves are written with the class
+                return Unit.Instance;
+            }
             TerminalNode name1 = ctx.NAME();
             @Nullable String name = name1 == null ? null : name1.getText();
 
+            PythonParser.Single_subscript_attribute_targetContext attributeTarget = ctx.single_subscript_attribute_target();
+            if (attributeTarget != null && attributeTarget.NAME() != null) {
+                return assignAnnotatedAttribute(ctx, attributeTarget);
+            }
+
             if (name == null) {
                 List<PythonParser.Star_targetsContext> starTargetsContexts = ctx.star_targets();
                 if (starTargetsContexts.size() != 1) {
@@ -1145,7 +1977,8 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
                         throw new RuntimeException("Expression for variable assignment wasn't found.");
                     }
 
-                    if (first instanceof JvmField field) {
+                    if (first instanceof JvmField || first instanceof DynamicAttribute) {
+                        Symbol field = (Symbol) first;
                         PyExpr expr = switch (visit1) {
                             case PyExpr pyExpr -> pyExpr;
                             case String string -> new PyConstant(string, ctx.start.getLine());
@@ -1198,6 +2031,9 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
                 }
 
                 if (mv == null) {
+                    if (constants.containsKey(name)) {
+                        throw new CompilerException("Cannot reassign Final name '" + name + "' " + getLocation(ctx));
+                    }
                     Type type = switch (visit1) {
                         case PyExpr symbol -> symbol.type(this);
                         case String string -> Type.getType(String.class);
@@ -1230,6 +2066,8 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
                     } else {
                         throw new RuntimeException("Not in root class");
                     }
+                } else if (localTypes != null && localTypes.definition(ctx) != null) {
+                    assignLocal(name, localTypes.definition(ctx), constant(ctx, visit1), ctx.start.getLine());
                 } else if (this.symbols.containsKey(name)) {
                     Symbol symbol = this.symbols.get(name);
                     if (symbol instanceof ImportedField importedField) {
@@ -1331,8 +2169,12 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
                 if (value == null) {
                     throw new CompilerException("Annotated RHS is required " + getLocation(ctx));
                 }
-                System.out.println("annotatedRhsContext = " + value.getText());
+                if (Log.DEBUG) System.out.println("annotatedRhsContext = " + value.getText());
                 Object visit = visit(value);
+                if (mv == null && cw == rootCw && isFinalAnnotation(expressionContext)) {
+                    defineFinal(ctx, name, visit);
+                    return Unit.Instance;
+                }
                 flags.set(F_CPL_TYPE_ANNO);
                 Object visit1;
                 try {
@@ -1357,6 +2199,8 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
                         a.load(rootInitMv, this, a.preload(rootInitMv, this, false), false);
                         rootInitMv.visitFieldInsn(PUTSTATIC, getName(), name, type.getDescriptor());
                     }
+                } else if (localTypes != null && localTypes.definition(ctx) != null) {
+                    assignLocal(name, localTypes.definition(ctx), constant(ctx, visit), ctx.start.getLine());
                 } else {
                     createVariable(name, switch (visit1) {
                         case FuncCall funcCall -> funcCall.name();
@@ -1436,6 +2280,9 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
             PyClass pyClass = self.typeClass(this);
             JvmField field = pyClass.field(this, name.getText());
             if (field == null) {
+                if (definingLayout != null && !definingLayout.hasDict()) {
+                    throw new CompilerException("'" + pyClass.name() + "' object has no attribute '" + name.getText() + "' in its __slots__ " + getLocation(ctx));
+                }
                 int access;
                 if (name.getText().startsWith("__")) {
                     access = ACC_PRIVATE;
@@ -1445,13 +2292,17 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
                     access = ACC_PUBLIC;
                 }
                 FieldVisitor fieldVisitor = cw.visitField(access, name.getText(), "Ljava/lang/Object;", null, null);
-                PyField value = new PyField(pyClass.type(this), name.getText(), Type.getType(Object.class), ctx.start.getLine());
+                PyField value = new PyField(definingType(), name.getText(), Type.getType(Object.class), ctx.start.getLine());
                 pyClass.fields.put(name.getText(), value);
                 return value;
             }
 //            self.load(mv, this, self.preload(mv, this, false), false);
             return field;
         }
+        PyVariable receiver = dynamicReceiver(visit);
+        if (receiver != null) {
+            return new DynamicAttribute(receiver, name.getText(), ctx.start.getLine());
+        }
 
         throw new AssertionError("DEBUG");
     }
@@ -1464,7 +2315,7 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         }
         if (type.getSort() != Type.OBJECT) return null;
         try {
-            Class javaType = Class.forName(type.getClassName(), false, getClass().getClassLoader());
+            ClassInfo javaType = classpath().forName(type.getClassName());
             String simpleName = getSimpleName(type);
             JClass value = new JClass(type.getClassName(), javaType);
             imports.add(simpleName, value);
@@ -1489,6 +2340,63 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         a.load(mv, this, a.preload(mv, this, false), false);
     }
 
+    private static boolean isFinalAnnotation(PythonParser.ExpressionContext annotation) {
+        String text = annotation.getText();
+        return text.equals("Final") || text.equals("typing.Final") || text.startsWith("Final[") || text.startsWith("typing.Final[");
+    }
+
+    /**
+     * Defines a module level {@code Final} name. Literal values become a {@code ConstantValue} field and are inlined
+     * wherever the name is read, anything else is assigned once in the static initializer.
+     */
+    private void defineFinal(PythonParser.AssignmentContext ctx, String name, Object value) {
+        if (symbols.containsKey(name)) {
+            throw new CompilerException("Cannot redefine Final name '" + name + "' " + getLocation(ctx));
+        }
+
+        Object literal = ConstantFolder.literal(value);
+        if (literal == null) {
+            PyExpr expr = constant(ctx, value);
+            Type type = expr.type(this);
+            FieldVisitor fieldVisitor = cw.visitField(ACC_PUBLIC | ACC_STATIC | ACC_FINAL, name, type.getDescriptor(), null, null);
+            fieldVisitor.visitEnd();
+
+            symbols.put(name, new ImportedField(name, type, getName(), ctx.start.getLine()));
+
+            expr.load(rootInitMv, this, expr.preload(rootInitMv, this, false), false);
+            getContext(Context.class).pop();
+            rootInitMv.visitFieldInsn(PUTSTATIC, getName(), name, type.getDescriptor());
+            return;
+        }
+
+        Type type = switch (literal) {
+            case Long l -> Type.LONG_TYPE;
+            case Double d -> Type.DOUBLE_TYPE;
+            case Boolean b -> Type.BOOLEAN_TYPE;
+            default -> Type.getType(String.class);
+        };
+        Object constantValue = literal instanceof Boolean b ? (Object) (b ? 1 : 0) : literal;
+        FieldVisitor fieldVisitor = cw.visitField(ACC_PUBLIC | ACC_STATIC | ACC_FINAL, name, type.getDescriptor(), null, constantValue);
+        fieldVisitor.visitEnd();
+
+        symbols.put(name, new ImportedField(name, type, getName(), ctx.start.getLine()));
+        constants.put(name, literal);
+    }
+
+    private Object assignAnnotatedAttribute(PythonParser.AssignmentContext ctx, PythonParser.Single_subscript_attribute_targetContext target) {
+        if (!(visit(target.t_primary()) instanceof Self self)) {
+            throw new CompilerException("Annotated attributes are only supported on self " + getLocation(ctx));
+        }
+        JvmField field = self.typeClass(this).field(this, target.NAME().getText());
+        if (field == null) {
+            throw new CompilerException("Attribute '" + target.NAME().getText() + "' is not declared " + getLocation(ctx));
+        }
+        if (ctx.annotated_rhs() != null) {
+            field.set(mv, this, constant(ctx, visit(ctx.annotated_rhs())));
+        }
+        return Unit.Instance;
+    }
+
     private static @NotNull PyExpr constant(ParserRuleContext ctx, Object visit1) {
         return switch (visit1) {
             case PyConstant pyConstant -> pyConstant;
@@ -1564,7 +2472,7 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         if (ctx.VBAR() != null) {
             operator = PyEval.Operator.OR;
         }
-        return new PyEval(this, ctx, operator, finalValue, finalAddition);
+        return evaluate(ctx, operator, finalValue, finalAddition);
     }
 
     @Override
@@ -1594,7 +2502,7 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         if (ctx.CIRCUMFLEX() != null) {
             operator = PyEval.Operator.XOR;
         }
-        return new PyEval(this, ctx, operator, finalValue, finalAddition);
+        return evaluate(ctx, operator, finalValue, finalAddition);
     }
 
     @Override
@@ -1662,6 +2570,12 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
             if (!compareOpBitwiseOrPairContexts.isEmpty()) {
                 for (PythonParser.Compare_op_bitwise_or_pairContext compareOpBitwiseOrPairContext : compareOpBitwiseOrPairContexts) {
                     Object visit1 = visit(compareOpBitwiseOrPairContext);
+                    if (visit1 instanceof PyComparison comparison && compareOpBitwiseOrPairContexts.size() == 1 && ConstantFolder.literal(visit) != null) {
+                        Boolean result = ConstantFolder.compare(comparison.comparator(), visit, visit(comparison.operand()));
+                        if (result != null) {
+                            return result;
+                        }
+                    }
                     if (visit1 instanceof PyComparison comparison) {
                         return new PyExpr() {
                             @Override
@@ -1782,7 +2696,7 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         if (ctx.AMPER() != null) {
             operator = PyEval.Operator.AND;
         }
-        return new PyEval(this, ctx, operator, finalValue, finalAddition);
+        return evaluate(ctx, operator, finalValue, finalAddition);
     }
 
     @Override
@@ -1814,7 +2728,7 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         } else if (ctx.RIGHTSHIFT() != null) {
             operator = PyEval.Operator.RSHIFT;
         }
-        return new PyEval(this, ctx, operator, finalValue, finalAddition);
+        return evaluate(ctx, operator, finalValue, finalAddition);
     }
 
     @Override
@@ -1847,11 +2761,24 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
             operator = PyEval.Operator.SUB;
         }
         if (operator != null) {
-            return new PyEval(this, ctx, operator, finalValue, finalAddition);
+            return evaluate(ctx, operator, finalValue, finalAddition);
         }
         return value;
     }
 
+    /**
+     * Builds the operation, or its result if both operands are literals and it can be computed at compile time.
+     */
+    private Object evaluate(ParserRuleContext ctx, PyEval.@Nullable Operator operator, Object value, @Nullable Object addition) {
+        if (operator != null) {
+            Object folded = ConstantFolder.fold(operator, value, addition);
+            if (folded != null) {
+                return folded;
+            }
+        }
+        return new PyEval(this, ctx, operator, value, addition);
+    }
+
     public void loadExpr(ParserRuleContext ctx, Object visit) {
         MethodVisitor mv = this.mv == null ? this.rootInitMv : this.mv;
         switch (visit) {
@@ -1901,7 +2828,7 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         } else if (ctx.DOUBLESLASH() != null) {
             operator = PyEval.Operator.FLOORDIV;
         }
-        return new PyEval(this, ctx, operator, finalValue, finalAddition);
+        return evaluate(ctx, operator, finalValue, finalAddition);
     }
 
     @Override
@@ -1921,7 +2848,7 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
             if (flags.get(F_CPL_TYPE_ANNO)) {
                 throw new RuntimeException("Unary operator is not allowed in type annotations (at " + fileName + ":" + ctx.getStart().getLine() + ":" + ctx.getStart().getCharPositionInLine() + ")");
             }
-            return new PyEval(this, ctx, operator, finalValue, null);
+            return evaluate(ctx, operator, finalValue, null);
         }
 
         if (ctx.PLUS() != null) {
@@ -1938,7 +2865,7 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
             if (flags.get(F_CPL_TYPE_ANNO)) {
                 throw new RuntimeException("Unary operator is not allowed in type annotations (at " + fileName + ":" + ctx.getStart().getLine() + ":" + ctx.getStart().getCharPositionInLine() + ")");
             }
-            return new PyEval(this, ctx, operator, finalValue, null);
+            return evaluate(ctx, operator, finalValue, null);
         }
 
         if (ctx.TILDE() != null) {
@@ -1955,7 +2882,7 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
             if (flags.get(F_CPL_TYPE_ANNO)) {
                 throw new RuntimeException("Unary operator is not allowed in type annotations (at " + fileName + ":" + ctx.getStart().getLine() + ":" + ctx.getStart().getCharPositionInLine() + ")");
             }
-            return new PyEval(this, ctx, operator, finalValue, null);
+            return evaluate(ctx, operator, finalValue, null);
         }
         PythonParser.PowerContext powerContext = ctx.power();
         if (powerContext != null) {
@@ -1972,8 +2899,8 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
             Object value;
             Object addition = null;
             if (otherContext != null) {
-                value = visit(otherContext);
-                addition = visit(ctx.await_primary());
+                value = visit(ctx.await_primary());
+                addition = visit(otherContext);
             } else {
                 value = visit(ctx.await_primary());
             }
@@ -1989,7 +2916,7 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
                     return value;
                 }
             }
-            return new PyEval(this, ctx, operator, finalValue, finalAddition);
+            return evaluate(ctx, operator, finalValue, finalAddition);
 
         }
         PythonParser.FactorContext factorContext = ctx.factor();
@@ -2067,7 +2994,16 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
             throw new RuntimeException("primary not supported for:\n" + ctx.getText());
         }
         if (primaryContext != null) {
-            return visit(primaryContext);
+            Object owner = visit(primaryContext);
+            if (ctx.NAME() != null && definingInstance != null && owner instanceof PyObjectRef(String name, int lineNo)
+                    && name.equals("self") && definingInstance.field(this, ctx.NAME().getText()) instanceof PyField field) {
+                return field;
+            }
+            PyVariable receiver = dynamicReceiver(owner);
+            if (ctx.NAME() != null && receiver != null && !isCallee(ctx)) {
+                return new DynamicAttribute(receiver, ctx.NAME().getText(), ctx.start.getLine());
+            }
+            return owner;
         }
 
         PythonParser.AtomContext atom = ctx.atom();
@@ -2077,6 +3013,25 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         throw new RuntimeException("No supported matching primary found for:\n" + ctx.getText());
     }
 
+    /**
+     * The local an attribute is looked up on when it's only typed at runtime, whose attributes are then linked
+     * dynamically.
+     */
+    private @Nullable PyVariable dynamicReceiver(Object owner) {
+        if (owner instanceof PyObjectRef(String name, int lineNo) && symbols.get(name) instanceof PyVariable variable
+                && variable.type(this).equals(Type.getType(Object.class))) {
+            return variable;
+        }
+        return null;
+    }
+
+    /**
+     * Whether the primary is the method of a call, which {@link FuncCall} resolves itself.
+     */
+    private static boolean isCallee(PythonParser.PrimaryContext ctx) {
+        return ctx.getParent() instanceof PythonParser.PrimaryContext parent && parent.primary() == ctx && parent.LPAR() != null;
+    }
+
     @Override
     public Object visitAtom(PythonParser.AtomContext ctx) {
         PythonParser.DictContext dict = ctx.dict();
@@ -2097,6 +3052,10 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         }
         TerminalNode name = ctx.NAME();
         if (name != null) {
+            Object constant = constants.get(name.getText());
+            if (constant != null && !flags.get(F_CPL_TYPE_ANNO) && !(symbols.get(name.getText()) instanceof PyVariable)) {
+                return constant;
+            }
             return new PyObjectRef(name.getText(), name.getSymbol().getLine());
         }
         PythonParser.StringsContext strings = ctx.strings();
@@ -2106,11 +3065,7 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
 
         TerminalNode number = ctx.NUMBER();
         if (number != null) {
-            if (number.getText().contains(".")) {
-                return Double.parseDouble(number.getText());
-            } else {
-                return Long.parseLong(number.getText());
-            }
+            return parseNumber(ctx, number);
         }
         TerminalNode aTrue = ctx.TRUE();
         if (aTrue != null) {
@@ -2123,6 +3078,31 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         throw new RuntimeException("No supported matching atom found for:\n" + ctx.getText());
     }
 
+    /**
+     * Parses a number literal. Ints are a {@code Long} when they fit in one, and a {@link BigInteger} constant otherwise.
+     */
+    private Object parseNumber(PythonParser.AtomContext ctx, TerminalNode number) {
+        String text = number.getText().replace("_", "").toLowerCase(Locale.ROOT);
+        int radix = 10;
+        if (text.startsWith("0x")) {
+            radix = 16;
+        } else if (text.startsWith("0o")) {
+            radix = 8;
+        } else if (text.startsWith("0b")) {
+            radix = 2;
+        } else if (text.endsWith("j")) {
+            throw new CompilerException("Complex numbers are not supported " + getLocation(ctx));
+        } else if (text.contains(".") || text.contains("e")) {
+            return Double.parseDouble(text);
+        }
+
+        BigInteger value = new BigInteger(radix == 10 ? text : text.substring(2), radix);
+        if (value.bitLength() < Long.SIZE) {
+            return value.longValue();
+        }
+        return new PyConstant(value, number.getSymbol().getLine());
+    }
+
     @Override
     public Object visitStrings(PythonParser.StringsContext ctx) {
         List<PythonParser.FstringContext> fstring = ctx.fstring();
@@ -2175,11 +3155,15 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
 
         if (importFromTargetsContext != null) {
             PythonParser.Dotted_nameContext dottedNameContext = ctx.dotted_name();
-            System.out.println("dottedNameContext = " + dottedNameContext.getText());
-            System.out.println("importFromTargetsContext.getText() = " + importFromTargetsContext.getText());
+            if (Log.DEBUG) {
+                System.out.println("dottedNameContext = " + dottedNameContext.getText());
+                System.out.println("importFromTargetsContext.getText() = " + importFromTargetsContext.getText());
+            }
 
             List<Map.Entry<String, String>> visit = (List<Map.Entry<String, String>>) visit(importFromTargetsContext);
+            importedModules.add(dottedNameContext.getText());
             for (Map.Entry<String, String> s : visit) {
+                importedModules.add(dottedNameContext.getText() + "." + s.getValue());
                 String className = ((String) visit(dottedNameContext)).replace(".", "/") + "/" + s.getValue();
                 Type objectType = Type.getObjectType(className);
                 if (!classCache.load(this, objectType)) {
@@ -2235,8 +3219,9 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
     @Override
     public Object visitFile_input(PythonParser.File_inputContext ctx) {
         PythonParser.StatementsContext statements = ctx.statements();
-        rootCw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        rootCw = new PyClassWriter(classCache, ClassWriter.COMPUTE_FRAMES);
         rootCw.visit(V1_8, ACC_PUBLIC, getName(), null, "java/lang/Object", null);
+        classCache.addCompiled(getName(), ACC_PUBLIC, "java/lang/Object", new String[0]);
         cw = rootCw;
 
         rootInitMv = rootCw.visitMethod(ACC_PUBLIC | ACC_STATIC, "<clinit>", "()V", null, null);
@@ -2271,17 +3256,7 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         rootInitMv = null;
         rootCw.visitEnd();
         try {
-            File file = new File("build/tmp/compilePython/" + getName() + ".class");
-            File parentFile = file.getParentFile();
-            if (!parentFile.exists()) {
-                boolean mkdirs = parentFile.mkdirs();
-                if (!mkdirs) {
-                    throw new IOException("Failed to create directory " + parentFile);
-                }
-            }
-            FileOutputStream fos = new FileOutputStream(file);
-            fos.write(rootCw.toByteArray());
-            fos.close();
+            writeOutput(getName() + ".class", rootCw.toByteArray());
         } catch (IOException e) {
             throw new RuntimeException(e);
         } finally {
@@ -2296,6 +3271,15 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
     }
 
     public void compile(File file, File rootDir) throws IOException {
+        declare(file, rootDir);
+        generate();
+    }
+
+    /**
+     * Parses the file and registers its module class and the headers of its classes with the class cache, without
+     * generating any code yet.
+     */
+    public void declare(File file, File rootDir) throws IOException {
         String absolutePath = file.getAbsolutePath();
         String absolutePath1 = rootDir.getAbsolutePath();
         if (!absolutePath1.endsWith("/")) {
@@ -2305,46 +3289,201 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
             throw new RuntimeException("File is not in the root directory");
         }
         String path1 = absolutePath.replaceFirst(absolutePath1, "");
-        PythonLexer lexer = new PythonLexer(CharStreams.fromPath(file.toPath().toAbsolutePath()));
-        PythonParser parser = new PythonParser(new CommonTokenStream(lexer));
-        PythonParser.File_inputContext fileInputContext = parser.file_input();
+        PythonParser.File_inputContext fileInputContext = parse(CharStreams.fromPath(file.toPath().toAbsolutePath()));
         var p = path1.substring(0, path1.length() - ".py".length());
         this.rootDir = rootDir.getAbsolutePath();
         this.fileName = p.substring(p.lastIndexOf("/") + 1);
         this.path = p.substring(0, p.lastIndexOf("/") + 1);
         this.pathOfFile = file.toPath();
+        this.tree = fileInputContext;
+        this.sourceName = path1;
+
+        declareClasses(fileInputContext);
+    }
 
+    /**
+     * Generates the code of a file that was {@link #declare declared}.
+     */
+    public void generate() {
+        if (tree == null) {
+            throw new IllegalStateException("No file declared");
+        }
+        generate(tree, sourceName);
+        tree = null;
+    }
+
+    private void declareClasses(PythonParser.File_inputContext fileInputContext) {
+        classCache.addCompiled(getName(), ACC_PUBLIC, "java/lang/Object", new String[0]);
+        if (fileInputContext.statements() == null) return;
         try {
-            visit(fileInputContext);
+            for (PythonParser.StatementContext statement : fileInputContext.statements().statement()) {
+                if (statement.simple_stmts() != null) {
+                    // A class header can only refer to what is imported at the top of the file
+                    for (PythonParser.Simple_stmtContext simpleStmt : statement.simple_stmts().simple_stmt()) {
+                        if (simpleStmt.import_stmt() != null && simpleStmt.import_stmt().import_from() != null) {
+                            visit(simpleStmt.import_stmt().import_from());
+                        }
+                    }
+                } else if (statement.compound_stmt().class_def() != null) {
+                    PythonParser.Class_def_rawContext classDef = statement.compound_stmt().class_def().class_def_raw();
+                    ClassHeader header = classHeader(classDef);
+                    classCache.addCompiled(path + fileName + "/" + classDef.NAME().getText(), ACC_PUBLIC, header.superClass(), header.interfaces());
+                }
+            }
         } catch (CompilerException e) {
-            e.printStackTrace();
-            compileErrors.add(e);
+            // Reported when the file is generated
+        } finally {
+            resetContexts();
+        }
+    }
+
+    private record ClassHeader(String superClass, String[] interfaces) {
+
+    }
+
+    private ClassHeader classHeader(PythonParser.Class_def_rawContext ctx) {
+        TerminalNode name = ctx.NAME();
+        String superClass = "java/lang/Object";
+        List<String> implementing = new ArrayList<>();
+        PythonParser.ArgumentsContext arguments = ctx.arguments();
+        if (arguments != null) {
+            flags.set(F_CPL_CLASS_INHERITANCE);
+            try {
+                Object visit = visit(arguments);
+                if (visit == null) {
+                    throw new RuntimeException("arguments not supported for:\n" + ctx.getText());
+                }
+
+                if (visit instanceof List<?> list) {
+                    for (Object o : list) {
+                        if (o instanceof String classname) {
+                            if (!classname.startsWith("L") || !classname.endsWith(";")) {
+                                throw new RuntimeException("Class not supported for:\n" + ctx.getText());
+                            }
+                            var normalName = classname.substring(1, classname.length() - 1).replace('/', '.');
+                            try {
+                                ClassInfo type = classpath().forName(normalName);
+                                if (type.isInterface()) {
+                                    implementing.add(normalName.replace('.', '/'));
+                                } else if (superClass.equals("java/lang/Object") && !type.getName().equals("java.lang.Object")) {
+                                    superClass = normalName.replace('.', '/');
+                                } else {
+                                    throw new CompilerException("Cannot inherit multiple super classes for: " + path.replace("/", ".") + name.getText() + " at " + getLocation(ctx));
+                                }
+                            } catch (ClassNotFoundException e) {
+                                throw new RuntimeException(e);
+                            }
+                        }
+                    }
+                }
+            } finally {
+                flags.clear(F_CPL_CLASS_INHERITANCE);
+            }
         }
+        return new ClassHeader(superClass, implementing.toArray(new String[0]));
     }
 
     public void compile(String python, String fileName) {
-        PythonLexer lexer = new PythonLexer(CharStreams.fromString(python));
-        PythonParser parser = new PythonParser(new CommonTokenStream(lexer));
-        PythonParser.File_inputContext fileInputContext = parser.file_input();
+        compile(parse(CharStreams.fromString(python)), fileName);
+    }
+
+    public void compile(PythonParser.File_inputContext fileInputContext, String fileName) {
         var p = fileName.substring(0, fileName.length() - ".py".length());
         this.fileName = p.substring(p.lastIndexOf("/") + 1);
         this.path = p.substring(0, p.lastIndexOf("/") + 1);
-        this.pathOfFile = Path.of(python);
+        this.pathOfFile = Path.of(fileName);
+
+        generate(fileInputContext, fileName);
+    }
 
+    private PythonParser.File_inputContext parse(CharStream input) {
+        long start = System.nanoTime();
+        PythonLexer lexer = new PythonLexer(input);
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        tokens.fill();
+        long lexed = System.nanoTime();
+        SourceParser parser = new SourceParser(parseMode);
+        PythonParser.File_inputContext fileInputContext = parser.parse(tokens);
+        llFallback = parser.usedFallback();
+        lexNanos = lexed - start;
+        parseNanos = System.nanoTime() - lexed;
+        tokenCount = tokens.size();
+        return fileInputContext;
+    }
+
+    private void generate(PythonParser.File_inputContext fileInputContext, String name) {
+        long start = System.nanoTime();
         try {
             visit(fileInputContext);
         } catch (CompilerException e) {
             e.printStackTrace();
             compileErrors.add(e);
+        } finally {
+            resetContexts();
         }
+
+        if (stats != null) {
+            long codegenNanos = System.nanoTime() - start - writeNanos;
+            stats.add(new CompileStats.FileStats(name, lexNanos, parseNanos, codegenNanos, writeNanos, tokenCount, nodeCount, bytesWritten, llFallback, resolutionHits, resolutionMisses));
+        }
+    }
+
+    /**
+     * Drops whatever contexts and stacked types a file left behind when it failed halfway, so the next file compiled on
+     * this worker thread starts clean.
+     */
+    private void resetContexts() {
+        contextStack.clear();
+        AbstractContext.resetStack();
+    }
+
+    public CompileOutput getOutput() {
+        return output;
+    }
+
+    public void setOutput(CompileOutput output) {
+        this.output = output;
+    }
+
+    public void setCache(@Nullable BuildCache cache) {
+        this.cache = cache;
+    }
+
+    public void setStats(@Nullable CompileStats stats) {
+        this.stats = stats;
+    }
+
+    public void setParseMode(SourceParser.Mode parseMode) {
+        this.parseMode = parseMode;
+    }
+
+    void countResolution(boolean hit) {
+        if (hit) resolutionHits++;
+        else resolutionMisses++;
+    }
+
+    public ClasspathIndex classpath() {
+        return classCache.classpath();
+    }
+
+    public void setClasspath(ClasspathIndex classpath) {
+        classCache.setClasspath(classpath);
     }
 
     public void pack(String outputDir, String outputJar) {
-        // Pack "build/rustc/**/*.class"
+        pack(outputDir, outputJar, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public void pack(String outputDir, String outputJar, int level) {
         try {
-            Process process = Runtime.getRuntime().exec("jar cf " + outputJar + " -C " + outputDir + " .");
-            process.waitFor();
-        } catch (IOException | InterruptedException e) {
+            output.retain(sourceOutputs);
+            if (output instanceof JarOutput) {
+                // Classes were streamed straight into the jar, nothing left on disk to pack
+                output.close();
+                return;
+            }
+            JarOutput.pack(Path.of(outputDir), Path.of(outputJar), level);
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
@@ -2410,65 +3549,115 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         expr.load(mv, this, preloaded, boxed);
 
         Label label = new Label();
-        symbols.put(name, new PyVariable(name, type1, currentVariableIndex, expr.lineNo(), true, label));
+        int index = allocateLocal(type1);
+        symbols.put(name, new PyVariable(name, type1, index, expr.lineNo(), true, label));
 //        writer.label(label);
-        mv.visitLocalVariable(name, type1.getDescriptor(), null, endLabel, endLabel, currentVariableIndex);
+        mv.visitLocalVariable(name, type1.getDescriptor(), null, endLabel, endLabel, index);
         mv.visitLineNumber(expr.lineNo(), label);
 
+        if (PyVariable.isPrimitive(type1)) {
+            PyVariable.convert(this, type1);
+            writer.storeValue(index, type1);
+            return index;
+        }
+
         writer.box(writer.unboxType(type1));
         writer.getContext().pop();
-        mv.visitVarInsn(ASTORE, currentVariableIndex);
+        mv.visitVarInsn(ASTORE, index);
 
-        return currentVariableIndex++;
+        return index;
     }
 
     int createVariable(String name, Type type, PyExpr expr, boolean boxed) {
         mv.visitLineNumber(expr.lineNo(), new Label());
 
-        int index = 1;
         Object preloaded = expr.preload(mv, this, false);
         expr.load(mv, this, preloaded, boxed);
         writer.getContext().push(type);
 
         Label label = new Label();
-        symbols.put(name, new PyVariable(name, type, currentVariableIndex, expr.lineNo(), false, label));
+        int index = allocateLocal(type);
+        symbols.put(name, new PyVariable(name, type, index, expr.lineNo(), false, label));
 //        writer.label(label);
-        writer.localVariable(name, Type.getType(Object.class).getDescriptor(), null, endLabel, endLabel, currentVariableIndex);
+        boolean primitive = PyVariable.isPrimitive(type);
+        writer.localVariable(name, primitive ? type.getDescriptor() : Type.getType(Object.class).getDescriptor(), null, endLabel, endLabel, index);
         mv.visitLineNumber(expr.lineNo(), label);
-        int opcode;
         typeCheck(type, expr);
         Context context = writer.getContext();
         context.pop();
 
+        if (primitive) {
+            PyVariable.convert(this, type);
+            writer.storeValue(index, type);
+            return index;
+        }
+
         writer.box(writer.unboxType(type));
         writer.getContext().pop();
-        mv.visitVarInsn(ASTORE, currentVariableIndex);
+        mv.visitVarInsn(ASTORE, index);
+
+        return index;
+    }
 
-        return currentVariableIndex++;
+    /**
+     * Reserves a local variable slot for a value of the given type, two slots wide for longs and doubles.
+     */
+    int allocateLocal(Type type) {
+        int index = currentVariableIndex;
+        currentVariableIndex += PyVariable.isPrimitive(type) ? type.getSize() : 1;
+        return index;
     }
 
-    private void createVariable(String name, Type type, int lineNo, boolean b) {
+    private void createParameter(String name, Type type, int lineNo) {
         Label label = new Label();
-        symbols.put(name, new PyVariable(name, type, currentVariableIndex, lineNo, false, label));
+        int index = allocateLocal(type);
+        LocalTypes.Web web = localTypes == null ? null : localTypes.parameter(name);
+        if (web != null && !web.type().equals(type)) {
+            // Reassigned with a wider type somewhere in the body, so it's copied into a slot that can hold both
+            writer.loadValue(index, type);
+            writer.coerce(web.type());
+            type = web.type();
+            index = allocateLocal(type);
+            writer.storeValue(index, type);
+        }
+        if (web != null) {
+            web.slot(index);
+        }
+        symbols.put(name, new PyVariable(name, type, index, lineNo, false, label));
 //        writer.label(label);
-        writer.localVariable(name, Type.getType(Object.class).getDescriptor(), null, endLabel, endLabel, currentVariableIndex);
+        writer.localVariable(name, type.getDescriptor(), null, endLabel, endLabel, index);
         mv.visitLineNumber(lineNo, label);
     }
 
+    /**
+     * Stores into the slot local type inference picked for an assignment, widening the value to the slot's type.
+     */
+    private void assignLocal(String name, LocalTypes.Web web, PyExpr expr, int lineNo) {
+        mv.visitLineNumber(lineNo, new Label());
+        expr.load(mv, this, expr.preload(mv, this, false), false);
+        writer.coerce(web.type());
+        writer.storeValue(web.slot(), web.type());
+        symbols.put(name, new PyVariable(name, web.type(), web.slot(), lineNo, false, new Label()));
+    }
+
+    /**
+     * Points locals back at the slots they occupy at the start of a block or after a compound statement, since
+     * compiling an earlier branch may have left them pointing at the slot of a definition that doesn't reach here.
+     */
+    private void restoreLocals(ParserRuleContext ctx) {
+        if (localTypes == null || mv == null) return;
+        for (Map.Entry<String, LocalTypes.Web> entry : localTypes.at(ctx).entrySet()) {
+            LocalTypes.Web web = entry.getValue();
+            if (web.slot() < 0) continue;
+            symbols.put(entry.getKey(), new PyVariable(entry.getKey(), web.type(), web.slot(), ctx.getStart().getLine(), false, new Label()));
+        }
+    }
+
     public Type typeCheck(Type type, PyExpr expr) {
-        if (!type.equals(Type.getType(String.class)) && !type.equals(Type.LONG_TYPE) && !type.equals(Type.DOUBLE_TYPE)
-                && !type.equals(Type.FLOAT_TYPE) && !type.equals(Type.INT_TYPE) && !type.equals(Type.BOOLEAN_TYPE)
-                && !type.equals(Type.BYTE_TYPE) && !type.equals(Type.SHORT_TYPE)
-                && symbols.get(type.getClassName().substring(type.getClassName().lastIndexOf('.') + 1)) == null) {
+        if (!isKnownType(type)) {
             if (type.getSort() == Type.ARRAY) {
                 Type actualType = type.getElementType();
-                while (actualType.getSort() == Type.ARRAY) {
-                    actualType = actualType.getElementType();
-                }
-                if (!actualType.equals(Type.getType(String.class)) && !actualType.equals(Type.LONG_TYPE) && !actualType.equals(Type.DOUBLE_TYPE)
-                        && !actualType.equals(Type.FLOAT_TYPE) && !actualType.equals(Type.INT_TYPE) && !actualType.equals(Type.BOOLEAN_TYPE)
-                        && !actualType.equals(Type.BYTE_TYPE) && !actualType.equals(Type.SHORT_TYPE)
-                        && symbols.get(actualType.getClassName().substring(actualType.getClassName().lastIndexOf('.') + 1)) == null) {
+                if (!isKnownType(actualType)) {
                     throw typeNotFound(actualType.getClassName(), expr);
                 }
 
@@ -2480,6 +3669,20 @@ public class PythonCompiler extends PythonParserBaseVisitor<Object> {
         return type;
     }
 
+    /**
+     * Whether {@link #typeCheck} accepts the type, which for a Java class means the module imports it.
+     */
+    boolean isInScope(Type type) {
+        return isKnownType(type) || type.getSort() == Type.ARRAY && isKnownType(type.getElementType());
+    }
+
+    private boolean isKnownType(Type type) {
+        return type.equals(Type.getType(String.class)) || type.equals(Type.LONG_TYPE) || type.equals(Type.DOUBLE_TYPE)
+                || type.equals(Type.FLOAT_TYPE) || type.equals(Type.INT_TYPE) || type.equals(Type.BOOLEAN_TYPE)
+                || type.equals(Type.BYTE_TYPE) || type.equals(Type.SHORT_TYPE)
+                || symbols.get(type.getClassName().substring(type.getClassName().lastIndexOf('.') + 1)) != null;
+    }
+
     CompilerException typeNotFound(String type, PyExpr expr) {
         return new CompilerException("Type '" + type + "' not found " + getLocation(expr));
     }
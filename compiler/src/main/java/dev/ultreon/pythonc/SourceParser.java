@@ -0,0 +1,53 @@
+package dev.ultreon.pythonc;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+/**
+ * Parses a module with fast SLL prediction first, and only re-parses with full LL prediction when SLL fails.
+ * SLL gives the same tree as LL for every input it accepts, so only files that need LL pay for it.
+ */
+public final class SourceParser {
+    public enum Mode {
+        TWO_STAGE, SLL, LL
+    }
+
+    private final Mode mode;
+    private boolean usedFallback;
+
+    public SourceParser(Mode mode) {
+        this.mode = mode;
+    }
+
+    public PythonParser.File_inputContext parse(CommonTokenStream tokens) {
+        usedFallback = false;
+        PythonParser parser = new PythonParser(tokens);
+        if (mode == Mode.LL) {
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            return parser.file_input();
+        }
+
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        try {
+            return parser.file_input();
+        } catch (ParseCancellationException e) {
+            if (mode == Mode.SLL) throw e;
+        }
+
+        // SLL either hit a real syntax error or needs full context, parse again to get LL's answer and error reporting
+        usedFallback = true;
+        tokens.seek(0);
+        parser.reset();
+        parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        return parser.file_input();
+    }
+
+    public boolean usedFallback() {
+        return usedFallback;
+    }
+}
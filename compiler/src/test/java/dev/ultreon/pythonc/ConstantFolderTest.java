@@ -0,0 +1,93 @@
+package dev.ultreon.pythonc;
+
+import org.junit.jupiter.api.Test;
+
+import static dev.ultreon.pythonc.PyEval.Operator.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConstantFolderTest {
+    @Test
+    void floorDivisionRoundsTowardsNegativeInfinity() {
+        assertEquals(3L, ConstantFolder.fold(FLOORDIV, 7L, 2L));
+        assertEquals(-4L, ConstantFolder.fold(FLOORDIV, -7L, 2L));
+        assertEquals(-4L, ConstantFolder.fold(FLOORDIV, 7L, -2L));
+        assertEquals(3L, ConstantFolder.fold(FLOORDIV, -7L, -2L));
+    }
+
+    @Test
+    void moduloTakesTheSignOfTheDivisor() {
+        assertEquals(1L, ConstantFolder.fold(MOD, -7L, 2L));
+        assertEquals(-1L, ConstantFolder.fold(MOD, 7L, -2L));
+        assertEquals(-1L, ConstantFolder.fold(MOD, -7L, -2L));
+    }
+
+    @Test
+    void floatFloorDivisionMatchesCPython() {
+        assertEquals(9.0, ConstantFolder.fold(FLOORDIV, 1L, 0.1));
+        assertEquals(-10.0, ConstantFolder.fold(FLOORDIV, -1.0, 0.1));
+        assertEquals(2.0, ConstantFolder.fold(FLOORDIV, 0.3, 0.1));
+        assertEquals(-4.0, ConstantFolder.fold(FLOORDIV, 7.0, -2L));
+        assertEquals(-0.0, ConstantFolder.fold(FLOORDIV, 0.0, -5.0));
+        assertEquals(-1.0, ConstantFolder.fold(FLOORDIV, -1e-300, 1e300));
+    }
+
+    @Test
+    void floatModuloMatchesCPython() {
+        assertEquals(0.09999999999999995, ConstantFolder.fold(MOD, 1.0, 0.1));
+        assertEquals(1.0, ConstantFolder.fold(MOD, -7.0, 2.0));
+        assertEquals(-0.0, ConstantFolder.fold(MOD, 6.0, -3.0));
+        assertEquals(0.0, ConstantFolder.fold(MOD, -6.0, 3.0));
+    }
+
+    @Test
+    void divisionByZeroIsLeftToTheRuntime() {
+        assertNull(ConstantFolder.fold(FLOORDIV, 1L, 0L));
+        assertNull(ConstantFolder.fold(MOD, 1L, 0L));
+        assertNull(ConstantFolder.fold(DIV, 1L, 0L));
+        assertNull(ConstantFolder.fold(FLOORDIV, 1.0, 0.0));
+        assertNull(ConstantFolder.fold(MOD, 1.0, -0.0));
+    }
+
+    @Test
+    void minValueOverflowIsLeftToTheRuntime() {
+        assertNull(ConstantFolder.fold(FLOORDIV, Long.MIN_VALUE, -1L));
+        assertNull(ConstantFolder.fold(UNARY_MINUS, Long.MIN_VALUE, null));
+        assertNull(ConstantFolder.fold(SUB, Long.MIN_VALUE, 1L));
+        assertNull(ConstantFolder.fold(MUL, Long.MIN_VALUE, -1L));
+        assertNull(ConstantFolder.fold(ADD, Long.MAX_VALUE, 1L));
+        assertEquals(0L, ConstantFolder.fold(MOD, Long.MIN_VALUE, -1L));
+        assertEquals(Long.MIN_VALUE, ConstantFolder.fold(SUB, Long.MIN_VALUE + 1, 1L));
+    }
+
+    @Test
+    void shifts() {
+        assertEquals(1L << 62, ConstantFolder.fold(LSHIFT, 1L, 62L));
+        assertNull(ConstantFolder.fold(LSHIFT, 1L, 63L));
+        assertNull(ConstantFolder.fold(LSHIFT, 3L, 62L));
+        assertNull(ConstantFolder.fold(LSHIFT, 1L, -1L));
+        assertEquals(0L, ConstantFolder.fold(LSHIFT, 0L, 100L));
+        assertEquals(-3L, ConstantFolder.fold(RSHIFT, -5L, 1L));
+        assertEquals(-1L, ConstantFolder.fold(RSHIFT, -5L, 64L));
+        assertEquals(0L, ConstantFolder.fold(RSHIFT, 5L, 1000L));
+        assertNull(ConstantFolder.fold(RSHIFT, 5L, -1L));
+    }
+
+    @Test
+    void power() {
+        assertEquals(1L, ConstantFolder.fold(POW, 0L, 0L));
+        assertEquals(1L << 62, ConstantFolder.fold(POW, 2L, 62L));
+        assertEquals(Long.MIN_VALUE, ConstantFolder.fold(POW, -2L, 63L));
+        assertNull(ConstantFolder.fold(POW, 2L, 63L));
+        assertEquals(0.5, ConstantFolder.fold(POW, 2L, -1L));
+        assertNull(ConstantFolder.fold(POW, 0L, -1L));
+        assertEquals(0.25, ConstantFolder.fold(POW, 0.5, 2L));
+        assertNull(ConstantFolder.fold(POW, -8.0, 0.5));
+        assertNull(ConstantFolder.fold(POW, 0.0, -1.0));
+    }
+
+    @Test
+    void nonLiteralsAreNotFolded() {
+        assertNull(ConstantFolder.fold(ADD, 1L, null));
+        assertNull(ConstantFolder.fold(ADD, new Object(), 1L));
+    }
+}
@@ -0,0 +1,65 @@
+package dev.ultreon.pythonc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compiles Python sources for a test and loads the classes straight from memory.
+ */
+final class InMemoryCompiler {
+    private InMemoryCompiler() {
+    }
+
+    /**
+     * Compiles the given files, keyed on their path relative to the source root, and returns a loader for the result.
+     */
+    static ClassLoader compile(String name, Map<String, String> files) throws IOException {
+        // Sources have to be below the working directory
+        Path sources = Path.of("build/tmp", name).toAbsolutePath();
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            Path path = sources.resolve(file.getKey());
+            Files.createDirectories(path.getParent());
+            Files.writeString(path, file.getValue());
+        }
+
+        Map<String, byte[]> classes = new HashMap<>();
+        PythonCompiler compiler = new PythonCompiler();
+        compiler.setOutput(new CompileOutput() {
+            @Override
+            public synchronized void write(String name, byte[] bytes) {
+                classes.put(name, bytes);
+            }
+
+            @Override
+            public boolean reuse(String name) {
+                return false;
+            }
+
+            @Override
+            public void delete(String name) {
+                classes.remove(name);
+            }
+
+            @Override
+            public void retain(Set<String> names) {
+                classes.keySet().retainAll(names);
+            }
+        });
+        assertTrue(compiler.compileSources(sources.toString()));
+
+        return new ClassLoader(InMemoryCompiler.class.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                byte[] bytes = classes.get(name.replace('.', '/') + ".class");
+                if (bytes == null) throw new ClassNotFoundException(name);
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+        };
+    }
+}
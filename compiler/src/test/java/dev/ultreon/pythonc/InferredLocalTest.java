@@ -0,0 +1,28 @@
+package dev.ultreon.pythonc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InferredLocalTest {
+    // StackTraceElement is never imported, so the local can't be typed as StackTraceElement[]
+    private static final String SOURCE = """
+            from java.lang import Thread
+
+            def frames():
+                trace = Thread.currentThread().getStackTrace()
+                print(trace)
+                return trace
+            """;
+
+    @Test
+    void localOfTypeNotImportedIsHeldAsObject() throws Exception {
+        Class<?> module = InMemoryCompiler.compile("inferredLocalTest", Map.of("test/locals.py", SOURCE))
+                .loadClass("test.LocalsPy");
+
+        Object frames = module.getMethod("frames").invoke(null);
+        assertInstanceOf(StackTraceElement[].class, frames);
+    }
+}
@@ -0,0 +1,35 @@
+package dev.ultreon.pythonc;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstanceFieldTest {
+    private static final String SOURCE = """
+            class Counter:
+                def add(self, n):
+                    self.count = self.count + n
+                    return self.count
+
+                def reset(self):
+                    self.count = 0
+            """;
+
+    @Test
+    void methodsReadAndWriteFieldsOnSelf() throws Exception {
+        Class<?> counterClass = InMemoryCompiler.compile("instanceFieldTest", Map.of("test/fields.py", SOURCE))
+                .loadClass("test.fields.Counter");
+        Object counter = counterClass.getConstructor().newInstance();
+        Field count = counterClass.getField("count");
+
+        counterClass.getMethod("reset").invoke(counter);
+        assertEquals(0L, count.get(counter));
+
+        count.set(counter, 5L);
+        assertEquals(7L, counterClass.getMethod("add", Object.class).invoke(counter, 2L));
+        assertEquals(7L, count.get(counter));
+    }
+}
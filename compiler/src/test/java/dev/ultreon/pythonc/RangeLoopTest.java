@@ -0,0 +1,63 @@
+package dev.ultreon.pythonc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangeLoopTest {
+    private static final String SOURCE = """
+            def count(start: int, stop: int, step: int) -> int:
+                n = 0
+                for i in range(start, stop, step):
+                    n = n + 1
+                return n
+
+
+            def up_by_three() -> int:
+                n = 0
+                for i in range(9223372036854775800, 9223372036854775807, 3):
+                    n = n + 1
+                return n
+
+
+            def down_by_five() -> int:
+                n = 0
+                for i in range(-9223372036854775800, -9223372036854775808, -5):
+                    n = n + 1
+                return n
+
+
+            def last(start: int, stop: int, step: int) -> int:
+                value = 0
+                for i in range(start, stop, step):
+                    value = i
+                return value
+            """;
+
+    @Test
+    void constantStepsStopBeforeTheCounterOverflows() throws Exception {
+        Class<?> module = compile();
+        assertEquals(3L, module.getMethod("up_by_three").invoke(null));
+        assertEquals(2L, module.getMethod("down_by_five").invoke(null));
+    }
+
+    @Test
+    void variableStepsStopBeforeTheCounterOverflows() throws Exception {
+        Class<?> module = compile();
+        var count = module.getMethod("count", long.class, long.class, long.class);
+        assertEquals(2L, count.invoke(null, Long.MAX_VALUE - 7, Long.MAX_VALUE, 4L));
+        assertEquals(4L, count.invoke(null, Long.MIN_VALUE + 7, Long.MIN_VALUE, -2L));
+        assertEquals(3L, count.invoke(null, Long.MIN_VALUE, Long.MAX_VALUE, Long.MAX_VALUE));
+        assertEquals(2L, count.invoke(null, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE));
+        assertEquals(4L, count.invoke(null, 0L, 10L, 3L));
+        assertEquals(3L, count.invoke(null, 10L, -10L, -7L));
+        assertEquals(0L, count.invoke(null, 10L, 0L, 1L));
+        assertEquals(Long.MAX_VALUE - 1, module.getMethod("last", long.class, long.class, long.class).invoke(null, Long.MAX_VALUE - 7, Long.MAX_VALUE, 3L));
+    }
+
+    private Class<?> compile() throws Exception {
+        return InMemoryCompiler.compile("rangeLoopTest", Map.of("test/ranges.py", SOURCE)).loadClass("test.RangesPy");
+    }
+}
@@ -1,6 +1,13 @@
 package pythonvm.builtins;
 
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 public class BuiltinsPy {
     public static void print(Object[] args, Map<String, Object> kwargs) {
@@ -18,4 +25,79 @@ public class BuiltinsPy {
         if (text.isEmpty()) throw new RuntimeException("Provided text is too short, requires 1");
         return text.charAt(0);
     }
-}
\ No newline at end of file
+
+    /**
+     * Used by {@code for} loops over values whose type isn't known at compile time. Loops over Java arrays, lists and
+     * iterables whose type is known don't come through here.
+     */
+    public static Iterator<?> iter(Object o) {
+        if (o instanceof Iterator) return (Iterator<?>) o;
+        if (o instanceof Iterable) return ((Iterable<?>) o).iterator();
+        if (o instanceof Map) return ((Map<?, ?>) o).keySet().iterator();
+        if (o instanceof Object[]) return Arrays.asList((Object[]) o).iterator();
+        if (o instanceof CharSequence) return characters((CharSequence) o);
+        if (o != null && o.getClass().isArray()) return elements(o);
+        throw new RuntimeException("'" + (o == null ? "NoneType" : o.getClass().getName()) + "' object is not iterable");
+    }
+
+    /**
+     * Unpacks one element of a {@code for a, b in ...} loop. Loops over {@code enumerate}, {@code zip} and
+     * {@code dict.items()} are compiled without coming through here.
+     */
+    public static Object[] unpack(Object o, int count) {
+        Object[] values;
+        if (o instanceof Object[]) {
+            values = (Object[]) o;
+        } else if (o instanceof Map.Entry) {
+            values = new Object[]{((Map.Entry<?, ?>) o).getKey(), ((Map.Entry<?, ?>) o).getValue()};
+        } else if (o instanceof Collection) {
+            values = ((Collection<?>) o).toArray();
+        } else {
+            List<Object> list = new ArrayList<>();
+            iter(o).forEachRemaining(list::add);
+            values = list.toArray();
+        }
+        if (values.length < count) {
+            throw new RuntimeException("not enough values to unpack (expected " + count + ", got " + values.length + ")");
+        }
+        if (values.length > count) {
+            throw new RuntimeException("too many values to unpack (expected " + count + ")");
+        }
+        return values;
+    }
+
+    private static Iterator<String> characters(CharSequence text) {
+        return new Iterator<String>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < text.length();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return String.valueOf(text.charAt(index++));
+            }
+        };
+    }
+
+    private static Iterator<Object> elements(Object array) {
+        int length = Array.getLength(array);
+        return new Iterator<Object>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < length;
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return Array.get(array, index++);
+            }
+        };
+    }
+}
@@ -0,0 +1,369 @@
+package pythonvm.builtins;
+
+import java.math.BigInteger;
+
+/**
+ * Runtime support for Python's arbitrary-precision {@code int}.
+ * <p>
+ * An int is a {@link Long} for as long as it fits, and a {@link BigInteger} only once it doesn't. Results are always
+ * narrowed back to a {@link Long} when they fit again, so the long path stays the common one.
+ */
+public final class PyInt {
+    private PyInt() {
+
+    }
+
+    public static Number valueOf(long value) {
+        return value;
+    }
+
+    public static Number valueOf(BigInteger value) {
+        return value.bitLength() < Long.SIZE ? (Number) value.longValue() : value;
+    }
+
+    public static Number add(Number a, Number b) {
+        if (isLong(a) && isLong(b)) {
+            return add(a.longValue(), b.longValue());
+        }
+        return valueOf(big(a).add(big(b)));
+    }
+
+    /**
+     * {@code a + b} on two ints the compiler kept as longs, promoting to a {@link BigInteger} instead of wrapping.
+     */
+    public static Number add(long a, long b) {
+        long r = a + b;
+        if (((a ^ r) & (b ^ r)) < 0) {
+            return BigInteger.valueOf(a).add(BigInteger.valueOf(b));
+        }
+        return r;
+    }
+
+    public static Number subtract(Number a, Number b) {
+        if (isLong(a) && isLong(b)) {
+            return subtract(a.longValue(), b.longValue());
+        }
+        return valueOf(big(a).subtract(big(b)));
+    }
+
+    public static Number subtract(long a, long b) {
+        long r = a - b;
+        if (((a ^ b) & (a ^ r)) < 0) {
+            return BigInteger.valueOf(a).subtract(BigInteger.valueOf(b));
+        }
+        return r;
+    }
+
+    public static Number multiply(Number a, Number b) {
+        if (isLong(a) && isLong(b)) {
+            return multiply(a.longValue(), b.longValue());
+        }
+        return valueOf(big(a).multiply(big(b)));
+    }
+
+    public static Number multiply(long a, long b) {
+        long r = a * b;
+        if (!fitsProduct(a, b, r)) {
+            return BigInteger.valueOf(a).multiply(BigInteger.valueOf(b));
+        }
+        return r;
+    }
+
+    public static Number floorDivide(Number a, Number b) {
+        if (isLong(a) && isLong(b)) {
+            return floorDivide(a.longValue(), b.longValue());
+        }
+        BigInteger divisor = big(b);
+        if (divisor.signum() == 0) {
+            throw divisionByZero();
+        }
+        BigInteger[] qr = big(a).divideAndRemainder(divisor);
+        BigInteger quotient = qr[0];
+        if (qr[1].signum() != 0 && qr[1].signum() != divisor.signum()) {
+            quotient = quotient.subtract(BigInteger.ONE);
+        }
+        return valueOf(quotient);
+    }
+
+    /**
+     * {@code a // b} on two longs, where only {@code Long.MIN_VALUE // -1} leaves the long range.
+     */
+    public static Number floorDivide(long a, long b) {
+        if (b == 0) {
+            throw divisionByZero();
+        }
+        if (a == Long.MIN_VALUE && b == -1) {
+            return BigInteger.valueOf(a).negate();
+        }
+        return Math.floorDiv(a, b);
+    }
+
+    public static Number floorMod(Number a, Number b) {
+        if (isLong(a) && isLong(b)) {
+            long y = b.longValue();
+            if (y == 0) {
+                throw divisionByZero();
+            }
+            return Math.floorMod(a.longValue(), y);
+        }
+        BigInteger divisor = big(b);
+        if (divisor.signum() == 0) {
+            throw divisionByZero();
+        }
+        BigInteger remainder = big(a).remainder(divisor);
+        if (remainder.signum() != 0 && remainder.signum() != divisor.signum()) {
+            remainder = remainder.add(divisor);
+        }
+        return valueOf(remainder);
+    }
+
+    public static Number power(Number a, Number b) {
+        if (!isLong(b)) {
+            BigInteger exponent = (BigInteger) b;
+            if (exponent.signum() < 0) {
+                throw negativeExponent();
+            }
+            // Only 0, 1 and -1 stay representable with an exponent this large.
+            long base = isLong(a) ? a.longValue() : 2;
+            if (base == 0 || base == 1) {
+                return base;
+            }
+            if (base == -1) {
+                return exponent.testBit(0) ? -1L : 1L;
+            }
+            throw new ArithmeticException("exponent too large");
+        }
+
+        if (isLong(a)) {
+            return power(a.longValue(), b.longValue());
+        }
+        return bigPower(big(a), b.longValue());
+    }
+
+    /**
+     * {@code a ** b} by repeated squaring while it fits a long, and on a {@link BigInteger} once it doesn't.
+     */
+    public static Number power(long a, long b) {
+        if (b < 0) {
+            throw negativeExponent();
+        }
+        long base = a;
+        long result = 1;
+        long e = b;
+        while (e > 0) {
+            if ((e & 1) != 0) {
+                long r = result * base;
+                if (!fitsProduct(result, base, r)) {
+                    return bigPower(BigInteger.valueOf(a), b);
+                }
+                result = r;
+            }
+            e >>= 1;
+            if (e > 0) {
+                long square = base * base;
+                if (!fitsProduct(base, base, square)) {
+                    return bigPower(BigInteger.valueOf(a), b);
+                }
+                base = square;
+            }
+        }
+        return result;
+    }
+
+    private static Number bigPower(BigInteger base, long exponent) {
+        if (exponent < 0) {
+            throw negativeExponent();
+        }
+        if (exponent > Integer.MAX_VALUE) {
+            throw new ArithmeticException("exponent too large");
+        }
+        return valueOf(base.pow((int) exponent));
+    }
+
+    /**
+     * {@code a ** b} on the long path, by repeated squaring. Fails instead of wrapping, like
+     * {@link Math#multiplyExact(long, long)} does.
+     */
+    public static long powerExact(long a, long b) {
+        if (b < 0) {
+            throw negativeExponent();
+        }
+        long result = 1;
+        while (b > 0) {
+            if ((b & 1) != 0) {
+                result = Math.multiplyExact(result, a);
+            }
+            b >>= 1;
+            if (b > 0) {
+                a = Math.multiplyExact(a, a);
+            }
+        }
+        return result;
+    }
+
+    public static Number negate(Number a) {
+        if (isLong(a)) {
+            return negate(a.longValue());
+        }
+        return valueOf(big(a).negate());
+    }
+
+    public static Number negate(long a) {
+        if (a == Long.MIN_VALUE) {
+            return BigInteger.valueOf(a).negate();
+        }
+        return -a;
+    }
+
+    public static Number invert(Number a) {
+        if (isLong(a)) {
+            return ~a.longValue();
+        }
+        return valueOf(big(a).not());
+    }
+
+    public static Number and(Number a, Number b) {
+        if (isLong(a) && isLong(b)) {
+            return a.longValue() & b.longValue();
+        }
+        return valueOf(big(a).and(big(b)));
+    }
+
+    public static Number or(Number a, Number b) {
+        if (isLong(a) && isLong(b)) {
+            return a.longValue() | b.longValue();
+        }
+        return valueOf(big(a).or(big(b)));
+    }
+
+    public static Number xor(Number a, Number b) {
+        if (isLong(a) && isLong(b)) {
+            return a.longValue() ^ b.longValue();
+        }
+        return valueOf(big(a).xor(big(b)));
+    }
+
+    public static Number shiftLeft(Number a, Number b) {
+        int count = shiftCount(b);
+        if (isLong(a)) {
+            return shiftLeft(a.longValue(), count);
+        }
+        return valueOf(big(a).shiftLeft(count));
+    }
+
+    public static Number shiftLeft(long a, long b) {
+        int count = shiftCount(b);
+        if (a == 0) {
+            return 0L;
+        }
+        // -1 << 63 still fits
+        if (count < Long.SIZE) {
+            long r = a << count;
+            if (r >> count == a) {
+                return r;
+            }
+        }
+        return BigInteger.valueOf(a).shiftLeft(count);
+    }
+
+    public static Number shiftRight(Number a, Number b) {
+        int count = shiftCount(b);
+        if (isLong(a)) {
+            return shiftRight(a.longValue(), count);
+        }
+        return valueOf(big(a).shiftRight(count));
+    }
+
+    /**
+     * {@code a << b} on the long path. Fails instead of wrapping, like {@link Math#addExact(long, long)} does.
+     */
+    public static long shiftLeftExact(long a, long b) {
+        if (b < 0) {
+            throw negativeShiftCount();
+        }
+        if (a == 0) {
+            return 0;
+        }
+        if (b < Long.SIZE) {
+            long r = a << b;
+            if (r >> b == a) {
+                return r;
+            }
+        }
+        throw new ArithmeticException("long overflow");
+    }
+
+    /**
+     * {@code a >> b} on the long path, where shifting by 64 or more doesn't wrap around like it does in Java.
+     */
+    public static long shiftRight(long a, long b) {
+        if (b < 0) {
+            throw negativeShiftCount();
+        }
+        return b >= Long.SIZE ? a >> (Long.SIZE - 1) : a >> b;
+    }
+
+    /**
+     * Narrows an int to a long where a long is required, such as a Java parameter, failing instead of truncating.
+     */
+    public static long toLong(Number value) {
+        if (!isLong(value)) {
+            throw new ArithmeticException("Python int too large to convert to long");
+        }
+        return value.longValue();
+    }
+
+    public static int compare(Number a, Number b) {
+        if (isLong(a) && isLong(b)) {
+            return Long.compare(a.longValue(), b.longValue());
+        }
+        return big(a).compareTo(big(b));
+    }
+
+    private static boolean fitsProduct(long x, long y, long r) {
+        long ax = Math.abs(x);
+        long ay = Math.abs(y);
+        return (ax | ay) >>> 31 == 0 || (y == 0 || r / y == x) && !(x == Long.MIN_VALUE && y == -1);
+    }
+
+    private static int shiftCount(Number b) {
+        if (!isLong(b)) {
+            if (((BigInteger) b).signum() < 0) {
+                throw negativeShiftCount();
+            }
+            throw new ArithmeticException("shift count too large");
+        }
+        return shiftCount(b.longValue());
+    }
+
+    private static int shiftCount(long count) {
+        if (count < 0) {
+            throw negativeShiftCount();
+        }
+        if (count > Integer.MAX_VALUE) {
+            throw new ArithmeticException("shift count too large");
+        }
+        return (int) count;
+    }
+
+    private static boolean isLong(Number value) {
+        return !(value instanceof BigInteger);
+    }
+
+    private static BigInteger big(Number value) {
+        return value instanceof BigInteger ? (BigInteger) value : BigInteger.valueOf(value.longValue());
+    }
+
+    private static ArithmeticException divisionByZero() {
+        return new ArithmeticException("integer division or modulo by zero");
+    }
+
+    private static ArithmeticException negativeExponent() {
+        // The result would be a float, which doesn't fit the int this was typed as at compile time.
+        return new ArithmeticException("negative exponent in int power, use a float base");
+    }
+
+    private static ArithmeticException negativeShiftCount() {
+        return new ArithmeticException("negative shift count");
+    }
+}
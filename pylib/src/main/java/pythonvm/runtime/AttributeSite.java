@@ -0,0 +1,135 @@
+package pythonvm.runtime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+
+/**
+ * {@code receiver.name} or {@code receiver.name = value} on a receiver whose type isn't known at compile time. The
+ * targets are keyed by the class of the receiver only.
+ * <p>
+ * An attribute links to, in order, a public field of that name, a JavaBean accessor for it, or an entry in the
+ * receiver's {@code __dict__} for compiled Python classes that have one.
+ */
+final class AttributeSite extends InlineCache {
+    private static final MethodHandle DICT_GET;
+    private static final MethodHandle DICT_PUT;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            DICT_GET = lookup.findStatic(AttributeSite.class, "dictGet", MethodType.methodType(Object.class, String.class, Map.class));
+            DICT_PUT = lookup.findStatic(AttributeSite.class, "dictPut", MethodType.methodType(void.class, String.class, Map.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final MethodHandles.Lookup lookup;
+    private final String name;
+    private final boolean set;
+
+    AttributeSite(MethodHandles.Lookup lookup, String name, MethodType type, boolean set) {
+        super(type, 1);
+        this.lookup = lookup;
+        this.name = name;
+        this.set = set;
+    }
+
+    @Override
+    protected MethodHandle lookup(Class<?>[] classes) {
+        Class<?> receiver = classes[0];
+        if (receiver == null) {
+            throw new NullPointerException("'NoneType' object has no attribute '" + name + "'");
+        }
+        try {
+            MethodHandle handle = set ? setter(receiver) : getter(receiver);
+            if (handle == null) {
+                throw new RuntimeException("'" + Linker.typeName(receiver) + "' object has no attribute '" + name + "'");
+            }
+            return Linker.adapt(handle, type());
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Attribute '" + name + "' of " + receiver.getName() + " is not accessible", e);
+        }
+    }
+
+    private MethodHandle getter(Class<?> receiver) throws IllegalAccessException {
+        Field field = field(receiver);
+        if (field != null) {
+            return lookup.unreflectGetter(field);
+        }
+        Method accessor = accessor(receiver, "get", 0);
+        if (accessor == null) {
+            accessor = accessor(receiver, "is", 0);
+        }
+        if (accessor != null) {
+            return lookup.unreflect(accessor);
+        }
+        MethodHandle dict = dict(receiver);
+        return dict == null ? null : MethodHandles.filterReturnValue(dict, DICT_GET.bindTo(name));
+    }
+
+    private MethodHandle setter(Class<?> receiver) throws IllegalAccessException {
+        Field field = field(receiver);
+        if (field != null) {
+            if (Modifier.isFinal(field.getModifiers())) {
+                throw new RuntimeException("attribute '" + name + "' of '" + Linker.typeName(receiver) + "' objects is not writable");
+            }
+            return lookup.unreflectSetter(field);
+        }
+        Method accessor = accessor(receiver, "set", 1);
+        if (accessor != null) {
+            return lookup.unreflect(accessor);
+        }
+        MethodHandle dict = dict(receiver);
+        return dict == null ? null : MethodHandles.filterArguments(DICT_PUT.bindTo(name), 0, dict);
+    }
+
+    private Field field(Class<?> receiver) {
+        try {
+            Field field = receiver.getField(name);
+            return Modifier.isStatic(field.getModifiers()) ? null : field;
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+    }
+
+    private Method accessor(Class<?> receiver, String prefix, int parameters) {
+        if (name.isEmpty()) return null;
+        String accessor = prefix + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (Method method : receiver.getMethods()) {
+            if (method.getName().equals(accessor) && method.getParameterCount() == parameters && !Modifier.isStatic(method.getModifiers())
+                    && Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The {@code __dict__()} accessor compiled Python classes have unless they declare {@code __slots__}.
+     */
+    private MethodHandle dict(Class<?> receiver) throws IllegalAccessException {
+        try {
+            return lookup.findVirtual(receiver, "__dict__", MethodType.methodType(Map.class));
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Object dictGet(String name, Map<String, Object> dict) {
+        Object value = dict.get(name);
+        if (value == null && !dict.containsKey(name)) {
+            throw new RuntimeException("object has no attribute '" + name + "'");
+        }
+        return value;
+    }
+
+    private static void dictPut(String name, Map<String, Object> dict, Object value) {
+        dict.put(name, value);
+    }
+}
@@ -0,0 +1,45 @@
+package pythonvm.runtime;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Bootstrap methods for the {@code invokedynamic} instructions the compiler emits where it can't resolve a member at
+ * compile time.
+ */
+public final class Bootstrap {
+    private Bootstrap() {
+
+    }
+
+    /**
+     * Links a method call. The receiver is the first parameter of {@code type}, followed by the arguments, all passed as
+     * objects.
+     */
+    public static CallSite call(MethodHandles.Lookup lookup, String name, MethodType type) {
+        return new MethodCallSite(lookup, name, type);
+    }
+
+    /**
+     * Links an attribute read, of type {@code (Object)Object}.
+     */
+    public static CallSite getattr(MethodHandles.Lookup lookup, String name, MethodType type) {
+        return new AttributeSite(lookup, name, type, false);
+    }
+
+    /**
+     * Links an attribute assignment, of type {@code (Object, Object)void} for the receiver and the value.
+     */
+    public static CallSite setattr(MethodHandles.Lookup lookup, String name, MethodType type) {
+        return new AttributeSite(lookup, name, type, true);
+    }
+
+    /**
+     * Links a binary operator, of type {@code (Object, Object)Object}. The name is the operator's special method without
+     * the underscores, like {@code add} or {@code truediv}.
+     */
+    public static CallSite operator(MethodHandles.Lookup lookup, String name, MethodType type) {
+        return new OperatorSite(lookup, name, type);
+    }
+}
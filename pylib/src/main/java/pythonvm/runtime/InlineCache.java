@@ -0,0 +1,111 @@
+package pythonvm.runtime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A call site that caches its targets by the classes of its arguments.
+ * <p>
+ * A site starts out unlinked. Every miss looks up the target for the classes it sees and puts it in front of the
+ * current target behind a class check, so a site that only ever sees one set of classes ends up as a single guard in
+ * front of a direct call (monomorphic), and one that sees a few gets a short chain of them (polymorphic). Once the
+ * chain reaches {@link #MAX_DEPTH} the site stops growing it and looks targets up in a per-site table instead
+ * (megamorphic).
+ */
+abstract class InlineCache extends MutableCallSite {
+    static final int MAX_DEPTH = 8;
+
+    private static final MethodHandle FALLBACK;
+    private static final MethodHandle MEGAMORPHIC;
+    private static final MethodHandle CHECK_CLASS;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            FALLBACK = lookup.findVirtual(InlineCache.class, "fallback", MethodType.methodType(Object.class, Object[].class));
+            MEGAMORPHIC = lookup.findVirtual(InlineCache.class, "megamorphic", MethodType.methodType(Object.class, Object[].class));
+            CHECK_CLASS = lookup.findStatic(InlineCache.class, "checkClass", MethodType.methodType(boolean.class, Class.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int guarded;
+    private final MethodHandle fallback;
+    private Map<List<Class<?>>, MethodHandle> table;
+    private int depth;
+
+    /**
+     * @param guarded how many of the leading arguments the targets depend on the classes of.
+     */
+    InlineCache(MethodType type, int guarded) {
+        super(type);
+        this.guarded = guarded;
+        this.fallback = collect(FALLBACK);
+        setTarget(fallback);
+    }
+
+    /**
+     * Finds the target for arguments of the given classes, with the type of this call site. {@code null} stands for
+     * the class of a {@code None} argument.
+     */
+    protected abstract MethodHandle lookup(Class<?>[] classes);
+
+    private Object fallback(Object[] args) throws Throwable {
+        Class<?>[] classes = classes(args);
+        MethodHandle target = lookup(classes);
+        synchronized (this) {
+            if (depth < MAX_DEPTH) {
+                depth++;
+                setTarget(guard(classes, target, getTarget()));
+            } else if (table == null) {
+                table = new ConcurrentHashMap<>();
+                setTarget(collect(MEGAMORPHIC));
+            }
+        }
+        return target.invokeWithArguments(args);
+    }
+
+    private Object megamorphic(Object[] args) throws Throwable {
+        Class<?>[] classes = classes(args);
+        MethodHandle target = table.get(Arrays.asList(classes));
+        if (target == null) {
+            target = lookup(classes);
+            table.put(Arrays.asList(classes), target);
+        }
+        return target.invokeWithArguments(args);
+    }
+
+    private MethodHandle guard(Class<?>[] classes, MethodHandle target, MethodHandle otherwise) {
+        MethodType type = type();
+        MethodHandle result = target;
+        for (int i = classes.length - 1; i >= 0; i--) {
+            MethodHandle test = CHECK_CLASS.bindTo(classes[i]).asType(MethodType.methodType(boolean.class, type.parameterType(i)));
+            test = MethodHandles.dropArguments(test, 0, type.parameterList().subList(0, i));
+            result = MethodHandles.guardWithTest(test, result, otherwise);
+        }
+        return result;
+    }
+
+    private Class<?>[] classes(Object[] args) {
+        Class<?>[] classes = new Class<?>[guarded];
+        for (int i = 0; i < guarded; i++) {
+            classes[i] = args[i] == null ? null : args[i].getClass();
+        }
+        return classes;
+    }
+
+    private MethodHandle collect(MethodHandle handle) {
+        return handle.bindTo(this).asCollector(Object[].class, type().parameterCount()).asType(type());
+    }
+
+    private static boolean checkClass(Class<?> expected, Object value) {
+        return value == null ? expected == null : value.getClass() == expected;
+    }
+}
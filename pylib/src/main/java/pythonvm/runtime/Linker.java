@@ -0,0 +1,221 @@
+package pythonvm.runtime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+
+/**
+ * Finds the Java members dynamic call sites link to, and adapts them to the all-{@code Object} types those sites have.
+ */
+final class Linker {
+    private static final MethodHandle TO_BOOLEAN;
+    private static final MethodHandle TO_CHAR;
+    private static final MethodHandle TO_NUMBER;
+    private static final MethodHandle TO_BYTE;
+    private static final MethodHandle TO_SHORT;
+    private static final MethodHandle TO_INT;
+    private static final MethodHandle TO_LONG;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            TO_BOOLEAN = lookup.findStatic(Linker.class, "toBoolean", MethodType.methodType(boolean.class, Object.class));
+            TO_CHAR = lookup.findStatic(Linker.class, "toChar", MethodType.methodType(char.class, Object.class));
+            TO_NUMBER = lookup.findStatic(Linker.class, "toNumber", MethodType.methodType(Number.class, Object.class));
+            TO_BYTE = lookup.findStatic(Linker.class, "toByte", MethodType.methodType(byte.class, Object.class));
+            TO_SHORT = lookup.findStatic(Linker.class, "toShort", MethodType.methodType(short.class, Object.class));
+            TO_INT = lookup.findStatic(Linker.class, "toInt", MethodType.methodType(int.class, Object.class));
+            TO_LONG = lookup.findStatic(Linker.class, "toLong", MethodType.methodType(long.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Linker() {
+
+    }
+
+    /**
+     * Finds the public instance method {@code name} on {@code receiver} that takes arguments of the given classes.
+     */
+    static Method findMethod(Class<?> receiver, String name, Class<?>[] arguments) {
+        Method found = lookupMethod(receiver, name, arguments);
+        if (found == null) {
+            throw new RuntimeException("'" + typeName(receiver) + "' object has no method '" + name + "' taking " + arguments.length + " arguments");
+        }
+        return found;
+    }
+
+    /**
+     * Like {@link #findMethod}, but returns {@code null} when there's no such method.
+     */
+    static Method lookupMethod(Class<?> receiver, String name, Class<?>[] arguments) {
+        Method found = null;
+        int best = Integer.MAX_VALUE;
+        for (Method method : receiver.getMethods()) {
+            if (!method.getName().equals(name) || Modifier.isStatic(method.getModifiers())) continue;
+            Class<?>[] parameters = method.getParameterTypes();
+            if (parameters.length != arguments.length || !accepts(parameters, arguments)) continue;
+            int cost = cost(parameters, arguments);
+            if (cost < best) {
+                found = method;
+                best = cost;
+            }
+        }
+        return found == null ? null : accessible(found);
+    }
+
+    /**
+     * Converts the parameters and return value of a handle to {@code type}. Python numbers are narrowed or widened to
+     * whatever primitive the Java side takes, ints that don't fit the primitive fail instead of being truncated.
+     */
+    static MethodHandle adapt(MethodHandle handle, MethodType type) {
+        MethodType from = handle.type();
+        MethodHandle[] filters = new MethodHandle[from.parameterCount()];
+        for (int i = 0; i < filters.length; i++) {
+            Class<?> parameter = from.parameterType(i);
+            if (parameter.isPrimitive() && !type.parameterType(i).isPrimitive()) {
+                filters[i] = converter(parameter);
+            }
+        }
+        return MethodHandles.filterArguments(handle, 0, filters).asType(type);
+    }
+
+    static String typeName(Class<?> type) {
+        return type == null ? "NoneType" : type.getName();
+    }
+
+    private static MethodHandle converter(Class<?> primitive) {
+        if (primitive == boolean.class) return TO_BOOLEAN;
+        if (primitive == char.class) return TO_CHAR;
+        if (primitive == byte.class) return TO_BYTE;
+        if (primitive == short.class) return TO_SHORT;
+        if (primitive == int.class) return TO_INT;
+        if (primitive == long.class) return TO_LONG;
+        // Number to float or double is an unboxing the method handle API doesn't do on its own, so go through Number
+        MethodHandle unbox;
+        try {
+            unbox = MethodHandles.publicLookup().findVirtual(Number.class, primitive.getName() + "Value", MethodType.methodType(primitive));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(primitive.getName(), e);
+        }
+        return MethodHandles.filterReturnValue(TO_NUMBER, unbox);
+    }
+
+    private static boolean accepts(Class<?>[] parameters, Class<?>[] arguments) {
+        for (int i = 0; i < parameters.length; i++) {
+            if (!accepts(parameters[i], arguments[i])) return false;
+        }
+        return true;
+    }
+
+    private static boolean accepts(Class<?> parameter, Class<?> argument) {
+        if (argument == null) return !parameter.isPrimitive();
+        if (!parameter.isPrimitive()) return parameter.isAssignableFrom(argument);
+        if (parameter == boolean.class) return argument == Boolean.class;
+        if (parameter == char.class) return argument == Character.class || argument == String.class;
+        // Like Python, a float is never implicitly an int
+        if (parameter != float.class && parameter != double.class) return isInt(argument);
+        return Number.class.isAssignableFrom(argument) || argument == Boolean.class;
+    }
+
+    /**
+     * How far the arguments are from the parameters, used to pick between overloads. An exact class or the primitive of
+     * a box is closest, then a superclass, then a primitive the value has to be converted to.
+     */
+    private static int cost(Class<?>[] parameters, Class<?>[] arguments) {
+        int cost = 0;
+        for (int i = 0; i < parameters.length; i++) {
+            Class<?> parameter = parameters[i];
+            Class<?> argument = arguments[i];
+            if (argument == null || parameter == argument || MethodType.methodType(parameter).wrap().returnType() == argument) {
+                continue;
+            }
+            cost += parameter.isPrimitive() ? 2 : 1;
+        }
+        return cost;
+    }
+
+    /**
+     * A public class's version of {@code method}, which may have been found on a class the caller can't access.
+     */
+    private static Method accessible(Method method) {
+        if (Modifier.isPublic(method.getDeclaringClass().getModifiers())) return method;
+        Method inherited = inherited(method.getDeclaringClass(), method);
+        if (inherited == null) {
+            throw new RuntimeException("Method '" + method.getName() + "' of " + method.getDeclaringClass().getName() + " is not accessible");
+        }
+        return inherited;
+    }
+
+    private static Method inherited(Class<?> type, Method method) {
+        if (type == null) return null;
+        if (Modifier.isPublic(type.getModifiers())) {
+            try {
+                return type.getMethod(method.getName(), method.getParameterTypes());
+            } catch (NoSuchMethodException e) {
+                // Declared further down only
+            }
+        }
+        for (Class<?> anInterface : type.getInterfaces()) {
+            Method found = inherited(anInterface, method);
+            if (found != null) return found;
+        }
+        return inherited(type.getSuperclass(), method);
+    }
+
+    private static boolean toBoolean(Object value) {
+        return (Boolean) value;
+    }
+
+    private static char toChar(Object value) {
+        if (value instanceof String) {
+            String text = (String) value;
+            if (text.length() != 1) {
+                throw new IllegalArgumentException("expected a character, got a string of length " + text.length());
+            }
+            return text.charAt(0);
+        }
+        return (Character) value;
+    }
+
+    private static boolean isInt(Class<?> type) {
+        return type == Long.class || type == Integer.class || type == BigInteger.class || type == Boolean.class
+                || type == Short.class || type == Byte.class;
+    }
+
+    private static byte toByte(Object value) {
+        return (byte) toIntegral(value, Byte.MIN_VALUE, Byte.MAX_VALUE, "byte");
+    }
+
+    private static short toShort(Object value) {
+        return (short) toIntegral(value, Short.MIN_VALUE, Short.MAX_VALUE, "short");
+    }
+
+    private static int toInt(Object value) {
+        return (int) toIntegral(value, Integer.MIN_VALUE, Integer.MAX_VALUE, "int");
+    }
+
+    private static long toLong(Object value) {
+        return toIntegral(value, Long.MIN_VALUE, Long.MAX_VALUE, "long");
+    }
+
+    private static long toIntegral(Object value, long min, long max, String type) {
+        Number number = toNumber(value);
+        long result = number.longValue();
+        if (number instanceof BigInteger && ((BigInteger) number).bitLength() >= Long.SIZE || result < min || result > max) {
+            throw new ArithmeticException("Python int too large to convert to " + type);
+        }
+        return result;
+    }
+
+    private static Number toNumber(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        return (Number) value;
+    }
+}
@@ -0,0 +1,34 @@
+package pythonvm.runtime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+
+/**
+ * {@code receiver.name(args...)} on a receiver whose type isn't known at compile time. The targets are keyed by the
+ * classes of the receiver and every argument, since those pick the overload.
+ */
+final class MethodCallSite extends InlineCache {
+    private final MethodHandles.Lookup lookup;
+    private final String name;
+
+    MethodCallSite(MethodHandles.Lookup lookup, String name, MethodType type) {
+        super(type, type.parameterCount());
+        this.lookup = lookup;
+        this.name = name;
+    }
+
+    @Override
+    protected MethodHandle lookup(Class<?>[] classes) {
+        if (classes[0] == null) {
+            throw new NullPointerException("'NoneType' object has no attribute '" + name + "'");
+        }
+        try {
+            MethodHandle handle = lookup.unreflect(Linker.findMethod(classes[0], name, Arrays.copyOfRange(classes, 1, classes.length)));
+            return Linker.adapt(handle, type());
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Method '" + name + "' of " + classes[0].getName() + " is not accessible", e);
+        }
+    }
+}
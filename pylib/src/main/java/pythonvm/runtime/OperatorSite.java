@@ -0,0 +1,152 @@
+package pythonvm.runtime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * {@code left <op> right} where the compiler couldn't pick the operation from the static types. The site is named after
+ * the operator's special method without its underscores ({@code add} for {@code __add__}), and its targets are keyed by
+ * the classes of both operands.
+ * <p>
+ * Like Python, the left operand's {@code __op__} is tried first and the right operand's {@code __rop__} after that,
+ * unless the right operand is of a subclass of the left one. Operands that implement neither fall back to the
+ * built-in types in {@link Operators}.
+ */
+final class OperatorSite extends InlineCache {
+    private static final MethodType INT_TYPE = MethodType.methodType(Object.class, Object.class, Object.class);
+    private static final MethodType FLOAT_TYPE = MethodType.methodType(double.class, double.class, double.class);
+    private static final MethodHandles.Lookup OPERATORS = MethodHandles.lookup();
+
+    private final MethodHandles.Lookup lookup;
+    private final String name;
+
+    OperatorSite(MethodHandles.Lookup lookup, String name, MethodType type) {
+        super(type, 2);
+        this.lookup = lookup;
+        this.name = name;
+    }
+
+    @Override
+    protected MethodHandle lookup(Class<?>[] classes) {
+        Class<?> left = classes[0];
+        Class<?> right = classes[1];
+        try {
+            MethodHandle handle = null;
+            if (left != null && right != null && left != right && left.isAssignableFrom(right)) {
+                handle = reflected(right, left);
+            }
+            if (handle == null && left != null) {
+                handle = special(left, "__" + name + "__", right);
+            }
+            if (handle == null && right != null) {
+                handle = reflected(right, left);
+            }
+            if (handle == null && left != null && right != null) {
+                handle = builtin(left, right);
+            }
+            if (handle == null) {
+                throw new RuntimeException("unsupported operand type(s) for " + symbol() + ": '" + Linker.typeName(left) + "' and '" + Linker.typeName(right) + "'");
+            }
+            return handle;
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Operator " + symbol() + " between " + Linker.typeName(left) + " and " + Linker.typeName(right) + " is not accessible", e);
+        }
+    }
+
+    private MethodHandle special(Class<?> receiver, String method, Class<?> argument) throws IllegalAccessException {
+        Method found = Linker.lookupMethod(receiver, method, new Class<?>[]{argument});
+        return found == null ? null : Linker.adapt(lookup.unreflect(found), type());
+    }
+
+    private MethodHandle reflected(Class<?> receiver, Class<?> argument) throws IllegalAccessException {
+        MethodHandle handle = special(receiver, "__r" + name + "__", argument);
+        return handle == null ? null : MethodHandles.permuteArguments(handle, type(), 1, 0);
+    }
+
+    private MethodHandle builtin(Class<?> left, Class<?> right) throws ReflectiveOperationException {
+        int rank = Math.max(Operators.rank(left), Operators.rank(right));
+        if (Operators.rank(left) != Operators.NOT_A_NUMBER && Operators.rank(right) != Operators.NOT_A_NUMBER) {
+            if (rank == Operators.INT && !name.equals("truediv")) {
+                return operator(name + "Int", INT_TYPE);
+            }
+            if (isFloatOperator()) {
+                return Linker.adapt(OPERATORS.findStatic(Operators.class, name + "Float", FLOAT_TYPE), type());
+            }
+            return null;
+        }
+        if (name.equals("add") && bothOf(CharSequence.class, left, right)) {
+            return operator("concat", INT_TYPE);
+        }
+        if (name.equals("add") && bothOf(List.class, left, right)) {
+            return operator("concatList", INT_TYPE);
+        }
+        if (name.equals("mul")) {
+            return repetition(left, right);
+        }
+        return null;
+    }
+
+    /**
+     * {@code sequence * n} and {@code n * sequence}.
+     */
+    private MethodHandle repetition(Class<?> left, Class<?> right) throws ReflectiveOperationException {
+        boolean swapped = Operators.rank(left) == Operators.INT;
+        Class<?> sequence = swapped ? right : left;
+        if (Operators.rank(swapped ? left : right) != Operators.INT) {
+            return null;
+        }
+        MethodHandle handle;
+        if (CharSequence.class.isAssignableFrom(sequence)) {
+            handle = operator("repeat", INT_TYPE);
+        } else if (List.class.isAssignableFrom(sequence)) {
+            handle = operator("repeatList", INT_TYPE);
+        } else {
+            return null;
+        }
+        return swapped ? MethodHandles.permuteArguments(handle, type(), 1, 0) : handle;
+    }
+
+    private MethodHandle operator(String method, MethodType type) throws ReflectiveOperationException {
+        return OPERATORS.findStatic(Operators.class, method, type).asType(type());
+    }
+
+    private boolean isFloatOperator() {
+        switch (name) {
+            case "add":
+            case "sub":
+            case "mul":
+            case "truediv":
+            case "floordiv":
+            case "mod":
+            case "pow":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean bothOf(Class<?> type, Class<?> left, Class<?> right) {
+        return type.isAssignableFrom(left) && type.isAssignableFrom(right);
+    }
+
+    private String symbol() {
+        switch (name) {
+            case "add": return "+";
+            case "sub": return "-";
+            case "mul": return "*";
+            case "truediv": return "/";
+            case "floordiv": return "//";
+            case "mod": return "%";
+            case "pow": return "**";
+            case "and": return "&";
+            case "or": return "|";
+            case "xor": return "^";
+            case "lshift": return "<<";
+            case "rshift": return ">>";
+            default: return name;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package pythonvm.runtime;
+
+import pythonvm.builtins.PyInt;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The binary operators on the built-in types, which {@link OperatorSite} links to when neither operand implements the
+ * operator itself.
+ * <p>
+ * Numbers follow Python's numeric tower: {@code bool} and the integer boxes are ints and go through {@link PyInt}, so
+ * they promote to a {@link BigInteger} instead of overflowing. As soon as either side is a float both are doubles.
+ * Strings and lists support concatenation and repetition.
+ */
+final class Operators {
+    static final int NOT_A_NUMBER = 0;
+    static final int INT = 1;
+    static final int FLOAT = 2;
+
+    private Operators() {
+
+    }
+
+    /**
+     * Where a class is in the numeric tower, {@link #NOT_A_NUMBER} for anything that isn't a Python number.
+     */
+    static int rank(Class<?> type) {
+        if (type == Long.class || type == Integer.class || type == BigInteger.class || type == Boolean.class
+                || type == Short.class || type == Byte.class) {
+            return INT;
+        }
+        if (type == Double.class || type == Float.class) {
+            return FLOAT;
+        }
+        return NOT_A_NUMBER;
+    }
+
+    static Object addInt(Object a, Object b) {
+        return PyInt.add(integer(a), integer(b));
+    }
+
+    static Object subInt(Object a, Object b) {
+        return PyInt.subtract(integer(a), integer(b));
+    }
+
+    static Object mulInt(Object a, Object b) {
+        return PyInt.multiply(integer(a), integer(b));
+    }
+
+    static Object floordivInt(Object a, Object b) {
+        return PyInt.floorDivide(integer(a), integer(b));
+    }
+
+    static Object modInt(Object a, Object b) {
+        return PyInt.floorMod(integer(a), integer(b));
+    }
+
+    static Object powInt(Object a, Object b) {
+        Number exponent = integer(b);
+        if (PyInt.compare(exponent, 0L) < 0) {
+            // A negative exponent makes the result a float
+            return Math.pow(integer(a).doubleValue(), exponent.doubleValue());
+        }
+        return PyInt.power(integer(a), exponent);
+    }
+
+    static Object andInt(Object a, Object b) {
+        return PyInt.and(integer(a), integer(b));
+    }
+
+    static Object orInt(Object a, Object b) {
+        return PyInt.or(integer(a), integer(b));
+    }
+
+    static Object xorInt(Object a, Object b) {
+        return PyInt.xor(integer(a), integer(b));
+    }
+
+    static Object lshiftInt(Object a, Object b) {
+        return PyInt.shiftLeft(integer(a), integer(b));
+    }
+
+    static Object rshiftInt(Object a, Object b) {
+        return PyInt.shiftRight(integer(a), integer(b));
+    }
+
+    static double addFloat(double a, double b) {
+        return a + b;
+    }
+
+    static double subFloat(double a, double b) {
+        return a - b;
+    }
+
+    static double mulFloat(double a, double b) {
+        return a * b;
+    }
+
+    static double truedivFloat(double a, double b) {
+        if (b == 0) {
+            throw new ArithmeticException("float division by zero");
+        }
+        return a / b;
+    }
+
+    static double floordivFloat(double a, double b) {
+        if (b == 0) {
+            throw new ArithmeticException("float floor division by zero");
+        }
+        // Like CPython's float_floor_div, flooring a / b is off by one when the quotient rounds up to an integer
+        double mod = a % b;
+        double div = (a - mod) / b;
+        if (mod != 0 && (mod < 0) != (b < 0)) {
+            div -= 1;
+        }
+        if (div == 0) {
+            return Math.copySign(0.0, a / b);
+        }
+        double floorDiv = Math.floor(div);
+        return div - floorDiv > 0.5 ? floorDiv + 1 : floorDiv;
+    }
+
+    static double modFloat(double a, double b) {
+        if (b == 0) {
+            throw new ArithmeticException("float modulo");
+        }
+        double mod = a % b;
+        if (mod == 0) {
+            return Math.copySign(0.0, b);
+        }
+        // Python takes the sign of the divisor
+        return (mod < 0) != (b < 0) ? mod + b : mod;
+    }
+
+    static double powFloat(double a, double b) {
+        return Math.pow(a, b);
+    }
+
+    static Object concat(Object a, Object b) {
+        return a.toString() + b;
+    }
+
+    static Object repeat(Object text, Object times) {
+        long count = integer(times).longValue();
+        StringBuilder builder = new StringBuilder();
+        for (long i = 0; i < count; i++) {
+            builder.append((CharSequence) text);
+        }
+        return builder.toString();
+    }
+
+    static Object concatList(Object a, Object b) {
+        List<Object> result = new ArrayList<>((List<?>) a);
+        result.addAll((List<?>) b);
+        return result;
+    }
+
+    static Object repeatList(Object list, Object times) {
+        long count = integer(times).longValue();
+        List<?> items = (List<?>) list;
+        List<Object> result = new ArrayList<>(items.size() * (int) Math.max(count, 0));
+        for (long i = 0; i < count; i++) {
+            result.addAll(items);
+        }
+        return result;
+    }
+
+    private static Number integer(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1L : 0L;
+        }
+        return (Number) value;
+    }
+}
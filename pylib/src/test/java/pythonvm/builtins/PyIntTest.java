@@ -0,0 +1,134 @@
+package pythonvm.builtins;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PyIntTest {
+    private static final BigInteger TWO_TO_63 = BigInteger.ONE.shiftLeft(63);
+
+    @Test
+    void floorDivideRoundsTowardsNegativeInfinity() {
+        assertEquals(3L, PyInt.floorDivide(7L, 2L));
+        assertEquals(-4L, PyInt.floorDivide(-7L, 2L));
+        assertEquals(-4L, PyInt.floorDivide(7L, -2L));
+        assertEquals(3L, PyInt.floorDivide(-7L, -2L));
+        assertEquals(-4L, PyInt.floorDivide((Number) (-7L), (Number) 2L));
+        assertEquals(-6L, PyInt.floorDivide(TWO_TO_63.negate().multiply(BigInteger.TEN).subtract(BigInteger.ONE), TWO_TO_63.multiply(BigInteger.valueOf(2))));
+    }
+
+    @Test
+    void floorModTakesTheSignOfTheDivisor() {
+        assertEquals(1L, PyInt.floorMod(7L, 2L));
+        assertEquals(1L, PyInt.floorMod(-7L, 2L));
+        assertEquals(-1L, PyInt.floorMod(7L, -2L));
+        assertEquals(-1L, PyInt.floorMod(-7L, -2L));
+        assertEquals(1L, PyInt.floorMod(TWO_TO_63.negate().subtract(BigInteger.ONE), 2L));
+        assertEquals(-1L, PyInt.floorMod(TWO_TO_63.add(BigInteger.ONE), -2L));
+    }
+
+    @Test
+    void divisionByZeroFails() {
+        assertThrows(ArithmeticException.class, () -> PyInt.floorDivide(1L, 0L));
+        assertThrows(ArithmeticException.class, () -> PyInt.floorDivide((Number) 1L, (Number) 0L));
+        assertThrows(ArithmeticException.class, () -> PyInt.floorDivide(TWO_TO_63, 0L));
+        assertThrows(ArithmeticException.class, () -> PyInt.floorMod(1L, 0L));
+        assertThrows(ArithmeticException.class, () -> PyInt.floorMod(TWO_TO_63, 0L));
+    }
+
+    @Test
+    void minValuePromotesInsteadOfWrapping() {
+        assertEquals(TWO_TO_63, PyInt.floorDivide(Long.MIN_VALUE, -1L));
+        assertEquals(TWO_TO_63, PyInt.negate(Long.MIN_VALUE));
+        assertEquals(TWO_TO_63, PyInt.negate((Number) Long.MIN_VALUE));
+        assertEquals(TWO_TO_63, PyInt.multiply(Long.MIN_VALUE, -1L));
+        assertEquals(TWO_TO_63, PyInt.multiply(-1L, Long.MIN_VALUE));
+        assertEquals(TWO_TO_63, PyInt.subtract(0L, Long.MIN_VALUE));
+        assertEquals(TWO_TO_63.negate().subtract(BigInteger.ONE), PyInt.subtract(Long.MIN_VALUE, 1L));
+        assertEquals(Long.MIN_VALUE, PyInt.negate(TWO_TO_63));
+        assertEquals(0L, PyInt.floorMod(Long.MIN_VALUE, -1L));
+    }
+
+    @Test
+    void longOverloadsPromoteOnOverflow() {
+        assertEquals(TWO_TO_63, PyInt.add(Long.MAX_VALUE, 1L));
+        assertEquals(Long.MAX_VALUE, PyInt.add(Long.MAX_VALUE, 0L));
+        assertEquals(TWO_TO_63.negate().subtract(BigInteger.ONE), PyInt.add(Long.MIN_VALUE, -1L));
+        assertEquals(TWO_TO_63, PyInt.subtract(Long.MAX_VALUE, -1L));
+        assertEquals(BigInteger.ONE.shiftLeft(64), PyInt.multiply(1L << 32, 1L << 32));
+        assertEquals(1L << 62, PyInt.multiply(1L << 31, 1L << 31));
+        assertEquals(-6L, PyInt.multiply(-2L, 3L));
+    }
+
+    @Test
+    void resultsNarrowBackToLong() {
+        Number sum = PyInt.add(TWO_TO_63, -1L);
+        assertEquals(Long.MAX_VALUE, sum);
+        assertInstanceOf(Long.class, sum);
+        assertInstanceOf(Long.class, PyInt.subtract(TWO_TO_63, TWO_TO_63));
+        assertInstanceOf(Long.class, PyInt.floorDivide(TWO_TO_63, 2L));
+        assertInstanceOf(Long.class, PyInt.multiply(TWO_TO_63, 0L));
+    }
+
+    @Test
+    void shiftLeft() {
+        assertEquals(1L << 62, PyInt.shiftLeft(1L, 62L));
+        assertEquals(TWO_TO_63, PyInt.shiftLeft(1L, 63L));
+        assertEquals(Long.MIN_VALUE, PyInt.shiftLeft(-1L, 63L));
+        assertInstanceOf(Long.class, PyInt.shiftLeft(-1L, 63L));
+        assertEquals(TWO_TO_63.negate().shiftLeft(1), PyInt.shiftLeft(-1L, 64L));
+        assertEquals(BigInteger.valueOf(3).shiftLeft(100), PyInt.shiftLeft(3L, 100L));
+        assertEquals(0L, PyInt.shiftLeft(0L, 1000L));
+        assertEquals(TWO_TO_63, PyInt.shiftLeft((Number) 1L, (Number) 63L));
+        assertThrows(ArithmeticException.class, () -> PyInt.shiftLeft(1L, -1L));
+        assertThrows(ArithmeticException.class, () -> PyInt.shiftLeft(1L, TWO_TO_63));
+    }
+
+    @Test
+    void shiftRight() {
+        assertEquals(-1L, PyInt.shiftRight(-5L, 64L));
+        assertEquals(0L, PyInt.shiftRight(5L, 64L));
+        assertEquals(-3L, PyInt.shiftRight(-5L, 1L));
+        assertEquals(1L, PyInt.shiftRight((Number) TWO_TO_63, (Number) 63L));
+        assertThrows(ArithmeticException.class, () -> PyInt.shiftRight(1L, -1L));
+    }
+
+    @Test
+    void power() {
+        assertEquals(1L, PyInt.power(0L, 0L));
+        assertEquals(1024L, PyInt.power(2L, 10L));
+        assertEquals(-8L, PyInt.power(-2L, 3L));
+        assertEquals(Long.MIN_VALUE, PyInt.power(-2L, 63L));
+        assertEquals(TWO_TO_63, PyInt.power(2L, 63L));
+        assertEquals(BigInteger.valueOf(3).pow(50), PyInt.power(3L, 50L));
+        assertEquals(BigInteger.valueOf(3).pow(50), PyInt.power((Number) 3L, (Number) 50L));
+        assertEquals(TWO_TO_63.pow(2), PyInt.power(TWO_TO_63, 2L));
+        assertEquals(1L, PyInt.power(-1L, TWO_TO_63));
+        assertEquals(-1L, PyInt.power(-1L, TWO_TO_63.add(BigInteger.ONE)));
+        assertThrows(ArithmeticException.class, () -> PyInt.power(2L, -1L));
+        assertThrows(ArithmeticException.class, () -> PyInt.power(2L, TWO_TO_63));
+    }
+
+    @Test
+    void exactPathsFailInsteadOfWrapping() {
+        assertEquals(1L << 62, PyInt.powerExact(2L, 62L));
+        assertThrows(ArithmeticException.class, () -> PyInt.powerExact(2L, 63L));
+        assertEquals(Long.MIN_VALUE, PyInt.shiftLeftExact(-1L, 63L));
+        assertThrows(ArithmeticException.class, () -> PyInt.shiftLeftExact(1L, 63L));
+    }
+
+    @Test
+    void toLongFailsInsteadOfTruncating() {
+        assertEquals(Long.MAX_VALUE, PyInt.toLong(PyInt.add(TWO_TO_63, -1L)));
+        assertThrows(ArithmeticException.class, () -> PyInt.toLong(TWO_TO_63));
+    }
+
+    @Test
+    void compare() {
+        assertTrue(PyInt.compare(TWO_TO_63, Long.MAX_VALUE) > 0);
+        assertTrue(PyInt.compare(Long.MIN_VALUE, TWO_TO_63.negate().subtract(BigInteger.ONE)) > 0);
+        assertEquals(0, PyInt.compare(-3L, -3L));
+    }
+}
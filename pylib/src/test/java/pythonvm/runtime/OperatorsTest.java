@@ -0,0 +1,41 @@
+package pythonvm.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperatorsTest {
+    @Test
+    void floordivFloatMatchesCPython() {
+        assertEquals(9.0, Operators.floordivFloat(1.0, 0.1));
+        assertEquals(-10.0, Operators.floordivFloat(-1.0, 0.1));
+        assertEquals(2.0, Operators.floordivFloat(0.3, 0.1));
+        assertEquals(-4.0, Operators.floordivFloat(-7.0, 2.0));
+        assertEquals(-4.0, Operators.floordivFloat(7.0, -2.0));
+        assertEquals(-55000.0, Operators.floordivFloat(5.5, -0.0001));
+        assertEquals(-1.0, Operators.floordivFloat(-1e-300, 1e300));
+        assertEquals(Double.POSITIVE_INFINITY, Operators.floordivFloat(1e308, 1e-308));
+    }
+
+    @Test
+    void floordivFloatKeepsTheSignOfZero() {
+        assertEquals(0.0, Operators.floordivFloat(0.0, 5.0));
+        assertEquals(-0.0, Operators.floordivFloat(-0.0, 5.0));
+        assertEquals(-0.0, Operators.floordivFloat(0.0, -5.0));
+    }
+
+    @Test
+    void modFloatTakesTheSignOfTheDivisor() {
+        assertEquals(0.09999999999999995, Operators.modFloat(1.0, 0.1));
+        assertEquals(1.0, Operators.modFloat(-7.0, 2.0));
+        assertEquals(-1.0, Operators.modFloat(7.0, -2.0));
+        assertEquals(-0.0, Operators.modFloat(6.0, -3.0));
+        assertEquals(0.0, Operators.modFloat(-6.0, 3.0));
+    }
+
+    @Test
+    void floatDivisionByZeroFails() {
+        assertThrows(ArithmeticException.class, () -> Operators.floordivFloat(1.0, 0.0));
+        assertThrows(ArithmeticException.class, () -> Operators.modFloat(1.0, -0.0));
+    }
+}
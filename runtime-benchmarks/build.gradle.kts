@@ -0,0 +1,67 @@
+plugins {
+    id("java")
+    alias(libs.plugins.jmh)
+}
+
+group = "dev.ultreon.pythonvm"
+version = "1.0"
+
+repositories {
+    mavenCentral()
+}
+
+// Each kernel is compiled from a source root of its own, so a kernel the compiler rejects only fails its own task
+val kernels = file("src/main/python/bench").listFiles { file -> file.extension == "py" }.orEmpty().map { it.nameWithoutExtension }.sorted()
+val kernelJars = kernels.map { layout.buildDirectory.file("kernels/$it/$it.jar") }
+
+val compileKernelTasks = kernels.mapIndexed { index, kernel ->
+    val taskSuffix = kernel.split("_").joinToString("") { it.replaceFirstChar(Char::uppercase) }
+    val kernelDir = layout.buildDirectory.dir("kernels/$kernel")
+
+    val stageKernel = tasks.register<Sync>("stageKernel$taskSuffix") {
+        from("src/main/python/bench/$kernel.py")
+        into(kernelDir.map { it.dir("src/bench") })
+    }
+
+    tasks.register<JavaExec>("compileKernel$taskSuffix") {
+        dependsOn(stageKernel)
+        classpath = project(":compiler").sourceSets["main"].runtimeClasspath
+        mainClass.set("dev.ultreon.pythonc.App")
+        // The compiler stages classes relative to its working directory
+        workingDir = kernelDir.get().asFile
+        args = listOf("--no-incremental", "-o", kernelJars[index].get().asFile.path, kernelDir.get().dir("src").asFile.path)
+
+        group = "python-vm"
+        inputs.file("src/main/python/bench/$kernel.py")
+        inputs.files(project(":compiler").sourceSets["main"].runtimeClasspath)
+        outputs.file(kernelJars[index])
+    }
+}
+
+val compileKernels = tasks.register("compileKernels") {
+    group = "python-vm"
+    dependsOn(compileKernelTasks)
+}
+
+dependencies {
+    jmh(files(kernelJars).builtBy(compileKernels))
+    jmh(project(":pylib"))
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(21)
+    }
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh.asProvider().get()
+    // e.g. ./gradlew :runtime-benchmarks:jmh -Pjmh.includes=KernelBenchmark
+    (findProperty("jmh.includes") as String?)?.let { includes.add(it) }
+    profilers.add("gc")
+    resultFormat = "JSON"
+}
+
+tasks.named("jmhJar") {
+    notCompatibleWithConfigurationCache("The jmh plugin's jar task holds on to the project")
+}
@@ -0,0 +1,113 @@
+package dev.ultreon.pythonvm.bench;
+
+import org.openjdk.jmh.annotations.*;
+import pythonvm.runtime.Bootstrap;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a field on a receiver typed as {@code Object} through the {@link Bootstrap} attribute site, once
+ * seeing a single receiver class and once a few unrelated ones with a field of the same name, against a direct field
+ * read and plain reflection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DynamicAttributeBenchmark {
+    private static final int COUNT = 1024;
+    private static final MethodType TYPE = MethodType.methodType(Object.class, Object.class);
+
+    public static class Circle {
+        public Object size;
+
+        Circle(Object size) {
+            this.size = size;
+        }
+    }
+
+    public static class Square {
+        public Object size;
+
+        Square(Object size) {
+            this.size = size;
+        }
+    }
+
+    public static class Triangle {
+        public Object size;
+
+        Triangle(Object size) {
+            this.size = size;
+        }
+    }
+
+    private Object[] monomorphic;
+    private Object[] polymorphic;
+    private MethodHandle monomorphicSite;
+    private MethodHandle polymorphicSite;
+    private Field size;
+
+    @Setup
+    public void setup() throws NoSuchFieldException {
+        monomorphic = new Object[COUNT];
+        polymorphic = new Object[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            monomorphic[i] = new Circle(i);
+            polymorphic[i] = switch (i % 3) {
+                case 0 -> new Circle(i);
+                case 1 -> new Square(i);
+                default -> new Triangle(i);
+            };
+        }
+        monomorphicSite = Bootstrap.getattr(MethodHandles.lookup(), "size", TYPE).dynamicInvoker();
+        polymorphicSite = Bootstrap.getattr(MethodHandles.lookup(), "size", TYPE).dynamicInvoker();
+        size = Circle.class.getField("size");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long direct() {
+        long total = 0;
+        for (Object o : monomorphic) {
+            total += (Integer) ((Circle) o).size;
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long monomorphic() throws Throwable {
+        long total = 0;
+        for (Object o : monomorphic) {
+            total += (Integer) (Object) monomorphicSite.invokeExact(o);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long polymorphic() throws Throwable {
+        long total = 0;
+        for (Object o : polymorphic) {
+            total += (Integer) (Object) polymorphicSite.invokeExact(o);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long reflection() throws ReflectiveOperationException {
+        long total = 0;
+        for (Object o : monomorphic) {
+            total += (Integer) size.get(o);
+        }
+        return total;
+    }
+}
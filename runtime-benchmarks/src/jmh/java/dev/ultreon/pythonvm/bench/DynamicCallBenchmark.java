@@ -0,0 +1,87 @@
+package dev.ultreon.pythonvm.bench;
+
+import org.openjdk.jmh.annotations.*;
+import pythonvm.runtime.Bootstrap;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a call to {@code size()} on a receiver typed as {@code Object} through the {@link Bootstrap} call site, once
+ * seeing a single receiver class and once a few of them, against a direct interface call and plain reflection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DynamicCallBenchmark {
+    private static final int COUNT = 1024;
+    private static final MethodType TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private Object[] monomorphic;
+    private Object[] polymorphic;
+    private MethodHandle monomorphicSite;
+    private MethodHandle polymorphicSite;
+    private Method size;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        monomorphic = new Object[COUNT];
+        polymorphic = new Object[COUNT];
+        List<Collection<Integer>> kinds = Arrays.asList(new ArrayList<>(), new LinkedList<>(), new HashSet<>(), new ArrayDeque<>());
+        for (int i = 0; i < COUNT; i++) {
+            monomorphic[i] = new ArrayList<>(Collections.nCopies(i % 8, i));
+            polymorphic[i] = kinds.get(i % kinds.size());
+        }
+        monomorphicSite = Bootstrap.call(MethodHandles.lookup(), "size", TYPE).dynamicInvoker();
+        polymorphicSite = Bootstrap.call(MethodHandles.lookup(), "size", TYPE).dynamicInvoker();
+        size = Collection.class.getMethod("size");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long direct() {
+        long total = 0;
+        for (Object o : monomorphic) {
+            total += ((Collection<?>) o).size();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long monomorphic() throws Throwable {
+        long total = 0;
+        for (Object o : monomorphic) {
+            // invokeExact needs the call to have exactly the Object return type of the site
+            total += (Integer) (Object) monomorphicSite.invokeExact(o);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long polymorphic() throws Throwable {
+        long total = 0;
+        for (Object o : polymorphic) {
+            total += (Integer) (Object) polymorphicSite.invokeExact(o);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long reflection() throws ReflectiveOperationException {
+        long total = 0;
+        for (Object o : monomorphic) {
+            total += (Integer) size.invoke(o);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,78 @@
+package dev.ultreon.pythonvm.bench;
+
+import org.openjdk.jmh.annotations.*;
+import pythonvm.runtime.Bootstrap;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@code a + b} on operands typed as {@code Object} through the {@link Bootstrap} operator site, once with
+ * only ints and once mixing ints, floats and strings, against adding unboxed longs directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DynamicOperatorBenchmark {
+    private static final int COUNT = 1024;
+    private static final MethodType TYPE = MethodType.methodType(Object.class, Object.class, Object.class);
+
+    private long[] longs;
+    private Object[] monomorphic;
+    private Object[] polymorphic;
+    private MethodHandle monomorphicSite;
+    private MethodHandle polymorphicSite;
+
+    @Setup
+    public void setup() {
+        longs = new long[COUNT];
+        monomorphic = new Object[COUNT];
+        polymorphic = new Object[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            longs[i] = i;
+            monomorphic[i] = (long) i;
+            polymorphic[i] = switch (i % 3) {
+                case 0 -> (long) i;
+                case 1 -> (double) i;
+                default -> String.valueOf(i);
+            };
+        }
+        monomorphicSite = Bootstrap.operator(MethodHandles.lookup(), "add", TYPE).dynamicInvoker();
+        polymorphicSite = Bootstrap.operator(MethodHandles.lookup(), "add", TYPE).dynamicInvoker();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long direct() {
+        long total = 0;
+        for (long value : longs) {
+            total += value + value;
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long monomorphic() throws Throwable {
+        long total = 0;
+        for (Object o : monomorphic) {
+            total += (Long) (Object) monomorphicSite.invokeExact(o, o);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public int polymorphic() throws Throwable {
+        int hash = 0;
+        for (Object o : polymorphic) {
+            hash += ((Object) polymorphicSite.invokeExact(o, o)).hashCode();
+        }
+        return hash;
+    }
+}
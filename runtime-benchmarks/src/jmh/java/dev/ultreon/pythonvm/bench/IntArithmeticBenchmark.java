@@ -0,0 +1,77 @@
+package dev.ultreon.pythonvm.bench;
+
+import org.openjdk.jmh.annotations.*;
+import pythonvm.builtins.PyInt;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the int arithmetic the compiler emits. {@code wrapping} is the plain {@code LADD}/{@code LMUL} code that
+ * used to be generated, {@code exact} is the overflow-checked long path still used for operands that fit an int,
+ * {@code promoting} is the {@link PyInt} long path for wider operands, and the {@code pyInt} benchmarks go through
+ * {@link PyInt} the way values typed as {@code Number} do, once within the long range and once promoted to a
+ * {@code BigInteger}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class IntArithmeticBenchmark {
+    private static final int COUNT = 1024;
+
+    @Param({"31"})
+    public long factor;
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long wrapping() {
+        long total = 0;
+        for (long i = 0; i < COUNT; i++) {
+            total = (total & 0xFFFFFFFFL) * factor + i;
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long exact() {
+        long total = 0;
+        for (long i = 0; i < COUNT; i++) {
+            // Kept in range so the exact path never throws
+            total = Math.addExact(Math.multiplyExact(total & 0xFFFFFFFFL, factor), i);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long promoting() {
+        long total = 0;
+        for (long i = 0; i < COUNT; i++) {
+            total = PyInt.add(PyInt.multiply(total & 0xFFFFFFFFL, factor).longValue(), i).longValue();
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public Number pyInt() {
+        Number total = 0L;
+        for (long i = 0; i < COUNT; i++) {
+            total = PyInt.add(PyInt.multiply(PyInt.and(total, 0xFFFFFFFFL), factor), i);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public Number pyIntPromoted() {
+        Number total = 1L;
+        for (long i = 0; i < COUNT; i++) {
+            total = PyInt.add(PyInt.multiply(total, factor), i);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,45 @@
+package dev.ultreon.pythonvm.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the {@code bench()} function of each kernel in {@code src/main/python/bench}, each compiled into a jar of its
+ * own by {@code compileKernels}.
+ * Run with the gc profiler (the default in this module) to get the allocation rate per kernel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class KernelBenchmark {
+    @Param({"nbody", "spectral_norm", "fannkuch", "richards", "chaos", "strings", "calls", "ints", "bigints", "loops"})
+    public String kernel;
+
+    private MethodHandle bench;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        StringBuilder className = new StringBuilder("bench.");
+        for (String part : kernel.split("_")) {
+            className.append(Character.toUpperCase(part.charAt(0))).append(part.substring(1));
+        }
+        Class<?> module = Class.forName(className.append("Py").toString());
+
+        // The return type depends on what the compiler makes of the annotation, so look it up instead of hard-coding it
+        Method method = module.getMethod("bench");
+        bench = MethodHandles.publicLookup().unreflect(method).asType(MethodType.methodType(Object.class));
+    }
+
+    @Benchmark
+    public Object run() throws Throwable {
+        return bench.invokeExact();
+    }
+}
@@ -0,0 +1,19 @@
+COUNT = 200
+MODULUS = 1000000007
+
+
+def bench() -> int:
+    total = 0
+    for n in range(COUNT):
+        # Fibonacci and factorial leave the long range after a few dozen steps
+        a = 0
+        b = 1
+        for i in range(n + 100):
+            c = a + b
+            a = b
+            b = c
+        f = 1
+        for k in range(1, n + 30):
+            f = f * k
+        total = total + a % MODULUS + f % MODULUS
+    return total
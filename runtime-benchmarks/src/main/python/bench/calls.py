@@ -0,0 +1,22 @@
+from java.util.concurrent.atomic import AtomicLong
+
+COUNT = 1000000
+
+
+def add(a: int, b: int) -> int:
+    return a + b
+
+
+def mix(a: int, b: int) -> int:
+    return add(a, b) ^ add(b, 1)
+
+
+def bench() -> int:
+    counter = AtomicLong()
+    total = 0
+    i = 0
+    while i < COUNT:
+        total = mix(total, i) & 0xFFFFFF
+        counter.addAndGet(1)
+        i = i + 1
+    return total + counter.get()
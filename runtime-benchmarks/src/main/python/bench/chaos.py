@@ -0,0 +1,73 @@
+from java.lang import Math
+from java.util import ArrayList
+from java.util import Random
+
+ITERATIONS = 50000
+WIDTH = 256
+HEIGHT = 256
+SCALE = 256.0
+
+
+def at(items: ArrayList, i: int) -> float:
+    value: float = items.get(Math.toIntExact(i))
+    return value
+
+
+def count_at(items: ArrayList, i: int) -> int:
+    value: int = items.get(Math.toIntExact(i))
+    return value
+
+
+def add_transform(transforms: ArrayList, a: float, b: float, c: float, d: float, e: float, f: float):
+    # x' = a * x + b * y + e and y' = c * x + d * y + f
+    transform = ArrayList()
+    transform.add(a)
+    transform.add(b)
+    transform.add(c)
+    transform.add(d)
+    transform.add(e)
+    transform.add(f)
+    transforms.add(transform)
+
+
+def bench() -> int:
+    random = Random(1234)
+    transforms = ArrayList()
+    add_transform(transforms, 0.0, 0.0, 0.0, 0.16, 0.0, 0.0)
+    add_transform(transforms, 0.85, 0.04, -0.04, 0.85, 0.0, 1.6)
+    add_transform(transforms, 0.2, -0.26, 0.23, 0.22, 0.0, 1.6)
+    add_transform(transforms, -0.15, 0.28, 0.26, 0.24, 0.0, 0.44)
+    weights = ArrayList()
+    weights.add(0.01)
+    weights.add(0.86)
+    weights.add(0.93)
+    weights.add(1.0)
+    pixels = ArrayList()
+    for i in range(WIDTH * HEIGHT):
+        pixels.add(0)
+
+    x = 0.0
+    y = 0.0
+    for i in range(ITERATIONS):
+        choice = random.nextDouble()
+        index = 0
+        while at(weights, index) < choice:
+            index = index + 1
+        transform: ArrayList = transforms.get(Math.toIntExact(index))
+        next_x = at(transform, 0) * x + at(transform, 1) * y + at(transform, 4)
+        y = at(transform, 2) * x + at(transform, 3) * y + at(transform, 5)
+        x = next_x
+
+        scaled_x = x + 3.0
+        scaled_x = scaled_x / 6.0 * SCALE
+        scaled_y = y / 10.0 * SCALE
+        px = Math.min(WIDTH - 1, Math.max(0, Math.round(Math.floor(scaled_x))))
+        py = Math.min(HEIGHT - 1, Math.max(0, Math.round(Math.floor(scaled_y))))
+        pixel = py * WIDTH + px
+        pixels.set(Math.toIntExact(pixel), count_at(pixels, pixel) + 1)
+
+    lit = 0
+    for i in range(WIDTH * HEIGHT):
+        if count_at(pixels, i) > 0:
+            lit = lit + 1
+    return lit
@@ -0,0 +1,80 @@
+from java.lang import Math
+from java.util import ArrayList
+
+SIZE = 8
+
+
+def zeros(n: int) -> ArrayList:
+    items = ArrayList()
+    for i in range(n):
+        items.add(0)
+    return items
+
+
+def at(items: ArrayList, i: int) -> int:
+    value: int = items.get(Math.toIntExact(i))
+    return value
+
+
+def put(items: ArrayList, i: int, value: int):
+    items.set(Math.toIntExact(i), value)
+
+
+def fannkuch(n: int) -> int:
+    perm = zeros(n)
+    perm1 = zeros(n)
+    count = zeros(n)
+    for i in range(n):
+        put(perm1, i, i)
+
+    max_flips = 0
+    checksum = 0
+    permutations = 0
+    r = n
+    while True:
+        while r != 1:
+            put(count, r - 1, r)
+            r = r - 1
+
+        for i in range(n):
+            put(perm, i, at(perm1, i))
+
+        flips = 0
+        k = at(perm, 0)
+        while k != 0:
+            i = 0
+            j = k
+            while i < j:
+                swap = at(perm, i)
+                put(perm, i, at(perm, j))
+                put(perm, j, swap)
+                i = i + 1
+                j = j - 1
+            flips = flips + 1
+            k = at(perm, 0)
+
+        if flips > max_flips:
+            max_flips = flips
+        if permutations % 2 == 0:
+            checksum = checksum + flips
+        else:
+            checksum = checksum - flips
+
+        while True:
+            if r == n:
+                return max_flips * 1000000 + checksum
+            first = at(perm1, 0)
+            i = 0
+            while i < r:
+                put(perm1, i, at(perm1, i + 1))
+                i = i + 1
+            put(perm1, r, first)
+            put(count, r, at(count, r) - 1)
+            if at(count, r) > 0:
+                break
+            r = r + 1
+        permutations = permutations + 1
+
+
+def bench() -> int:
+    return fannkuch(SIZE)
@@ -0,0 +1,12 @@
+COUNT = 1000000
+MODULUS = 1000000007
+
+
+def bench() -> int:
+    total = 0
+    i = 0
+    while i < COUNT:
+        total = total * 31 + i
+        total = total % MODULUS
+        i = i + 1
+    return total
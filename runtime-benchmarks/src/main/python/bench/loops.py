@@ -0,0 +1,12 @@
+COUNT = 1000000
+
+
+def bench() -> int:
+    total = 0
+    for i in range(COUNT):
+        if i % 3 == 0:
+            continue
+        total = total + i
+    for j in range(COUNT, 0, -7):
+        total = total - j
+    return total
@@ -0,0 +1,104 @@
+from java.lang import Integer
+from java.lang import Math
+from java.util import ArrayList
+
+PI = 3.141592653589793
+SOLAR_MASS = 4.0 * PI * PI
+DAYS_PER_YEAR = 365.24
+STEPS = 1000
+
+
+def at(items: ArrayList, i: int) -> float:
+    value: float = items.get(Math.toIntExact(i))
+    return value
+
+
+def put(items: ArrayList, i: int, value: float):
+    items.set(Math.toIntExact(i), value)
+
+
+def add_body(bodies: ArrayList, x: float, y: float, z: float, vx: float, vy: float, vz: float, mass: float):
+    # Each body is a row of x, y, z, vx, vy, vz and mass
+    body = ArrayList()
+    body.add(x)
+    body.add(y)
+    body.add(z)
+    body.add(vx * DAYS_PER_YEAR)
+    body.add(vy * DAYS_PER_YEAR)
+    body.add(vz * DAYS_PER_YEAR)
+    body.add(mass * SOLAR_MASS)
+    bodies.add(body)
+
+
+def create_bodies() -> ArrayList:
+    bodies = ArrayList()
+    add_body(bodies, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 1.0)
+    add_body(bodies, 4.84143144246472090, -1.16032004402742839, -0.103622044471123109,
+             0.00166007664274403694, 0.00769901118419740425, -0.0000690460016972063023,
+             0.000954791938424326609)
+    add_body(bodies, 8.34336671824457987, 4.12479856412430479, -0.403523417114321381,
+             -0.00276742510726862411, 0.00499852801234917238, 0.0000230417297573763929,
+             0.000285885980666130812)
+    add_body(bodies, 12.8943695621391310, -15.1111514016986312, -0.223307578892655734,
+             0.00296460137564761618, 0.00237847173959480950, -0.0000296589568540237556,
+             0.0000436624404335156298)
+    add_body(bodies, 15.3796971148509165, -25.9193146099879641, 0.179258772950371181,
+             0.00268067772490389322, 0.00162824170038242295, -0.0000951592254519715870,
+             0.0000515138902046611451)
+    return bodies
+
+
+def advance(bodies: ArrayList, dt: float, steps: int):
+    count = Integer.toUnsignedLong(bodies.size())
+    for step in range(steps):
+        for i in range(count):
+            a: ArrayList = bodies.get(Math.toIntExact(i))
+            j = i + 1
+            while j < count:
+                b: ArrayList = bodies.get(Math.toIntExact(j))
+                dx = at(a, 0) - at(b, 0)
+                dy = at(a, 1) - at(b, 1)
+                dz = at(a, 2) - at(b, 2)
+                distance2 = dx * dx + dy * dy + dz * dz
+                distance3 = distance2 * Math.sqrt(distance2)
+                magnitude = dt / distance3
+                a_mass = at(a, 6) * magnitude
+                b_mass = at(b, 6) * magnitude
+                put(a, 3, at(a, 3) - dx * b_mass)
+                put(a, 4, at(a, 4) - dy * b_mass)
+                put(a, 5, at(a, 5) - dz * b_mass)
+                put(b, 3, at(b, 3) + dx * a_mass)
+                put(b, 4, at(b, 4) + dy * a_mass)
+                put(b, 5, at(b, 5) + dz * a_mass)
+                j = j + 1
+
+        for i in range(count):
+            body: ArrayList = bodies.get(Math.toIntExact(i))
+            put(body, 0, at(body, 0) + dt * at(body, 3))
+            put(body, 1, at(body, 1) + dt * at(body, 4))
+            put(body, 2, at(body, 2) + dt * at(body, 5))
+
+
+def energy(bodies: ArrayList) -> float:
+    count = Integer.toUnsignedLong(bodies.size())
+    total = 0.0
+    for i in range(count):
+        a: ArrayList = bodies.get(Math.toIntExact(i))
+        speed2 = at(a, 3) * at(a, 3) + at(a, 4) * at(a, 4) + at(a, 5) * at(a, 5)
+        total = total + 0.5 * at(a, 6) * speed2
+        j = i + 1
+        while j < count:
+            b: ArrayList = bodies.get(Math.toIntExact(j))
+            dx = at(a, 0) - at(b, 0)
+            dy = at(a, 1) - at(b, 1)
+            dz = at(a, 2) - at(b, 2)
+            distance = Math.sqrt(dx * dx + dy * dy + dz * dz)
+            total = total - at(a, 6) * at(b, 6) / distance
+            j = j + 1
+    return total
+
+
+def bench() -> float:
+    bodies = create_bodies()
+    advance(bodies, 0.01, STEPS)
+    return energy(bodies)
@@ -0,0 +1,78 @@
+# Simplified Richards: a round-robin scheduler running device, handler and worker tasks that pass packets around.
+from java.lang import Integer
+from java.lang import Math
+from java.util import ArrayDeque
+from java.util import ArrayList
+
+IDLE = 0
+WORKER = 1
+HANDLER = 2
+DEVICE = 3
+COUNT = 10000
+
+
+def at(items: ArrayList, i: int) -> int:
+    value: int = items.get(Math.toIntExact(i))
+    return value
+
+
+def put(items: ArrayList, i: int, value: int):
+    items.set(Math.toIntExact(i), value)
+
+
+def packet(destination: int, datum: int) -> ArrayList:
+    # A packet is its destination task and its datum
+    created = ArrayList()
+    created.add(destination)
+    created.add(datum)
+    return created
+
+
+def send(queues: ArrayList, sent: ArrayList):
+    queue: ArrayDeque = queues.get(Math.toIntExact(at(sent, 0)))
+    queue.add(sent)
+
+
+def run(queues: ArrayList, identity: int) -> int:
+    queue: ArrayDeque = queues.get(Math.toIntExact(identity))
+    if Integer.toUnsignedLong(queue.size()) == 0:
+        return IDLE
+    received: ArrayList = queue.poll()
+    put(received, 1, at(received, 1) + identity)
+    destination = DEVICE
+    if identity == DEVICE:
+        destination = HANDLER
+    if identity == HANDLER:
+        destination = WORKER
+    put(received, 0, destination)
+    send(queues, received)
+    return identity
+
+
+def schedule(queues: ArrayList, steps: int) -> int:
+    hold_count = 0
+    queue_count = 0
+    for step in range(steps):
+        index = 3
+        ran = 0
+        while index > 0:
+            if run(queues, index) != IDLE:
+                queue_count = queue_count + 1
+                ran = 1
+                index = 0
+            else:
+                index = index - 1
+        if ran == 0:
+            hold_count = hold_count + 1
+            queue_count = queue_count + 1
+            send(queues, packet(WORKER, 0))
+    return queue_count * 1000 + hold_count
+
+
+def bench() -> int:
+    queues = ArrayList()
+    for identity in range(4):
+        queues.add(ArrayDeque())
+    send(queues, packet(DEVICE, 1))
+    send(queues, packet(HANDLER, 2))
+    return schedule(queues, COUNT)
@@ -0,0 +1,66 @@
+from java.lang import Long
+from java.lang import Math
+from java.util import ArrayList
+
+SIZE = 100
+
+
+def filled(n: int, value: float) -> ArrayList:
+    items = ArrayList()
+    for i in range(n):
+        items.add(value)
+    return items
+
+
+def at(items: ArrayList, i: int) -> float:
+    value: float = items.get(Math.toIntExact(i))
+    return value
+
+
+def to_float(value: int) -> float:
+    return Long.valueOf(value).doubleValue()
+
+
+def eval_a(i: int, j: int) -> float:
+    ij = i + j
+    # (i + j) * (i + j + 1) // 2 + i + 1
+    divisor = ij * ij + ij
+    divisor = divisor // 2 + i + 1
+    return 1.0 / to_float(divisor)
+
+
+def eval_a_times_u(u: ArrayList, out: ArrayList, n: int):
+    for i in range(n):
+        total = 0.0
+        for j in range(n):
+            total = total + eval_a(i, j) * at(u, j)
+        out.set(Math.toIntExact(i), total)
+
+
+def eval_at_times_u(u: ArrayList, out: ArrayList, n: int):
+    for i in range(n):
+        total = 0.0
+        for j in range(n):
+            total = total + eval_a(j, i) * at(u, j)
+        out.set(Math.toIntExact(i), total)
+
+
+def eval_ata_times_u(u: ArrayList, out: ArrayList, tmp: ArrayList, n: int):
+    eval_a_times_u(u, tmp, n)
+    eval_at_times_u(tmp, out, n)
+
+
+def bench() -> float:
+    u = filled(SIZE, 1.0)
+    v = filled(SIZE, 0.0)
+    tmp = filled(SIZE, 0.0)
+    for iteration in range(10):
+        eval_ata_times_u(u, v, tmp, SIZE)
+        eval_ata_times_u(v, u, tmp, SIZE)
+
+    vbv = 0.0
+    vv = 0.0
+    for i in range(SIZE):
+        vbv = vbv + at(u, i) * at(v, i)
+        vv = vv + at(v, i) * at(v, i)
+    return Math.sqrt(vbv / vv)
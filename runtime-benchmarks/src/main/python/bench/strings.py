@@ -0,0 +1,22 @@
+from java.lang import Integer
+from java.lang import String
+from java.lang import StringBuilder
+
+COUNT = 10000
+
+
+def bench() -> int:
+    builder = StringBuilder()
+    i = 0
+    while i < COUNT:
+        text = "item " + String.valueOf(i)
+        builder.append(text.toUpperCase())
+        builder.append(",")
+        i = i + 1
+
+    joined = builder.toString()
+    total = 0
+    for item in joined.split(","):
+        part: str = item
+        total = total + Integer.toUnsignedLong(part.length())
+    return total + Integer.toUnsignedLong(joined.indexOf("ITEM 9999"))
@@ -14,3 +14,5 @@ rootProject.name = "python-vm"
 include("compiler")
 include("testing")
 include("pylib")
+include("benchmarks")
+include("runtime-benchmarks")